@@ -0,0 +1,78 @@
+package bench;
+
+import game.Board;
+import game.BoardLoc;
+import game.MoveList;
+import game.Team;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The board-level operations that every search is built from. Each benchmark does its operation
+ * once for every square (or every move) of the position, so scores are per position, not per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({Positions.START, Positions.MIDDLEGAME, Positions.TACTICAL, Positions.ENDGAME})
+    public String position;
+
+    private Board board;
+    private Team side;
+    private final BoardLoc[] squares = new BoardLoc[64];
+    private final MoveList moves = new MoveList();
+
+    @Setup public void setUp() {
+        board = Positions.load(position);
+        side = board.sideToMove();
+        for (int i = 0; i < 64; i++)
+            squares[i] = BoardLoc.at(i/8, i%8);
+        board.getMovesFor(side, moves);
+    }
+
+    /** `Pieces.getPieceAt` (through `Board`) on all 64 squares */
+    @Benchmark public void getPieceAt(Blackhole bh) {
+        for (BoardLoc loc : squares)
+            bh.consume(board.getPieceAt(loc));
+    }
+
+    /** `Board.isThreatened` on all 64 squares, for the side to move */
+    @Benchmark public void isThreatened(Blackhole bh) {
+        for (BoardLoc loc : squares)
+            bh.consume(board.isThreatened(side, loc));
+    }
+
+    /** `Board.getMovesFor`, into a reused `MoveList` */
+    @Benchmark public MoveList getMovesFor() {
+        board.getMovesFor(side, moves);
+        return moves;
+    }
+
+    /** `Board.execute` then `undoMove` of every move in the position */
+    @Benchmark public long executeUndo() {
+        long keys = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            board.execute(moves.get(i));
+            keys += board.zobristKey();
+            board.undoMove();
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,56 @@
+package bench;
+
+import game.Board;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import player.strategies.Strategy.BoardEvaluator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Static evaluation of a whole position, which every search leaf pays for.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluationBenchmark {
+
+    @Param({Positions.START, Positions.MIDDLEGAME, Positions.TACTICAL, Positions.ENDGAME})
+    public String position;
+
+    private Board board;
+    private BoardEvaluator.EvaluateByPieces evaluator;
+    private BoardEvaluator.EvaluateByPiecesAndSquares squaresEvaluator;
+    private BoardEvaluator.EvaluateByTaperedTables taperedEvaluator;
+
+    @Setup public void setUp() {
+        board = Positions.load(position);
+        evaluator = new BoardEvaluator.EvaluateByPieces(board.sideToMove());
+        squaresEvaluator = new BoardEvaluator.EvaluateByPiecesAndSquares(board.sideToMove());
+        taperedEvaluator = new BoardEvaluator.EvaluateByTaperedTables(board.sideToMove());
+    }
+
+    @Benchmark public double evaluateByPieces() {
+        return evaluator.evaluate(board);
+    }
+
+    @Benchmark public double evaluateByPiecesAndSquares() {
+        return squaresEvaluator.evaluate(board);
+    }
+
+    @Benchmark public double evaluateByTaperedTables() {
+        return taperedEvaluator.evaluate(board);
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import game.Board;
+import game.Piece;
+import game.PieceType;
+import game.Team;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * `Piece.possibleMoves` (and the `moveMask` underneath it) for every live piece of one type, of
+ * both teams, in a position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceBenchmark {
+
+    @Param({Positions.START, Positions.MIDDLEGAME, Positions.TACTICAL})
+    public String position;
+
+    @Param({"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING"})
+    public PieceType type;
+
+    private final List<Piece> pieces = new ArrayList<>();
+
+    @Setup public void setUp() {
+        Board board = Positions.load(position);
+        for (Team team : Team.values())
+            for (Piece p : board.livePiecesFor(team))
+                if (p.type == type)
+                    pieces.add(p);
+    }
+
+    @Benchmark public void possibleMoves(Blackhole bh) {
+        for (Piece p : pieces)
+            bh.consume(p.possibleMoves());
+    }
+
+    @Benchmark public void moveMask(Blackhole bh) {
+        for (Piece p : pieces)
+            bh.consume(p.moveMask());
+    }
+}
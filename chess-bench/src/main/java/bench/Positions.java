@@ -0,0 +1,39 @@
+package bench;
+
+import game.Board;
+import game.Fen;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The fixed positions every benchmark runs on, by name, so that results stay comparable between
+ * releases. Benchmarks take one of these names as their `position` parameter.
+ */
+final class Positions {
+
+    static final String START = "start";
+    static final String MIDDLEGAME = "middlegame";
+    static final String TACTICAL = "tactical";
+    static final String ENDGAME = "endgame";
+
+    private static final Map<String, String> FENS = new HashMap<>();
+
+    static {
+        FENS.put(START, Fen.START);
+        // after 1. e4 e5 2. Nf3 Nc6 3. Bc4 Nf6
+        FENS.put(MIDDLEGAME, "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+        // "kiwipete": lots of captures, pins and castling
+        FENS.put(TACTICAL, "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        FENS.put(ENDGAME, "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+    }
+
+    private Positions() {
+    }
+
+    static Board load(String name) {
+        String fen = FENS.get(name);
+        if (fen == null) throw new IllegalArgumentException("no benchmark position called " + name);
+        return Fen.toBoard(fen);
+    }
+}
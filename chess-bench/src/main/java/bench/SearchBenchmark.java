@@ -0,0 +1,78 @@
+package bench;
+
+import game.Board;
+import game.cmd.BoardCommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import player.strategies.AlphaBetaAI;
+import player.strategies.GreedyAI;
+import player.strategies.MinimaxAI;
+import player.strategies.SearchLimits;
+import player.strategies.Strategy;
+import player.strategies.TranspositionTable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One `chooseMove` by each AI strategy. The searching strategies' transposition tables are cleared
+ * before every call, so each call does the full search rather than reading the last one's results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    /** fixed depth, so that the work done doesn't depend on the machine */
+    private static final int ALPHA_BETA_DEPTH = 4;
+    private static final int TABLE_MEGABYTES = 4;
+
+    @Param({Positions.START, Positions.MIDDLEGAME, Positions.TACTICAL, Positions.ENDGAME})
+    public String position;
+
+    private Board board;
+    private GreedyAI greedy;
+    private MinimaxAI minimax;
+    private AlphaBetaAI alphaBeta;
+    private TranspositionTable minimaxTable;
+    private TranspositionTable alphaBetaTable;
+
+    @Setup public void setUp() {
+        board = Positions.load(position);
+        greedy = new GreedyAI(board.sideToMove(), board, Strategy.PieceEvaluator.textbook());
+        minimaxTable = new TranspositionTable(TABLE_MEGABYTES);
+        alphaBetaTable = new TranspositionTable(TABLE_MEGABYTES);
+        minimax = new MinimaxAI(board, board.sideToMove(), minimaxTable);
+        alphaBeta = new AlphaBetaAI(board, board.sideToMove(), SearchLimits.depth(ALPHA_BETA_DEPTH),
+            alphaBetaTable);
+    }
+
+    @Setup(Level.Invocation) public void clearTables() {
+        minimaxTable.clear();
+        alphaBetaTable.clear();
+    }
+
+    @Benchmark public BoardCommand greedyAI() {
+        return greedy.chooseMove();
+    }
+
+    @Benchmark public BoardCommand minimaxAI() {
+        return minimax.chooseMove();
+    }
+
+    @Benchmark public BoardCommand alphaBetaAI() {
+        return alphaBeta.chooseMove();
+    }
+}
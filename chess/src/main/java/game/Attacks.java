@@ -0,0 +1,247 @@
+package game;
+
+import java.util.Random;
+
+/**
+ * Precomputed attack masks, in the square layout described in `Bitboards`.
+ *
+ * Knights, kings and pawns attack a fixed set of squares from each square, so those are plain
+ * lookup tables. Rooks and bishops depend on which squares in their path are occupied; for those we
+ * use "magic bitboards": the occupied squares that could block a slider are multiplied by a magic
+ * number chosen so that the top bits of the product form a perfect index into a table of attack
+ * masks for that square. Queens are a rook plus a bishop.
+ *
+ * Finding magic numbers takes a while, so the ones in `ROOK_MAGICS` and `BISHOP_MAGICS` were found
+ * ahead of time by `Magic.find`, with the seed below and 0 for every known magic (0 never works, so
+ * that repeats the whole search). Each one is checked as its table is filled, and if it somehow
+ * doesn't work, a new one is searched for.
+ */
+public final class Attacks {
+
+    private static final int[][] ROOK_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+    private static final int[][] KNIGHT_JUMPS = {
+        {-2, -1}, {-2, 1}, {2, -1}, {2, 1}, {-1, -2}, {1, -2}, {-1, 2}, {1, 2}
+    };
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    /** indexed by `Team.ordinal()`, then square */
+    private static final long[][] PAWN = new long[2][64];
+
+    private static final long[] ROOK_MAGICS = {
+        0x20800110C0022480L, 0x2A4001E000100A40L, 0x0A0011201880C200L, 0x020004110A002040L,
+        0x0600080200200490L, 0x0880040080160029L, 0x8480020000801100L, 0x2080004100002080L,
+        0x0000802040008000L, 0x0822402004401000L, 0x0022004022008010L, 0x0081000810002100L,
+        0x000200100A002004L, 0x1402001C51082A00L, 0x0300800100800200L, 0x0002000094110842L,
+        0x8000208000400090L, 0x0090004004582000L, 0x0000110040200101L, 0x4009010020100008L,
+        0x8014050010480100L, 0x0234004002004100L, 0x1800040021506208L, 0x900C020000640091L,
+        0x0000802180004010L, 0x3100200880400080L, 0x00C0420200201080L, 0x1100080080801000L,
+        0x0104000480080080L, 0x808A000200041008L, 0x00C0820400104108L, 0x00060042000C8411L,
+        0x1E00400090800020L, 0x0230002010400040L, 0x4082200511004100L, 0x0022100084800800L,
+        0x4000800400800800L, 0x0001800201800400L, 0x5042028844001001L, 0x0002008042000401L,
+        0x2000800040008020L, 0x0000200050004000L, 0x0001002000410010L, 0x8000210090030008L,
+        0x0820040008008080L, 0x0602001008020004L, 0x0000024810240081L, 0x0081002040810002L,
+        0x04010222408A0200L, 0x0200200040008080L, 0x0101801001200280L, 0x0000080080100080L,
+        0x1120080011000500L, 0x4800800400020080L, 0x0090880250110400L, 0x0200008249040600L,
+        0x2300408600201102L, 0x4000608340081101L, 0x0041001220010841L, 0xC502004004081022L,
+        0x8402002008041102L, 0x0005000802040001L, 0x400000C108100224L, 0x00040080440512A2L
+    };
+    private static final long[] BISHOP_MAGICS = {
+        0x0220281000624040L, 0x0C20156F39010020L, 0x0841110101000250L, 0x08191401010004C8L,
+        0x0404030810840000L, 0x0022024220804888L, 0x2800440404408310L, 0x4002003208020802L,
+        0x0200909001012405L, 0x0001100108408C80L, 0x840408408C0280C8L, 0x4000082048410025L,
+        0x90800C5040410000L, 0x0000010420050000L, 0x0004168410180400L, 0x0200208888080200L,
+        0x8004000848280818L, 0x0231800810008080L, 0x014E001000845100L, 0x4088010411202001L,
+        0x9840821404A00108L, 0x0015005A00410400L, 0x0001001088080261L, 0x0002020041040128L,
+        0x2248400021220200L, 0x0810044703080210L, 0x0001900A18002122L, 0x028208002C010420L,
+        0x2081001219004000L, 0x2010388021008080L, 0x0488020420820148L, 0x0000820020220214L,
+        0x8210500801100200L, 0x0014020844021001L, 0x003AC1300A280042L, 0x0601010900080040L,
+        0x4040080820020020L, 0x04110B0200810246L, 0x005000A100098C40L, 0x0002040104084041L,
+        0x0C22100220120820L, 0x0022211002448811L, 0x00000C0402010400L, 0x1A010A4200901800L,
+        0x0552108E10100200L, 0x1081102904400200L, 0xC612080504001506L, 0x03040442C0C80A04L,
+        0x0424220804048191L, 0xA002020202030000L, 0x0408004600904C00L, 0x0880901922880000L,
+        0x010040D002021002L, 0x1022060408660040L, 0x0810047014104000L, 0xC0201405222122C4L,
+        0x8011002802021000L, 0x0400048880B05002L, 0x91010700242E0800L, 0x8029012000208806L,
+        0x0040013240084840L, 0x400024240C180208L, 0x4000582005444300L, 0x0020049004410C20L
+    };
+
+    /** `BETWEEN[a][b]`: the squares strictly between `a` and `b` if they share a line, else 0 */
+    private static final long[][] BETWEEN = new long[64][64];
+
+    private static final Magic[] ROOK = new Magic[64];
+    private static final Magic[] BISHOP = new Magic[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = Bitboards.row(square);
+            int col = Bitboards.col(square);
+            for (int[] jump : KNIGHT_JUMPS)
+                KNIGHT[square] |= maskOf(row + jump[0], col + jump[1]);
+            for (int i = -1; i <= 1; i++)
+                for (int j = -1; j <= 1; j++)
+                    if (i != 0 || j != 0)
+                        KING[square] |= maskOf(row + i, col + j);
+            PAWN[Team.BLACK.ordinal()][square] = maskOf(row + 1, col - 1) | maskOf(row + 1, col + 1);
+            PAWN[Team.WHITE.ordinal()][square] = maskOf(row - 1, col - 1) | maskOf(row - 1, col + 1);
+        }
+        Random random = new Random(0x1DEA5EEDL);
+        for (int square = 0; square < 64; square++) {
+            ROOK[square] = Magic.find(square, ROOK_DIRECTIONS, ROOK_MAGICS[square], random);
+            BISHOP[square] = Magic.find(square, BISHOP_DIRECTIONS, BISHOP_MAGICS[square], random);
+        }
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long bitA = Bitboards.bit(a);
+                long bitB = Bitboards.bit(b);
+                if ((rook(a, 0) & bitB) != 0)
+                    BETWEEN[a][b] = rook(a, bitB) & rook(b, bitA);
+                else if ((bishop(a, 0) & bitB) != 0)
+                    BETWEEN[a][b] = bishop(a, bitB) & bishop(b, bitA);
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    private static long maskOf(int row, int col) {
+        return BoardLoc.onBoard(row, col) ? Bitboards.bit(Bitboards.square(row, col)) : 0;
+    }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    /** @return the squares a pawn of `team` on `square` could capture on */
+    public static long pawn(Team team, int square) {
+        return PAWN[team.ordinal()][square];
+    }
+
+    public static long rook(int square, long occupied) {
+        return ROOK[square].attacks(occupied);
+    }
+
+    public static long bishop(int square, long occupied) {
+        return BISHOP[square].attacks(occupied);
+    }
+
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    /** @return the squares strictly between `a` and `b`, or 0 if no rook or bishop could go between them */
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * Walks outward from `square` in each direction, stopping at (and including) the first occupied
+     * square. This is the slow way; it is only used to fill the magic tables (and by the tests to
+     * check them).
+     */
+    static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] dir : directions) {
+            int r = Bitboards.row(square) + dir[0];
+            int c = Bitboards.col(square) + dir[1];
+            for (; BoardLoc.onBoard(r, c); r += dir[0], c += dir[1]) {
+                long bit = Bitboards.bit(Bitboards.square(r, c));
+                attacks |= bit;
+                if ((occupied & bit) != 0) break;
+            }
+        }
+        return attacks;
+    }
+
+    static long slowRook(int square, long occupied) {
+        return slidingAttacks(square, occupied, ROOK_DIRECTIONS);
+    }
+
+    static long slowBishop(int square, long occupied) {
+        return slidingAttacks(square, occupied, BISHOP_DIRECTIONS);
+    }
+
+    /**
+     * The lookup table for one slider on one square.
+     */
+    private static final class Magic {
+        /** the squares whose occupancy can change this slider's attacks (edges never can) */
+        final long mask;
+        final long magic;
+        final int shift;
+        final long[] table;
+
+        private Magic(long mask, long magic, int shift, long[] table) {
+            this.mask = mask;
+            this.magic = magic;
+            this.shift = shift;
+            this.table = table;
+        }
+
+        long attacks(long occupied) {
+            return table[(int) (((occupied & mask)*magic) >>> shift)];
+        }
+
+        /**
+         * Builds the table for `square`, using `knownMagic` if it works and otherwise searching for a
+         * magic that does.
+         */
+        static Magic find(int square, int[][] directions, long knownMagic, Random random) {
+            long mask = relevantOccupancy(square, directions);
+            int bits = Long.bitCount(mask);
+            int size = 1 << bits;
+
+            /* enumerate every subset of `mask` (the "carry-rippler" trick) */
+            long[] occupancies = new long[size];
+            long[] attacks = new long[size];
+            long subset = 0;
+            for (int i = 0; i < size; i++) {
+                occupancies[i] = subset;
+                attacks[i] = slidingAttacks(square, subset, directions);
+                subset = (subset - mask) & mask;
+            }
+
+            long[] table = new long[size];
+            // which attempt last wrote each slot, so the table needn't be cleared between attempts
+            int[] writtenBy = new int[size];
+            for (int attempt = 1; ; attempt++) {
+                // magics with few set bits tend to work best
+                long magic = attempt == 1 ? knownMagic : random.nextLong() & random.nextLong() & random.nextLong();
+                if (Long.bitCount((mask*magic) & 0xFF00000000000000L) < 6) continue;
+                if (fill(table, writtenBy, attempt, occupancies, attacks, magic, 64 - bits))
+                    return new Magic(mask, magic, 64 - bits, table);
+            }
+        }
+
+        /** @return true iff no two occupancies with different attacks collide under `magic` */
+        private static boolean fill(long[] table, int[] writtenBy, int attempt,
+                                    long[] occupancies, long[] attacks, long magic, int shift) {
+            for (int i = 0; i < occupancies.length; i++) {
+                int index = (int) ((occupancies[i]*magic) >>> shift);
+                if (writtenBy[index] != attempt) {
+                    writtenBy[index] = attempt;
+                    table[index] = attacks[i];
+                }
+                else if (table[index] != attacks[i]) return false;
+            }
+            return true;
+        }
+
+        private static long relevantOccupancy(int square, int[][] directions) {
+            long mask = 0;
+            for (int[] dir : directions) {
+                int r = Bitboards.row(square) + dir[0];
+                int c = Bitboards.col(square) + dir[1];
+                // stop one short of the edge: a piece on the last square can't block anything
+                for (; BoardLoc.onBoard(r + dir[0], c + dir[1]); r += dir[0], c += dir[1])
+                    mask |= Bitboards.bit(Bitboards.square(r, c));
+            }
+            return mask;
+        }
+    }
+}
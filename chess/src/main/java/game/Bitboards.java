@@ -0,0 +1,60 @@
+package game;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Helpers for working with 64-bit square masks.
+ *
+ * Square `i` is bit `i` of the mask, where `i = row*8 + col` using the same `row`/`col` as
+ * `BoardLoc`. So bit 0 is A8 and bit 63 is H1.
+ */
+public final class Bitboards {
+
+    /** the dark squares, e.g. A1 and H8 */
+    public static final long DARK_SQUARES = 0x55AA55AA55AA55AAL;
+
+    private Bitboards() {
+    }
+
+    public static int square(int row, int col) {
+        return row << 3 | col;
+    }
+
+    public static int square(BoardLoc loc) {
+        return square(loc.row, loc.col);
+    }
+
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static boolean contains(long mask, int square) {
+        return (mask & bit(square)) != 0;
+    }
+
+    /** @return the index of the lowest set bit; only meaningful if `mask != 0` */
+    public static int first(long mask) {
+        return Long.numberOfTrailingZeros(mask);
+    }
+
+    public static BoardLoc loc(int square) {
+        return BoardLoc.at(row(square), col(square));
+    }
+
+    /** @return the locations of every square set in `mask` */
+    public static Set<BoardLoc> toLocs(long mask) {
+        Set<BoardLoc> locs = new HashSet<>();
+        for (; mask != 0; mask &= mask - 1)
+            locs.add(loc(first(mask)));
+        return locs;
+    }
+}
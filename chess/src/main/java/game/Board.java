@@ -6,32 +6,75 @@ import ui.BoardRenderer;
 import ui.CommandLineRenderer;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.Stack;
 
 /**
  * Ethan Petuchowski 7/7/15
  */
 public class Board {
 
+    /** returned by `enPassantSquare()` when the last move wasn't a pawn's double step */
+    public static final int NO_EN_PASSANT = -1;
+
     /** FIELDS */
     private final Pieces pieces;
-    private final Stack<StateChange> undoStack = new Stack<>();
+    /* The undo stack, as parallel arrays so that making a move doesn't allocate.
+     * `history` holds packed moves (see `Move`); `captured` holds the piece each one killed;
+     * `undoState` holds what the move overwrote (see `undoState()`); `keyHistory` holds the
+     * Zobrist key from before the move.
+     */
+    private int[] history = new int[64];
+    private Piece[] captured = new Piece[64];
+    private int[] undoState = new int[64];
+    private long[] keyHistory = new long[64];
+    private int historySize;
+    /** plies since the last capture or pawn move, counting any from before the undo stack began */
+    private int halfmoveClock;
+    private Team sideToMove = Team.WHITE;
+    private int enPassantSquare = NO_EN_PASSANT;
+    private long zobristKey;
     private BoardRenderer boardRenderer = new CommandLineRenderer(this);
+    /* `attacks(team)` cache: per team, a direct-mapped table of maps indexed by position key */
+    private static final int ATTACK_CACHE_SIZE = 64;
+    private final long[][] attackCacheKeys = new long[2][ATTACK_CACHE_SIZE];
+    private final long[][] attackCacheMaps = new long[2][ATTACK_CACHE_SIZE];
+    private final boolean[][] attackCacheFilled = new boolean[2][ATTACK_CACHE_SIZE];
+    private final LegalMoveGenerator legalMoves = new LegalMoveGenerator(this);
 
     Board() {
         this.pieces = Pieces.completeSet(this);
+        refreshKey();
     }
 
     private Board(Pieces pieces) {
         this.pieces = pieces;
+        refreshKey();
+    }
+
+    /** copies `other`'s position, but not its undo stack */
+    private Board(Board other) {
+        this.pieces = Pieces.copyOf(other.pieces, this);
+        this.sideToMove = other.sideToMove;
+        this.enPassantSquare = other.enPassantSquare;
+        this.halfmoveClock = other.halfmoveClock;
+        refreshKey();
+    }
+
+    private Board(BoardSnapshot snapshot) {
+        this.pieces = Pieces.fromSnapshot(snapshot, this);
+        this.sideToMove = snapshot.sideToMove();
+        this.enPassantSquare = snapshot.enPassantSquare();
+        this.halfmoveClock = snapshot.halfmoveClock();
+        refreshKey();
     }
 
     public Board(String rawLayoutString) {
         this.pieces = Pieces.fromPrintout(rawLayoutString, this);
+        refreshKey();
     }
 
     /** for testing */
@@ -48,8 +91,30 @@ public class Board {
         return new Board(rawLayoutString);
     }
 
+    /**
+     * @return an independent board in the same position (with new `Piece`s), e.g. for a search
+     * thread to play moves on without disturbing this one. The copy starts with an empty undo
+     * stack, so moves made before the copy can't be undone on it, though it keeps the halfmove clock.
+     */
+    public Board copy() {
+        return new Board(this);
+    }
+
+    /**
+     * @return an immutable copy of this position, which can be handed to other threads and turned
+     * back into a `Board` with `BoardSnapshot.toBoard()`. Takes the same time however long the game.
+     */
+    public BoardSnapshot snapshot() {
+        return new BoardSnapshot(pieces.masks(), sideToMove, castlingRights(), enPassantSquare,
+            zobristKey, halfmoveClock);
+    }
+
+    static Board fromSnapshot(BoardSnapshot snapshot) {
+        return new Board(snapshot);
+    }
+
     public boolean canUndoMove() {
-        return !undoStack.isEmpty();
+        return historySize > 0;
     }
 
     public boolean locHasTeam(BoardLoc from, Team team) {
@@ -62,89 +127,256 @@ public class Board {
      * doesn't check whether the move is valid. for example we have to move pawns backwards.
      */
     public void forceExecute(BoardCommand command, boolean addToStack) {
-        Optional<Piece> movedPiece = getPieceAt(command.from);
-        if (!movedPiece.isPresent()) {
+        Piece movedPiece = pieces.pieceAt(command.from);
+        if (movedPiece == null) {
             // TODO replace with a logger.error(more of the relevant info)
             throw new IllegalStateException("Can't execute, no one home at " + command.from);
         }
-        Optional<Piece> killed = getPieceAt(command.to);
-        pieces.forceMove(command.from, command.to);
-        if (addToStack) undoStack.add(new StateChange(killed, command));
+        forceExecute(encode(command) & ~(Move.CASTLE | Move.EN_PASSANT), addToStack);
+    }
+
+    private void forceExecute(int move, boolean addToStack) {
+        final long priorKey = zobristKey;
+        Piece moved = pieces.pieceAt(Move.from(move));
+        Piece killed = pieces.pieceAt(Move.to(move));
+        pieces.forceMove(Move.from(move), Move.to(move));
+        if (addToStack) push(move, killed, undoState(moved, true), priorKey);
+        refreshKey();
     }
 
     /**
      * Get a list of the moves for a given team
      */
     public List<BoardCommand> getMovesFor(Team team) {
-        List<BoardCommand> moves = new ArrayList<>();
-        for (Piece p : livePiecesFor(team))
-            for (BoardLoc toLoc : p.possibleMoves())
-                moves.add(new BoardCommand(p.getLoc(), toLoc));
-        return moves;
+        MoveList moves = new MoveList();
+        getMovesFor(team, moves);
+        List<BoardCommand> commands = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++)
+            commands.add(Move.toCommand(moves.get(i)));
+        return commands;
+    }
+
+    /**
+     * Fills `moves` with every move `team` can make, packed as described in `Move`. The list is
+     * cleared first, so one list can be reused for every call.
+     */
+    public void getMovesFor(Team team, MoveList moves) {
+        moves.clear();
+        for (long own = pieces.occupied(team); own != 0; own &= own - 1) {
+            int from = Bitboards.first(own);
+            Piece p = pieces.pieceAt(from);
+            for (long m = p.moveMask(); m != 0; m &= m - 1)
+                moves.add(encode(p, from, Bitboards.first(m)));
+        }
+    }
+
+    /**
+     * Like `getMovesFor`, but only the captures (including en passant). Together with
+     * `getQuietMovesFor` this makes every move, so a search can try captures first and skip
+     * generating the rest when one of them is already good enough.
+     */
+    public void getCapturesFor(Team team, MoveList moves) {
+        getMovesFor(team, moves, true);
+    }
+
+    /** Like `getMovesFor`, but only the moves that capture nothing (including castling). */
+    public void getQuietMovesFor(Team team, MoveList moves) {
+        getMovesFor(team, moves, false);
+    }
+
+    private void getMovesFor(Team team, MoveList moves, boolean captures) {
+        moves.clear();
+        final long enemies = pieces.occupied(team.other());
+        for (long own = pieces.occupied(team); own != 0; own &= own - 1) {
+            int from = Bitboards.first(own);
+            Piece p = pieces.pieceAt(from);
+            long targets = enemies;
+            // a pawn can only move diagonally onto an empty square by capturing en passant
+            if (p.type == PieceType.PAWN) targets |= Attacks.pawn(team, from) & ~pieces.occupied();
+            long mask = p.moveMask() & (captures ? targets : ~targets);
+            for (; mask != 0; mask &= mask - 1)
+                moves.add(encode(p, from, Bitboards.first(mask)));
+        }
+    }
+
+    /**
+     * Like `getMovesFor`, but only the legal moves: none of them leaves `team`'s own king in check.
+     * Pins and checks are worked out once for the position (see `LegalMoveGenerator`), so this is
+     * much cheaper than playing each move to find out.
+     */
+    public void getLegalMovesFor(Team team, MoveList moves) {
+        legalMoves.generate(team, moves, LegalMoveGenerator.ALL);
+    }
+
+    public List<BoardCommand> getLegalMovesFor(Team team) {
+        MoveList moves = new MoveList();
+        getLegalMovesFor(team, moves);
+        List<BoardCommand> commands = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++)
+            commands.add(Move.toCommand(moves.get(i)));
+        return commands;
+    }
+
+    /** Like `getCapturesFor`, but only the legal ones. */
+    public void getLegalCapturesFor(Team team, MoveList moves) {
+        legalMoves.generate(team, moves, LegalMoveGenerator.CAPTURES);
+    }
+
+    /** Like `getQuietMovesFor`, but only the legal ones. */
+    public void getLegalQuietMovesFor(Team team, MoveList moves) {
+        legalMoves.generate(team, moves, LegalMoveGenerator.QUIETS);
+    }
+
+    /** @return true iff `move` is pseudo-legal (see `isPseudoLegal`) and doesn't leave `team`'s king in check */
+    public boolean isLegal(Team team, int move) {
+        return isPseudoLegal(team, move) && legalMoves.isLegal(team, move);
+    }
+
+    /**
+     * @return true iff `team` could make `move` (packed as described in `Move`) right now, ignoring
+     * whether it leaves their own king in check. For checking moves remembered from other positions,
+     * e.g. a transposition table's best move, before trusting them.
+     */
+    public boolean isPseudoLegal(Team team, int move) {
+        Piece p = pieces.pieceAt(Move.from(move));
+        return p != null
+            && p.team == team
+            && encode(p, Move.from(move), Move.to(move)) == move
+            && Bitboards.contains(p.moveMask(), Move.to(move));
+    }
+
+    /**
+     * @return `command` packed as described in `Move`, according to the current position
+     */
+    public int encode(BoardCommand command) {
+        Piece moved = pieces.pieceAt(command.from);
+        if (moved == null) throw new IllegalStateException("no one home at " + command.from);
+        return encode(moved, Bitboards.square(command.from), Bitboards.square(command.to));
+    }
+
+    int encode(Piece moved, int from, int to) {
+        Piece captured = pieces.pieceAt(to);
+        int flags = 0;
+        if (moved.type == PieceType.KING) {
+            if (Math.abs(Bitboards.col(from) - Bitboards.col(to)) > 1) flags |= Move.CASTLE;
+        }
+        else if (moved.type == PieceType.PAWN) {
+            if (Math.abs(Bitboards.row(from) - Bitboards.row(to)) == 2) flags |= Move.DOUBLE_PUSH;
+
+            /* Conditions for En Passant:
+             *
+             * 1. We moved a pawn 2. No one was killed in the move 3. A piece is in the appropriate
+             * piece for en-passant capture 4. That piece is also a pawn
+             */
+            if (captured == null && Bitboards.col(from) != Bitboards.col(to)) {
+                Piece wouldEnPass = pieces.pieceAt(Bitboards.square(Bitboards.row(from), Bitboards.col(to)));
+                if (wouldEnPass != null && wouldEnPass.type == PieceType.PAWN) {
+                    captured = wouldEnPass;
+                    flags |= Move.EN_PASSANT;
+                }
+            }
+        }
+        return Move.of(from, to, moved.type, captured == null ? null : captured.type, flags);
     }
 
     /**
      * @return the piece that was killed if there was one
      */
     public Optional<Piece> execute(BoardCommand command) {
-        Optional<Piece> killedPiece = getPieceAt(command.to);
-        Optional<Piece> movedPiece = getPieceAt(command.from);
-        if (!movedPiece.isPresent()) {
+        if (!pieces.isOccupied(command.from)) {
             System.err.println("No one home at " + command.from);
             return Optional.empty();
         }
-        pieces.moveFromTo(command.from, command.to);
+        int move = encode(command);
+        execute(move);
+        return Optional.ofNullable(captured[historySize - 1]);
+    }
 
-        /* Special case for castling: move the Rook too.
-         *
-         * We add the Rook to the `undoStack` first so that the King gets
-         * popped off first on undo so that we know it was a castle and
-         * that we also have to undo the Rook's movement.
-         */
-        moveRookIfCastling(command, movedPiece);
+    /**
+     * The allocation-free version of `execute(BoardCommand)`. `move` must have come from
+     * `getMovesFor` or `encode` on this position.
+     */
+    public void execute(int move) {
+        final int from = Move.from(move);
+        final int to = Move.to(move);
+        final long priorKey = zobristKey;
+        final int priorState = undoState(pieces.pieceAt(from), false);
 
         /* Special case for en passant:
          *
          * kill the appropriate pawn.
          */
-        killIfEnPassant(command, killedPiece, movedPiece);
+        Piece killedPiece = pieces.pieceAt(Move.captureSquare(move));
+        if (Move.is(move, Move.EN_PASSANT)) pieces.kill(killedPiece);
+        pieces.moveFromTo(from, to);
+
+        /* Special case for castling: move the Rook too.
+         *
+         * We add the Rook to the undo stack first so that the King gets
+         * popped off first on undo so that we know it was a castle and
+         * that we also have to undo the Rook's movement.
+         */
+        if (Move.is(move, Move.CASTLE)) moveRookForCastle(from, to);
 
-        undoStack.add(new StateChange(killedPiece, command));
+        push(move, killedPiece, priorState, priorKey);
+        halfmoveClock = resetsClock(move) ? 0 : halfmoveClock + 1;
+        sideToMove = sideToMove.other();
+        enPassantSquare = Move.is(move, Move.DOUBLE_PUSH) ? (from + to)/2 : NO_EN_PASSANT;
+        refreshKey();
+    }
 
-        return killedPiece;
+    private void moveRookForCastle(int kingFrom, int kingTo) {
+        final int row = Bitboards.row(kingFrom);
+        final int col = Bitboards.col(kingFrom);
+        boolean isLeftward = kingTo < kingFrom;
+        int rookCol = isLeftward ? col - 4 : col + 3;
+        Piece rook = BoardLoc.onBoard(row, rookCol) ? pieces.pieceAt(Bitboards.square(row, rookCol)) : null;
+        if (rook == null)
+            throw new IllegalStateException("Can't execute, no one home at " + BoardLoc.at(row, rookCol));
+        int rookFrom = Bitboards.square(row, rookCol);
+        int rookTo = isLeftward ? kingFrom - 1 : kingFrom + 1;
+        // we must "force" it because jumping over the king is an "invalid" thing to do
+        forceExecute(encode(rook, rookFrom, rookTo), true);
     }
 
-    private void moveRookIfCastling(BoardCommand command, Optional<Piece> movedPiece) {
-        boolean isCastling = movedPiece.get() instanceof Piece.King && command.distance() > 1;
-        if (isCastling) {
-            boolean isLeftward = command.from.left(2).equals(command.to);
-            BoardCommand leftRookFollowSuit = new BoardCommand(command.from.left(4), command.from.left());
-            BoardCommand rightRookFollowSuit = new BoardCommand(command.from.right(3), command.from.right());
-            // we must "force" it because jumping over the king is an "invalid" thing to do
-            if (isLeftward) forceExecute(leftRookFollowSuit, true);
-            else forceExecute(rightRookFollowSuit, true);
+    private void push(int move, Piece killedPiece, int state, long priorKey) {
+        if (historySize == history.length) {
+            history = Arrays.copyOf(history, historySize*2);
+            captured = Arrays.copyOf(captured, historySize*2);
+            undoState = Arrays.copyOf(undoState, historySize*2);
+            keyHistory = Arrays.copyOf(keyHistory, historySize*2);
         }
+        history[historySize] = move;
+        captured[historySize] = killedPiece;
+        undoState[historySize] = state;
+        keyHistory[historySize] = priorKey;
+        historySize++;
     }
 
-    /**
-     * Conditions for En Passant:
+    /* Packs what a move is about to overwrite:
      *
-     * 1. We moved a pawn 2. No one was killed in the move 3. A piece is in the appropriate piece
-     * for en-passant capture 4. That piece is also a pawn
+     * bits 0-6  en passant square + 1 (so that NO_EN_PASSANT is 0)
+     * bit  7    whether the moved piece had moved before (i.e. castling rights)
+     * bit  8    whether this was a forced move, which doesn't pass the turn (or touch the clock)
+     * bits 9-   the halfmove clock
      */
-    private void killIfEnPassant(BoardCommand command, Optional<Piece> killedPiece, Optional<Piece> movedPiece) {
-        if (!(movedPiece.get() instanceof Piece.Pawn)) return;
-        if (killedPiece.isPresent()) return;
-        Optional<Piece> wouldEnPass = getPieceAt(BoardLoc.at(command.from.row, command.to.col));
-        if (!wouldEnPass.isPresent()) return;
-        if (!(wouldEnPass.get() instanceof Piece.Pawn)) return;
-        wouldEnPass.get().kill();
+    private int undoState(Piece moved, boolean forced) {
+        return (enPassantSquare + 1)
+            | (moved.hasMoved ? 1 << 7 : 0)
+            | (forced ? 1 << 8 : 0)
+            | halfmoveClock << 9;
     }
 
     public void undoMove() {
         if (!canUndoMove()) return; // TODO is this how I want to handle this IllegalState?
-        StateChange lastChange = undoStack.pop();
-        forceExecute(lastChange.command.opposite(), false);
+        historySize--;
+        final int move = history[historySize];
+        final Piece killedPiece = captured[historySize];
+        final int state = undoState[historySize];
+        captured[historySize] = null;
+        Piece movedPiece = pieces.pieceAt(Move.to(move));
+        pieces.forceMove(Move.to(move), Move.from(move));
+        movedPiece.restoreHasMoved((state & 1 << 7) != 0);
 
         /* Restore the piece that was killed as a result of this move
          *
@@ -156,17 +388,29 @@ public class Board {
          *      -- what we SHOULD do instead is make a COPY of the killed piece, and
          *         move THAT one to the listed location.
          */
-        if (lastChange.killedPiece.isPresent()) {
-            lastChange.killedPiece.get().forceMove(lastChange.command.to);
+        if (killedPiece != null) {
+            pieces.revive(killedPiece, Move.captureSquare(move));
         }
 
         /* special case for castling, we only undid the King, now un-move Rook too */
-        Piece lastMovedPiece = getPieceAt(lastChange.command.from).get();
-        boolean wasCastle = lastMovedPiece instanceof Piece.King
-            && lastChange.command.distance() > 1;
-        if (wasCastle) {
+        if (Move.is(move, Move.CASTLE)) {
             undoMove();
         }
+
+        enPassantSquare = (state & 0x7F) - 1;
+        halfmoveClock = state >>> 9;
+        if ((state & 1 << 8) == 0) sideToMove = sideToMove.other();
+        zobristKey = keyHistory[historySize];
+    }
+
+    /**
+     * Undoes `move`, which must be the last move executed.
+     */
+    public void undoMove(int move) {
+        if (lastMoveCode() != move)
+            throw new IllegalStateException("last move was " + Move.toString(lastMoveCode())
+                + ", not " + Move.toString(move));
+        undoMove();
     }
 
     /**
@@ -193,16 +437,78 @@ public class Board {
         return pieces.livePieces();
     }
 
+    /** @return a mask of every occupied square (see `Bitboards` for the layout) */
+    public long occupied() {
+        return pieces.occupied();
+    }
+
+    /** @return a mask of the squares occupied by `team` */
+    public long occupied(Team team) {
+        return pieces.occupied(team);
+    }
+
+    /** @return a mask of the squares occupied by `team`'s pieces of the given type */
+    public long piecesOf(Team team, PieceType type) {
+        return pieces.mask(team, type);
+    }
+
+    /**
+     * @return a Zobrist key of the pawns alone: positions with the same pawns on the same squares
+     * share it, whatever else differs. For caching pawn-structure scores.
+     */
+    public long pawnKey() {
+        return pieces.pawnKey();
+    }
+
+    /**
+     * @return the total `PieceType.getValue()` of `team`'s live pieces (including the king); kept up
+     * to date as moves are made and unmade, so this is just a field read
+     */
+    public int material(Team team) {
+        return pieces.material(team);
+    }
+
+    /**
+     * @return the total middlegame `PieceSquare` bonus of `team`'s live pieces under this board's
+     * tables, in centipawns; also kept up to date
+     */
+    public int placement(Team team) {
+        return pieces.middlegame(team);
+    }
+
+    /** @return like `placement`, but from the endgame tables */
+    public int endgamePlacement(Team team) {
+        return pieces.endgame(team);
+    }
+
+    /**
+     * @return how far the game is from the endgame, from `PieceSquare.MAX_PHASE` with all the pieces
+     * on the board to 0 with only kings and pawns
+     */
+    public int phase() {
+        return pieces.phase();
+    }
+
+    /** @return the tables `placement` and `endgamePlacement` are totals of (`PieceSquare.DEFAULT` unless changed) */
+    public PieceSquare pieceSquareTables() {
+        return pieces.tables();
+    }
+
+    /** switches `placement` and `endgamePlacement` to `tables`; copies of this board keep them */
+    public void usePieceSquareTables(PieceSquare tables) {
+        if (tables != pieces.tables()) pieces.useTables(tables);
+    }
+
     public void draw() {
         boardRenderer.draw();
     }
 
     public boolean hasPieceAt(BoardLoc at) {
-        return getPieceAt(at).isPresent();
+        return pieces.isOccupied(at);
     }
 
     public boolean hasPieceAt(String str) {
-        return getPieceAt(BoardLoc.parse(str)).isPresent();
+        return hasPieceAt(BoardLoc.parse(str));
     }
 
     public boolean hasPieceAt(int row, int col) {
@@ -214,47 +520,236 @@ public class Board {
     }
 
     public StateChange lastMove() {
-        return undoStack.isEmpty() ? null : undoStack.peek();
+        return historySize == 0 ? null : new StateChange(
+            Optional.ofNullable(captured[historySize - 1]),
+            Move.toCommand(history[historySize - 1]));
+    }
+
+    /** @return the last move executed, packed as described in `Move`, or `Move.NONE` */
+    public int lastMoveCode() {
+        return historySize == 0 ? Move.NONE : history[historySize - 1];
     }
 
     public Piece lastPieceMoved() {
-        return undoStack.isEmpty() ? null : getPieceAt(undoStack.peek().command.to).get();
+        return historySize == 0 ? null : pieces.pieceAt(Move.to(history[historySize - 1]));
     }
 
+    /** @return true iff `team` has a move that doesn't leave their own king in check */
     public boolean hasLegalMoves(Team team) {
-        return livePiecesFor(team).stream().anyMatch(Piece::hasMoves);
+        return legalMoves.hasLegalMove(team);
+    }
+
+    /** @return true iff `team` is in check and has no legal move */
+    public boolean isCheckmate(Team team) {
+        return !hasLegalMoves(team) && legalMoves.inCheck();
+    }
+
+    /** @return true iff `team` is not in check but has no legal move */
+    public boolean isStalemate(Team team) {
+        return !hasLegalMoves(team) && !legalMoves.inCheck();
+    }
+
+    /**
+     * @return whether the game is over in the current position, and how. The check for legal moves
+     * also finds out whether the side to move is in check, so this costs one pass of the legal move
+     * generator (stopping at the first legal move) plus walks back through the undo stack.
+     *
+     * Repetitions can only be seen as far back as the undo stack goes, so a board made by `copy()`
+     * or from a snapshot starts counting them afresh. The fifty-move rule carries on, as the
+     * halfmove clock goes along with the position.
+     */
+    public GameStatus status() {
+        if (!hasLegalMoves(sideToMove))
+            return legalMoves.inCheck() ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        if (halfmoveClock() >= 100) return GameStatus.FIFTY_MOVES;
+        if (repetitions() >= 2) return GameStatus.REPETITION;
+        if (insufficientMaterial()) return GameStatus.INSUFFICIENT_MATERIAL;
+        return GameStatus.ONGOING;
+    }
+
+    /**
+     * @return how many plies have been played since the last capture or pawn move, including any
+     * from before the undo stack began (see `copy()`, `snapshot()` and `Fen`)
+     */
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * @return how many times the current position (same side to move, same castling and en passant
+     * rights) occurred before. Only positions since the last capture, pawn move or castle are
+     * looked at, since none from before can match.
+     */
+    public int repetitions() {
+        int count = 0;
+        int plies = 0;
+        for (int i = historySize - 1; i >= 0; i--) {
+            if (isForced(i)) continue;
+            if (resetsClock(history[i]) || Move.is(history[i], Move.CASTLE)) break;
+            // `keyHistory[i]` is the position before move `i`, which had the same side to move as
+            // now iff an even number of plies have been played since
+            if (++plies % 2 == 0 && keyHistory[i] == zobristKey) count++;
+        }
+        return count;
+    }
+
+    private boolean isForced(int historyIndex) {
+        return (undoState[historyIndex] & 1 << 8) != 0;
+    }
+
+    private static boolean resetsClock(int move) {
+        return Move.moved(move) == PieceType.PAWN || Move.isCapture(move);
+    }
+
+    /**
+     * @return true iff neither side can ever mate: no pawns, rooks or queens, and either just one
+     * minor piece between them or only bishops, all on the same color of square
+     */
+    public boolean insufficientMaterial() {
+        long knights = 0;
+        long bishops = 0;
+        for (Team team : Team.values()) {
+            if ((piecesOf(team, PieceType.PAWN) | piecesOf(team, PieceType.ROOK) | piecesOf(team, PieceType.QUEEN)) != 0)
+                return false;
+            knights |= piecesOf(team, PieceType.KNIGHT);
+            bishops |= piecesOf(team, PieceType.BISHOP);
+        }
+        if (Long.bitCount(knights | bishops) <= 1) return true;
+        return knights == 0 && ((bishops & Bitboards.DARK_SQUARES) == 0 || (bishops & ~Bitboards.DARK_SQUARES) == 0);
     }
 
     public void forceResetPiecesTo(Set<Piece> pieces) {
         this.pieces.forceResetPiecesTo(pieces);
+        refreshKey();
+    }
+
+    /** POSITION STATE **/
+
+    /** @return the team whose turn it is; starts as WHITE and flips with every `execute` */
+    public Team sideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * @return the square a pawn could capture onto en passant right now, or `NO_EN_PASSANT`
+     */
+    public int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    /**
+     * @return which castles are still possible in principle (ignoring what stands in the way), as a
+     * 4-bit mask: BLACK's `King.CASTLE_LEFT | King.CASTLE_RIGHT` in the low 2 bits, then WHITE's
+     */
+    public int castlingRights() {
+        return castlingRights(Team.BLACK) | castlingRights(Team.WHITE) << 2;
+    }
+
+    private int castlingRights(Team team) {
+        Piece.King king = pieces.king(team);
+        return king == null ? 0 : king.castlingRights();
+    }
+
+    /**
+     * @return a 64-bit hash of this position: piece placement, castling rights, en passant square and
+     * side to move (see `Zobrist`). Equal positions have equal keys, however they were reached.
+     */
+    public long zobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * The piece-placement part of the key is maintained by `Pieces` as pieces move; the rest is only
+     * a few table lookups, so it is simply recombined after every change.
+     */
+    private void refreshKey() {
+        zobristKey = pieces.key()
+            ^ Zobrist.castling(castlingRights())
+            ^ enPassantKey()
+            ^ Zobrist.sideToMove(sideToMove);
+    }
+
+    /** the en passant file only counts if the side to move actually has a pawn that can take there */
+    private long enPassantKey() {
+        if (enPassantSquare == NO_EN_PASSANT) return 0;
+        long capturers = Attacks.pawn(sideToMove.other(), enPassantSquare)
+            & pieces.mask(sideToMove, PieceType.PAWN);
+        return capturers == 0 ? 0 : Zobrist.enPassant(Bitboards.col(enPassantSquare));
+    }
+
+    /** @return the key computed from nothing but the current position; for checking `zobristKey` */
+    long zobristKeyFromScratch() {
+        long key = 0;
+        for (Piece p : pieces.livePieces())
+            key ^= Zobrist.piece(p.team, p.type, Bitboards.square(p.getLoc()));
+        return key
+            ^ Zobrist.castling(castlingRights())
+            ^ enPassantKey()
+            ^ Zobrist.sideToMove(sideToMove);
     }
 
     /**
-     * @return true iff the other team could attack this location on their next turn
+     * @return true iff the other team attacks this location, i.e. could capture a piece of `team`
+     * standing there. Looked up in `attacks`, so this is a single bit test.
      */
     public boolean isThreatened(Team team, BoardLoc loc) {
-        return pieces.livePieces(team.other()).stream()
-            .anyMatch(p -> {
-
-                    // this is "ugly" to make debugging `.possibleMoves()` easier
-                    boolean threatens = false;
-
-                /* Same logic for king would cause infinite recursion
-                 * bc finding a King's `possibleMoves` requires determining
-                 * where it `isThreatened`. This way of calculating `isThreatened`
-                 * may not be strictly correct for all cases, but it's definitely
-                 * pretty close & "close enough".
-                 */
-                    if (p instanceof Piece.King) {
-                        threatens = ((Piece.King) p).withinOneSquareOf(loc);
-                    }
-                    else {
-                        Set<BoardLoc> moveSet = p.possibleMoves();
-                        threatens = moveSet.contains(loc);
-                    }
-                    return threatens;
-                }
-            );
+        return loc.onBoard() && Bitboards.contains(attacks(team.other()), Bitboards.square(loc));
+    }
+
+    /** ATTACK MAPS **/
+
+    /**
+     * @return every square `attacker` attacks in the current position, whether empty, enemy or
+     * defended. Pawns attack diagonally forward (not where they push); sliders stop at the first
+     * piece in their way.
+     *
+     * Maps are computed in one pass over `attacker`'s pieces and cached by `zobristKey()`, in a small
+     * table so that the maps of recently seen positions survive a make/undo.
+     */
+    public long attacks(Team attacker) {
+        int index = (int) zobristKey & (ATTACK_CACHE_SIZE - 1);
+        long[] keys = attackCacheKeys[attacker.ordinal()];
+        long[] maps = attackCacheMaps[attacker.ordinal()];
+        if (keys[index] != zobristKey || !attackCacheFilled[attacker.ordinal()][index]) {
+            keys[index] = zobristKey;
+            maps[index] = attacks(attacker, pieces.occupied());
+            attackCacheFilled[attacker.ordinal()][index] = true;
+        }
+        return maps[index];
+    }
+
+    /**
+     * @return the squares `attacker` would attack if the pieces on `ignored` weren't there; e.g. a
+     * king must not step back along the line of the rook that checks it, even though it is itself
+     * blocking that line right now. Not cached.
+     */
+    long attacksIgnoring(Team attacker, long ignored) {
+        return attacks(attacker, pieces.occupied() & ~ignored);
+    }
+
+    private long attacks(Team attacker, long occupied) {
+        long attacks = 0;
+        for (long m = pieces.mask(attacker, PieceType.PAWN); m != 0; m &= m - 1)
+            attacks |= Attacks.pawn(attacker, Bitboards.first(m));
+        for (long m = pieces.mask(attacker, PieceType.KNIGHT); m != 0; m &= m - 1)
+            attacks |= Attacks.knight(Bitboards.first(m));
+        for (long m = pieces.mask(attacker, PieceType.KING); m != 0; m &= m - 1)
+            attacks |= Attacks.king(Bitboards.first(m));
+        final long queens = pieces.mask(attacker, PieceType.QUEEN);
+        for (long m = pieces.mask(attacker, PieceType.BISHOP) | queens; m != 0; m &= m - 1)
+            attacks |= Attacks.bishop(Bitboards.first(m), occupied);
+        for (long m = pieces.mask(attacker, PieceType.ROOK) | queens; m != 0; m &= m - 1)
+            attacks |= Attacks.rook(Bitboards.first(m), occupied);
+        return attacks;
+    }
+
+    /** @return the live piece at `at`, or null; for move generation, which can't afford `Optional` */
+    Piece pieceAt(BoardLoc at) {
+        return pieces.pieceAt(at);
+    }
+
+    Piece pieceAt(int square) {
+        return pieces.pieceAt(square);
     }
 
     public static class StateChange {
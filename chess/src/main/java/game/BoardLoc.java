@@ -4,6 +4,15 @@ package game;
  * Ethan Petuchowski 7/7/15
  */
 public class BoardLoc {
+    /** BoardLocs are immutable, so every on-board location is shared from here */
+    private static final BoardLoc[] ON_BOARD = new BoardLoc[64];
+
+    static {
+        for (int row = 0; row < 8; row++)
+            for (int col = 0; col < 8; col++)
+                ON_BOARD[row*8 + col] = new BoardLoc(row, col);
+    }
+
     public final int row;
     public final int col;
 
@@ -17,7 +26,7 @@ public class BoardLoc {
     }
 
     public static BoardLoc at(int row, int col) {
-        return new BoardLoc(row, col);
+        return onBoard(row, col) ? ON_BOARD[row*8 + col] : new BoardLoc(row, col);
     }
 
     private static int ctoi(char c) {
@@ -50,7 +59,7 @@ public class BoardLoc {
 
         /* input is in original index format */
         if (row >= 0 && row < 8) {
-            return new BoardLoc(row, col);
+            return BoardLoc.at(row, col);
         }
 
         /* input is in algebraic format */
@@ -60,7 +69,7 @@ public class BoardLoc {
         // so if the user said '1' they should get 7 = 8-1, or '2': 6 = 8-2
         row = 8 - ctoi(arr[1]);
 
-        return new BoardLoc(row, col);
+        return BoardLoc.at(row, col);
     }
 
     private static int standardFormCol(char c) {
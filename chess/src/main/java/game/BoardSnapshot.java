@@ -0,0 +1,124 @@
+package game;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * An immutable picture of a `Board`'s position, taken by `Board.snapshot()` and turned back into an
+ * independent `Board` by `toBoard()`.
+ *
+ * It holds no `Piece`s (which all point back at their board), only the twelve piece masks plus the
+ * rest of the position's state, so it can be taken in constant time and handed to other threads
+ * freely. `writeTo` and `readFrom` pass it between processes in a fixed `BYTES` (118) bytes.
+ *
+ * The undo stack itself is not kept, so a board made from a snapshot can't undo the moves that
+ * led to it. What the rules still need from it is kept instead: the halfmove clock, which the
+ * rebuilt board carries on counting from, so the fifty-move rule survives the trip.
+ */
+public final class BoardSnapshot {
+
+    /** bytes written by `writeTo` */
+    public static final int BYTES = 12*8 + 8 + 3*4 + 2;
+
+    /** indexed by `Team.ordinal()*PieceType.COUNT + PieceType.ordinal()` */
+    private final long[] masks;
+    private final Team sideToMove;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final long zobristKey;
+    private final int halfmoveClock;
+
+    BoardSnapshot(long[] masks, Team sideToMove, int castlingRights, int enPassantSquare,
+                  long zobristKey, int halfmoveClock) {
+        this.masks = masks;
+        this.sideToMove = sideToMove;
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.zobristKey = zobristKey;
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /** @return a new board in this position, with an empty undo stack but the same halfmove clock */
+    public Board toBoard() {
+        return Board.fromSnapshot(this);
+    }
+
+    /** GETTERS **/
+
+    public long piecesOf(Team team, PieceType type) {
+        return masks[team.ordinal()*PieceType.COUNT + type.ordinal()];
+    }
+
+    public Team sideToMove() {
+        return sideToMove;
+    }
+
+    /** @return the same 4-bit mask as `Board.castlingRights()` */
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    /** @return the same as `Board.enPassantSquare()` */
+    public int enPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public long zobristKey() {
+        return zobristKey;
+    }
+
+    /** @return the board's `halfmoveClock()` */
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /** SERIALIZATION **/
+
+    public void writeTo(DataOutput out) throws IOException {
+        for (long mask : masks)
+            out.writeLong(mask);
+        out.writeLong(zobristKey);
+        out.writeInt(castlingRights);
+        out.writeInt(enPassantSquare);
+        out.writeInt(halfmoveClock);
+        out.writeShort(sideToMove.ordinal());
+    }
+
+    public static BoardSnapshot readFrom(DataInput in) throws IOException {
+        long[] masks = new long[2*PieceType.COUNT];
+        for (int i = 0; i < masks.length; i++)
+            masks[i] = in.readLong();
+        long zobristKey = in.readLong();
+        int castlingRights = in.readInt();
+        int enPassantSquare = in.readInt();
+        int halfmoveClock = in.readInt();
+        Team sideToMove = Team.values()[in.readShort()];
+        return new BoardSnapshot(masks, sideToMove, castlingRights, enPassantSquare, zobristKey, halfmoveClock);
+    }
+
+    @Override public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        BoardSnapshot that = (BoardSnapshot) o;
+
+        if (zobristKey != that.zobristKey) return false;
+        if (castlingRights != that.castlingRights) return false;
+        if (enPassantSquare != that.enPassantSquare) return false;
+        if (halfmoveClock != that.halfmoveClock) return false;
+        if (sideToMove != that.sideToMove) return false;
+        return Arrays.equals(masks, that.masks);
+    }
+
+    @Override public int hashCode() {
+        return (int) (zobristKey ^ zobristKey >>> 32);
+    }
+
+    @Override public String toString() {
+        return "BoardSnapshot{" + sideToMove + " to move, key=" + Long.toHexString(zobristKey)
+            + ", castling=" + castlingRights + ", enPassant=" + enPassantSquare
+            + ", halfmoveClock=" + halfmoveClock + "}";
+    }
+}
@@ -32,6 +32,7 @@ public class ChessGame {
     public final Board board;
     private final Player player1;
     private final Player player2;
+    private int plies;
 
     /** CONSTRUCTORS **/
 
@@ -54,8 +55,10 @@ public class ChessGame {
 
     /** MAIN **/
 
+    /** with an argument, plays against `humanVsAlphaBetaAI` taking that many ms a move */
     public static void main(String[] args) {
-        ChessGame.humanVsGreedyAI();
+        if (args.length > 0) ChessGame.humanVsAlphaBetaAI(Long.parseLong(args[0]));
+        else ChessGame.humanVsGreedyAI();
 //        ChessGame.greedyAI_v_greedyAI();
     }
 
@@ -77,6 +80,17 @@ public class ChessGame {
         game.startInterpreter();
     }
 
+    /** against an alpha-beta AI that ponders (see `AIPlayer.setPondering`) while you think */
+    private static void humanVsAlphaBetaAI(long millis) {
+        System.out.println("Type 'exit' to quit the game.");
+        Board board = Board.completeSet();
+        Player player1 = new HumanPlayer(Team.WHITE, STDIN_scanner);
+        AIPlayer player2 = AIPlayer.newAlphaBetaAI(Team.BLACK, board, millis);
+        player2.setPondering(true);
+        ChessGame game = new ChessGame(board, player1, player2);
+        game.startInterpreter();
+    }
+
     static void greedyAI_v_greedyAI() {
         Board board = Board.completeSet();
         Player player1 = AIPlayer.newGreedyTextbookAI(Team.WHITE, board);
@@ -97,6 +111,8 @@ public class ChessGame {
         else if (command instanceof BoardCommand) {
             BoardCommand boardCommand = (BoardCommand) command;
             if (board.locHasTeam(boardCommand.from, player.getTeam())) {
+                if (board.getPieceAt(boardCommand.from).get().moveInvalid(boardCommand.to))
+                    logger.error("invalid move from: {} to: {}", boardCommand.from, boardCommand.to);
                 board.execute(boardCommand);
             }
             else logger.error("player {} cannot issue BoardCommand {}", player, boardCommand);
@@ -108,58 +124,60 @@ public class ChessGame {
 
     private void startInterpreter() {
         final int MOVE_LIMIT = 100;
-        for (int moveCounter = 0; moveCounter < MOVE_LIMIT; moveCounter++) {
+        GameStatus status = play(MOVE_LIMIT, true);
+        if (status == GameStatus.ONGOING) {
             board.draw();
-            movePlayer(player1);
-            if (won() || stalemate(player1.getTeam())) return;
+            logger.warn("Game over: STALE-MATE, move limit of {} exceeded without a winner", MOVE_LIMIT);
+        }
+        else if (status == GameStatus.CHECKMATE)
+            logger.warn(board.sideToMove() == Team.WHITE ? "YOU LOST!" : "YOU WON!");
+        else logger.warn("Game over: draw by {}", status);
+    }
 
-            board.draw();
-            movePlayer(player2);
-            if (won() || stalemate(player2.getTeam())) return;
+    /**
+     * Plays the game out without drawing the board, e.g. for batch games between AIs.
+     *
+     * @return how the game ended, or `ONGOING` if it was still going after `moveLimit` moves each
+     */
+    public GameStatus play(int moveLimit) {
+        return play(moveLimit, false);
+    }
+
+    private GameStatus play(int moveLimit, boolean interactive) {
+        for (int turn = 0; turn < 2*moveLimit; turn++) {
+            // asked afresh every turn, since a rejected command or an undo leaves it where it was
+            Player player = board.sideToMove() == player1.getTeam() ? player1 : player2;
+            if (interactive) board.draw();
+            movePlayer(player);
+            plies++;
+            GameStatus status = board.status();
+            if (status.isOver()) return status;
         }
-        board.draw();
-        logger.warn("Game over: STALE-MATE, move limit of {} exceeded without a winner", MOVE_LIMIT);
+        return GameStatus.ONGOING;
     }
 
-    private boolean stalemate(Team team) {
-        return !board.hasLegalMoves(team);
+    /** @return how many moves `play` has made */
+    public int plies() {
+        return plies;
     }
 
-    private boolean inCheckWithNoKingMoves(Team team) {
-        return board.inCheck(team)
-            && board.getKing(team).possibleMoves().isEmpty();
+    /** @return whether the game is over, and how; see `Board.status()` */
+    public GameStatus status() {
+        return board.status();
     }
 
     private boolean gameOverFor(Team team) {
-        return board.inCheck(team)
-            && board.getKing(team).possibleMoves().isEmpty()
-            && !isSaviour(team);
+        return board.isCheckmate(team);
     }
 
     /**
-     * What if another piece is able to get in-the-way of the attacker? So iterate through possible
-     * moves of each of the pieces, and check if still in "check".
+     * What if another piece is able to get in-the-way of the attacker, or take it? That is, does any
+     * piece other than the king have a legal move.
      */
     boolean isSaviour(Team team) {
-        boolean canBeSaved = false;
-        for (Piece p : board.livePiecesFor(team)) {
-            if (p instanceof Piece.King) continue;
-            for (BoardLoc possibleLoc : p.possibleMoves()) {
-                BoardCommand possibility = new BoardCommand(p.getLoc(), possibleLoc);
-                board.execute(possibility);
-
-                // it worked; there is a way out of check
-                if (!board.inCheck(team))
-                    canBeSaved = true;
-
-                // regardless, restore original game state
-                board.undoMove();
-                if (canBeSaved) {
-                    return true;
-                }
-            }
-        }
-        // all pieces exhausted, no saviour to be found
+        for (BoardCommand move : board.getLegalMovesFor(team))
+            if (!board.getPieceAt(move.from).filter(p -> p instanceof Piece.King).isPresent())
+                return true;
         return false;
     }
 
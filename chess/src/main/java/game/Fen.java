@@ -0,0 +1,135 @@
+package game;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, e.g. the starting position:
+ *
+ * <pre>rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1</pre>
+ *
+ * Ranks are listed from 8 down to 1 and files from A to H, which is exactly the order of our
+ * squares (see `Bitboards`). Castling rights map onto the king's sides: 'K'/'k' is
+ * `King.CASTLE_RIGHT` (toward the H rook) and 'Q'/'q' is `King.CASTLE_LEFT`. The halfmove clock
+ * carries over into the board (see `Board.halfmoveClock()`); the fullmove number is ignored.
+ */
+public final class Fen {
+
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if `fen` isn't a well-formed FEN string, or describes a
+     * position we can't set up: either side without exactly one king, a castling right without the
+     * king and that rook on their starting squares, or an en passant square that the last move
+     * couldn't have made
+     */
+    public static Board toBoard(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) throw new IllegalArgumentException("not a FEN string: " + fen);
+
+        long[] masks = new long[2*PieceType.COUNT];
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) throw new IllegalArgumentException("FEN needs 8 ranks: " + fen);
+        for (int row = 0; row < 8; row++) {
+            int col = 0;
+            for (char c : ranks[row].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                    continue;
+                }
+                PieceType type = PieceType.forSymbol(Character.toUpperCase(c));
+                if (type == null || col > 7) throw new IllegalArgumentException("bad rank '" + ranks[row] + "' in " + fen);
+                Team team = Character.isUpperCase(c) ? Team.WHITE : Team.BLACK;
+                masks[team.ordinal()*PieceType.COUNT + type.ordinal()] |= Bitboards.bit(Bitboards.square(row, col++));
+            }
+            if (col != 8) throw new IllegalArgumentException("bad rank '" + ranks[row] + "' in " + fen);
+        }
+        for (Team team : Team.values())
+            if (Long.bitCount(masks[team.ordinal()*PieceType.COUNT + PieceType.KING.ordinal()]) != 1)
+                throw new IllegalArgumentException(team + " needs exactly one king in " + fen);
+
+        Team sideToMove;
+        switch (fields[1]) {
+            case "w": sideToMove = Team.WHITE; break;
+            case "b": sideToMove = Team.BLACK; break;
+            default: throw new IllegalArgumentException("bad side to move in " + fen);
+        }
+
+        int castlingRights = 0;
+        if (fields.length > 2 && !fields[2].equals("-")) {
+            for (char c : fields[2].toCharArray()) {
+                int side = Character.toUpperCase(c) == 'K' ? Piece.King.CASTLE_RIGHT
+                    : Character.toUpperCase(c) == 'Q' ? Piece.King.CASTLE_LEFT
+                    : 0;
+                if (side == 0) throw new IllegalArgumentException("bad castling rights in " + fen);
+                Team team = Character.isUpperCase(c) ? Team.WHITE : Team.BLACK;
+                int homeRow = team == Team.WHITE ? 7 : 0;
+                int rookCol = side == Piece.King.CASTLE_RIGHT ? 7 : 0;
+                if (!has(masks, team, PieceType.KING, homeRow, 4) || !has(masks, team, PieceType.ROOK, homeRow, rookCol))
+                    throw new IllegalArgumentException("castling right '" + c + "' needs its king and rook at home in " + fen);
+                castlingRights |= team == Team.WHITE ? side << 2 : side;
+            }
+        }
+
+        int enPassantSquare = Board.NO_EN_PASSANT;
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            // the square the pawn skipped: rank 6 if black just moved, rank 3 if white did
+            char rank = sideToMove == Team.WHITE ? '6' : '3';
+            String square = fields[3].toLowerCase();
+            if (square.length() != 2 || square.charAt(0) < 'a' || square.charAt(0) > 'h' || square.charAt(1) != rank)
+                throw new IllegalArgumentException("bad en passant square in " + fen);
+            enPassantSquare = Bitboards.square(BoardLoc.parse(square));
+        }
+
+        int halfmoveClock = 0;
+        if (fields.length > 4) {
+            try {
+                halfmoveClock = Integer.parseInt(fields[4]);
+            }
+            catch (NumberFormatException e) {
+                halfmoveClock = -1;
+            }
+            if (halfmoveClock < 0) throw new IllegalArgumentException("bad halfmove clock in " + fen);
+        }
+
+        // the key doesn't matter here: the board works its own key out
+        return new BoardSnapshot(masks, sideToMove, castlingRights, enPassantSquare, 0, halfmoveClock).toBoard();
+    }
+
+    /** @return `board`'s position in FEN, with the fullmove number left at 1 */
+    public static String of(Board board) {
+        StringBuilder fen = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                Piece p = board.pieceAt(BoardLoc.at(row, col));
+                if (p == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) fen.append(empty);
+                empty = 0;
+                char symbol = p.type.getSymbol();
+                fen.append(p.team == Team.WHITE ? symbol : Character.toLowerCase(symbol));
+            }
+            if (empty > 0) fen.append(empty);
+            if (row < 7) fen.append('/');
+        }
+
+        fen.append(board.sideToMove() == Team.WHITE ? " w " : " b ");
+        int rights = board.castlingRights();
+        if (rights == 0) fen.append('-');
+        if ((rights & Piece.King.CASTLE_RIGHT << 2) != 0) fen.append('K');
+        if ((rights & Piece.King.CASTLE_LEFT << 2) != 0) fen.append('Q');
+        if ((rights & Piece.King.CASTLE_RIGHT) != 0) fen.append('k');
+        if ((rights & Piece.King.CASTLE_LEFT) != 0) fen.append('q');
+
+        fen.append(' ').append(board.enPassantSquare() == Board.NO_EN_PASSANT
+            ? "-" : Bitboards.loc(board.enPassantSquare()).toString().toLowerCase());
+        return fen.append(' ').append(board.halfmoveClock()).append(" 1").toString();
+    }
+
+    private static boolean has(long[] masks, Team team, PieceType type, int row, int col) {
+        return (masks[team.ordinal()*PieceType.COUNT + type.ordinal()] & Bitboards.bit(Bitboards.square(row, col))) != 0;
+    }
+}
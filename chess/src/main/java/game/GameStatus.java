@@ -0,0 +1,26 @@
+package game;
+
+/**
+ * Whether a game is over, and if so how; see `Board.status()`.
+ */
+public enum GameStatus {
+    ONGOING,
+    /** the side to move is in check and can't get out of it; they lost */
+    CHECKMATE,
+    /** the side to move isn't in check but has no legal move */
+    STALEMATE,
+    /** the same position has come up for the third time */
+    REPETITION,
+    /** fifty moves by each side without a capture or a pawn move */
+    FIFTY_MOVES,
+    /** neither side has the pieces left to mate */
+    INSUFFICIENT_MATERIAL;
+
+    public boolean isOver() {
+        return this != ONGOING;
+    }
+
+    public boolean isDraw() {
+        return isOver() && this != CHECKMATE;
+    }
+}
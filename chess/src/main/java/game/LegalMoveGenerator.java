@@ -0,0 +1,149 @@
+package game;
+
+/**
+ * Generates only legal moves, i.e. moves that don't leave the mover's own king attacked, without
+ * playing each one to find out.
+ *
+ * For each position it first works out, from the king's square outward:
+ *
+ * - the "checkers": enemy pieces attacking the king. In double check only the king may move; in
+ *   single check every other move must capture the checker or block its line.
+ * - the "pinned" pieces: our pieces that are the only thing between the king and an enemy slider.
+ *   A pinned piece may only move along the line between the two (which includes taking the slider).
+ *
+ * King moves are already legal, since `King.moveMask` keeps off every attacked square. The one move
+ * the masks can't judge is en passant, which removes two pieces from a line at once; those are
+ * rare, so they are checked by playing them.
+ *
+ * On boards without a king (e.g. in tests), every pseudo-legal move is legal.
+ */
+final class LegalMoveGenerator {
+
+    static final int ALL = 0;
+    static final int CAPTURES = 1;
+    static final int QUIETS = 2;
+
+    private final Board board;
+
+    /* worked out by `analyze` for the position at hand */
+    private Team team;
+    private int kingSquare;
+    private long checkers;
+    private long pinned;
+    /** for each pinned square, where its piece may still go */
+    private final long[] pinRays = new long[64];
+
+    LegalMoveGenerator(Board board) {
+        this.board = board;
+    }
+
+    /**
+     * Fills `moves` with `team`'s legal moves of the given kind (`ALL`, `CAPTURES` or `QUIETS`,
+     * split as in `Board.getCapturesFor`).
+     */
+    void generate(Team team, MoveList moves, int kind) {
+        moves.clear();
+        analyze(team);
+        final long enemies = board.occupied(team.other());
+        final long empty = ~board.occupied();
+        for (long own = board.occupied(team); own != 0; own &= own - 1) {
+            int from = Bitboards.first(own);
+            Piece p = board.pieceAt(from);
+            long targets = legalTargets(p, from);
+            if (kind != ALL) {
+                long captures = enemies;
+                if (p.type == PieceType.PAWN) captures |= Attacks.pawn(team, from) & empty;
+                targets &= kind == CAPTURES ? captures : ~captures;
+            }
+            for (; targets != 0; targets &= targets - 1) {
+                int move = board.encode(p, from, Bitboards.first(targets));
+                if (!Move.is(move, Move.EN_PASSANT) || enPassantIsLegal(move))
+                    moves.add(move);
+            }
+        }
+    }
+
+    /** @return true iff `team` has any legal move at all; stops at the first one found */
+    boolean hasLegalMove(Team team) {
+        analyze(team);
+        for (long own = board.occupied(team); own != 0; own &= own - 1) {
+            int from = Bitboards.first(own);
+            Piece p = board.pieceAt(from);
+            for (long targets = legalTargets(p, from); targets != 0; targets &= targets - 1) {
+                int move = board.encode(p, from, Bitboards.first(targets));
+                if (!Move.is(move, Move.EN_PASSANT) || enPassantIsLegal(move))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return true iff the team last given to `generate`, `hasLegalMove` or `isLegal` is in check */
+    boolean inCheck() {
+        return checkers != 0;
+    }
+
+    /** @return true iff `move`, which must be pseudo-legal for `team`, is also legal */
+    boolean isLegal(Team team, int move) {
+        analyze(team);
+        if (Move.is(move, Move.EN_PASSANT)) return enPassantIsLegal(move);
+        int from = Move.from(move);
+        return Bitboards.contains(legalTargets(board.pieceAt(from), from), Move.to(move));
+    }
+
+    private int kingSquare(Team team) {
+        long kings = board.piecesOf(team, PieceType.KING);
+        return kings == 0 ? -1 : Bitboards.first(kings);
+    }
+
+    private void analyze(Team team) {
+        this.team = team;
+        kingSquare = kingSquare(team);
+        checkers = 0;
+        pinned = 0;
+        if (kingSquare < 0) return;
+
+        final Team enemy = team.other();
+        final long occupied = board.occupied();
+        final long straight = board.piecesOf(enemy, PieceType.ROOK) | board.piecesOf(enemy, PieceType.QUEEN);
+        final long diagonal = board.piecesOf(enemy, PieceType.BISHOP) | board.piecesOf(enemy, PieceType.QUEEN);
+        checkers = Attacks.pawn(team, kingSquare) & board.piecesOf(enemy, PieceType.PAWN)
+            | Attacks.knight(kingSquare) & board.piecesOf(enemy, PieceType.KNIGHT)
+            | Attacks.bishop(kingSquare, occupied) & diagonal
+            | Attacks.rook(kingSquare, occupied) & straight;
+
+        // sliders that would hit the king on an empty board; if exactly one of our pieces is in the
+        // way (and nothing else), it is pinned
+        long snipers = Attacks.rook(kingSquare, 0) & straight | Attacks.bishop(kingSquare, 0) & diagonal;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            int sniper = Bitboards.first(snipers);
+            long line = Attacks.between(kingSquare, sniper);
+            long blockers = line & occupied;
+            if (Long.bitCount(blockers) == 1 && (blockers & board.occupied(team)) != 0) {
+                pinned |= blockers;
+                pinRays[Bitboards.first(blockers)] = line | Bitboards.bit(sniper);
+            }
+        }
+    }
+
+    /** @return where `p` (on `from`) may legally go, plus any en passant capture, which isn't judged here */
+    private long legalTargets(Piece p, int from) {
+        long moves = p.moveMask();
+        if (p.type == PieceType.KING || kingSquare < 0) return moves;
+        if (Long.bitCount(checkers) > 1) return 0;
+
+        long enPassant = p.type == PieceType.PAWN ? moves & Attacks.pawn(team, from) & ~board.occupied() : 0;
+        long allowed = -1L;
+        if (checkers != 0) allowed = checkers | Attacks.between(kingSquare, Bitboards.first(checkers));
+        if (Bitboards.contains(pinned, from)) allowed &= pinRays[from];
+        return moves & allowed | enPassant;
+    }
+
+    private boolean enPassantIsLegal(int move) {
+        if (kingSquare < 0) return true;
+        board.execute(move);
+        boolean legal = !board.isThreatened(team, Bitboards.loc(kingSquare));
+        board.undoMove(move);
+        return legal;
+    }
+}
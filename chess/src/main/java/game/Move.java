@@ -0,0 +1,84 @@
+package game;
+
+import game.cmd.BoardCommand;
+
+/**
+ * A move packed into a single `int`, so that search never has to allocate one.
+ *
+ * <pre>
+ * bits  0- 5  from square (see `Bitboards` for the layout)
+ * bits  6-11  to square
+ * bits 12-14  moved piece: `PieceType.ordinal()`
+ * bits 15-17  captured piece: `PieceType.ordinal() + 1`, or 0 if nothing is captured
+ * bits 18-20  flags: `CASTLE`, `EN_PASSANT`, `DOUBLE_PUSH`
+ * </pre>
+ *
+ * `NONE` (0) is never a real move, since its from and to squares are the same.
+ *
+ * `BoardCommand` remains the type that players and the UI deal in; use `Board.encode` and
+ * `Move.toCommand` to cross between the two.
+ */
+public final class Move {
+
+    public static final int NONE = 0;
+
+    public static final int CASTLE = 1 << 18;
+    public static final int EN_PASSANT = 1 << 19;
+    public static final int DOUBLE_PUSH = 1 << 20;
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private Move() {
+    }
+
+    public static int of(int from, int to, PieceType moved, PieceType captured, int flags) {
+        return from
+            | to << 6
+            | moved.ordinal() << 12
+            | (captured == null ? 0 : captured.ordinal() + 1) << 15
+            | flags;
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return move >>> 6 & 63;
+    }
+
+    public static PieceType moved(int move) {
+        return TYPES[move >>> 12 & 7];
+    }
+
+    /** @return the type of the captured piece, or null if this move doesn't capture */
+    public static PieceType captured(int move) {
+        int captured = move >>> 15 & 7;
+        return captured == 0 ? null : TYPES[captured - 1];
+    }
+
+    public static boolean isCapture(int move) {
+        return (move >>> 15 & 7) != 0;
+    }
+
+    public static boolean is(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * @return where the captured piece was standing; only differs from `to` for en passant
+     */
+    public static int captureSquare(int move) {
+        return is(move, EN_PASSANT)
+            ? Bitboards.square(Bitboards.row(from(move)), Bitboards.col(to(move)))
+            : to(move);
+    }
+
+    public static BoardCommand toCommand(int move) {
+        return new BoardCommand(Bitboards.loc(from(move)), Bitboards.loc(to(move)));
+    }
+
+    public static String toString(int move) {
+        return move == NONE ? "NONE" : toCommand(move).toString();
+    }
+}
@@ -0,0 +1,53 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * A growable buffer of packed moves (see `Move`). Meant to be allocated once and refilled with
+ * `clear()` each time it is used, e.g. one per search depth.
+ */
+public final class MoveList {
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(64);
+    }
+
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int move) {
+        if (size == moves.length) moves = Arrays.copyOf(moves, size*2);
+        moves[size++] = move;
+    }
+
+    public int get(int i) {
+        return moves[i];
+    }
+
+    public void set(int i, int move) {
+        moves[i] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++)
+            if (moves[i] == move)
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,197 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * "Performance test": counts the positions reachable in exactly `depth` moves, by making and
+ * unmaking every move with `Board.getMovesFor`/`execute`/`undoMove`. Comparing the counts with
+ * published ones is the standard check that a move generator is right, and timing it measures how
+ * fast it is.
+ *
+ * Moves that leave the mover's own king in check are not counted, as in the published numbers.
+ * `count` finds them by playing every pseudo-legal move; `countLegal` uses
+ * `Board.getLegalMovesFor` instead, and at the last ply just counts the moves without playing them.
+ * The two must always agree, which makes this a check of the legal move generator too.
+ *
+ * usage:
+ *
+ * <pre>
+ * Perft                            check every `REFERENCES` position to its `checkedDepth`, both ways
+ * Perft [legal] depth [fen]        count from `fen` (default: the starting position)
+ * Perft divide depth [fen]         the same, broken down by first move
+ * </pre>
+ */
+public final class Perft {
+
+    /**
+     * Positions with published counts (https://www.chessprogramming.org/Perft_Results).
+     *
+     * Our rules differ from standard chess in having no promotion, so the published counts only hold
+     * to `checkedDepth`: the depth before a pawn could first reach the last rank (0 when one can right
+     * away).
+     */
+    public static final List<Reference> REFERENCES = new ArrayList<>();
+
+    static {
+        REFERENCES.add(new Reference("start", Fen.START, 5,
+            20, 400, 8_902, 197_281, 4_865_609, 119_060_324));
+        REFERENCES.add(new Reference("kiwipete",
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 3,
+            48, 2_039, 97_862, 4_085_603));
+        REFERENCES.add(new Reference("position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 5,
+            14, 191, 2_812, 43_238, 674_624));
+        REFERENCES.add(new Reference("position 4",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 1,
+            6, 264, 9_467, 422_333));
+        REFERENCES.add(new Reference("position 5",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 0,
+            44, 1_486, 62_379, 2_103_487));
+    }
+
+    private final Board board;
+    private final MoveList[] moveLists;
+
+    public Perft(Board board, int maxDepth) {
+        this.board = board;
+        moveLists = new MoveList[Math.max(maxDepth, 1)];
+        for (int i = 0; i < moveLists.length; i++)
+            moveLists[i] = new MoveList();
+    }
+
+    /** @return the number of positions reachable from the board's position in exactly `depth` moves */
+    public long count(int depth) {
+        return depth == 0 ? 1 : count(depth, 0);
+    }
+
+    private long count(int depth, int ply) {
+        final Team side = board.sideToMove();
+        MoveList moves = moveLists[ply];
+        board.getMovesFor(side, moves);
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.execute(move);
+            if (!board.inCheck(side))
+                nodes += depth == 1 ? 1 : count(depth - 1, ply + 1);
+            board.undoMove(move);
+        }
+        return nodes;
+    }
+
+    /** @return the same as `count`, using the legal move generator */
+    public long countLegal(int depth) {
+        return depth == 0 ? 1 : countLegal(depth, 0);
+    }
+
+    private long countLegal(int depth, int ply) {
+        MoveList moves = moveLists[ply];
+        board.getLegalMovesFor(board.sideToMove(), moves);
+        if (depth == 1) return moves.size();
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.execute(move);
+            nodes += countLegal(depth - 1, ply + 1);
+            board.undoMove(move);
+        }
+        return nodes;
+    }
+
+    /** @return `count(depth - 1)` after each legal first move, keyed by the move */
+    public Map<String, Long> divide(int depth) {
+        if (depth < 1) throw new IllegalArgumentException("can't divide depth " + depth);
+        final Team side = board.sideToMove();
+        MoveList moves = new MoveList();
+        board.getMovesFor(side, moves);
+        Map<String, Long> ret = new LinkedHashMap<>();
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            board.execute(move);
+            if (!board.inCheck(side))
+                ret.put(Move.toString(move), count(depth - 1));
+            board.undoMove(move);
+        }
+        return ret;
+    }
+
+    /** A position and its published perft counts. */
+    public static final class Reference {
+        public final String name;
+        public final String fen;
+        /** how deep our rules still agree with `counts` (see `REFERENCES`) */
+        public final int checkedDepth;
+        /** `counts[d - 1]` is the count at depth `d` */
+        private final long[] counts;
+
+        Reference(String name, String fen, int checkedDepth, long... counts) {
+            this.name = name;
+            this.fen = fen;
+            this.checkedDepth = checkedDepth;
+            this.counts = counts;
+        }
+
+        public long expected(int depth) {
+            return counts[depth - 1];
+        }
+
+        public int maxDepth() {
+            return counts.length;
+        }
+    }
+
+    /** MAIN **/
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            checkReferences();
+            return;
+        }
+        boolean divide = args[0].equals("divide");
+        boolean legal = args[0].equals("legal");
+        int i = divide || legal ? 1 : 0;
+        int depth = Integer.parseInt(args[i++]);
+        StringBuilder fen = new StringBuilder();
+        for (; i < args.length; i++) fen.append(args[i]).append(' ');
+        Board board = Fen.toBoard(fen.length() == 0 ? Fen.START : fen.toString());
+        Perft perft = new Perft(board, depth);
+
+        long start = System.nanoTime();
+        long nodes;
+        if (divide) {
+            nodes = 0;
+            for (Map.Entry<String, Long> entry : perft.divide(depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+        }
+        else nodes = legal ? perft.countLegal(depth) : perft.count(depth);
+        report("depth " + depth, nodes, System.nanoTime() - start);
+    }
+
+    private static void checkReferences() {
+        boolean allPassed = true;
+        for (Reference ref : REFERENCES) {
+            for (int depth = 1; depth <= ref.checkedDepth; depth++) {
+                for (boolean legal : new boolean[]{false, true}) {
+                    Perft perft = new Perft(Fen.toBoard(ref.fen), depth);
+                    long start = System.nanoTime();
+                    long nodes = legal ? perft.countLegal(depth) : perft.count(depth);
+                    long elapsed = System.nanoTime() - start;
+                    boolean passed = nodes == ref.expected(depth);
+                    allPassed &= passed;
+                    report(String.format("%-10s depth %d %-6s %s", ref.name, depth, legal ? "legal" : "pseudo",
+                        passed ? "ok  " : "FAIL (expected " + ref.expected(depth) + ")"), nodes, elapsed);
+                }
+            }
+        }
+        if (!allPassed) System.exit(1);
+    }
+
+    private static void report(String what, long nodes, long nanos) {
+        System.out.printf("%s: %,d nodes in %,d ms (%,.0f nodes/sec)%n",
+            what, nodes, nanos/1_000_000, nodes/Math.max(nanos/1e9, 1e-9));
+    }
+}
@@ -1,9 +1,7 @@
 package game;
 
-import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Ethan Petuchowski 7/7/15
@@ -12,6 +10,8 @@ import java.util.stream.Collectors;
 public abstract class Piece {
 
     public final Team team;
+    /** null only for `ZERO_VALUE` */
+    public final PieceType type;
     /** FIELDS */
     final Board board;
     private final char symbol;
@@ -25,12 +25,35 @@ public abstract class Piece {
         this.board = board;
         this.alive = true;
         this.symbol = symbol;
+        this.type = PieceType.forSymbol(symbol);
     }
 
     public Piece(Board board, BoardLoc loc, char symbol) {
         this(board, loc, loc.getTerritory(), symbol);
     }
 
+    /**
+     * @return a new, unmoved piece of `type`, belonging to `board`
+     */
+    static Piece create(PieceType type, Board board, BoardLoc loc, Team team) {
+        switch (type) {
+            case PAWN: return new Pawn(board, loc, team);
+            case KNIGHT: return new Knight(board, loc, team);
+            case BISHOP: return new Bishop(board, loc, team);
+            case ROOK: return new Rook(board, loc, team);
+            case QUEEN: return new Queen(board, loc, team);
+            case KING: return new King(board, loc, team);
+        }
+        throw new IllegalArgumentException("unknown piece type " + type);
+    }
+
+    /** @return a piece just like this one (including `hasMoved`), but belonging to `board` */
+    Piece copyFor(Board board) {
+        Piece copy = create(type, board, loc, team);
+        copy.hasMoved = hasMoved;
+        return copy;
+    }
+
     /**
      * NB: equals/hashcode do not depend on board-id-equality. I.e. each piece may come from a
      * different board, and they can still be equal.
@@ -58,11 +81,18 @@ public abstract class Piece {
     }
 
     /**
-     * must be implemented by each type of chess piece
      * @return set of legal locations for this piece to move to on this turn, given which team its
      * own and where other pieces are on the board
      */
-    public abstract Set<BoardLoc> possibleMoves();
+    public Set<BoardLoc> possibleMoves() {
+        return Bitboards.toLocs(moveMask());
+    }
+
+    /**
+     * must be implemented by each type of chess piece
+     * @return the same squares as `possibleMoves()`, as a mask (see `Bitboards` for the layout)
+     */
+    public abstract long moveMask();
 
     /** SHORT UTILITIES */
 
@@ -85,40 +115,38 @@ public abstract class Piece {
         return alive;
     }
 
-    public void kill() {
+    /** only `Pieces` may call this, so that its masks stay in sync with the piece */
+    void kill() {
         alive = false;
     }
 
     public boolean hasMoves() {
-        return !possibleMoves().isEmpty();
+        return moveMask() != 0;
     }
 
     public boolean moveInvalid(BoardLoc to) {
         return !to.onBoard()
-            || !possibleMoves().contains(to);
+            || !Bitboards.contains(moveMask(), Bitboards.square(to));
     }
 
-    /**
-     * For a King, this may also be called by the King's special `isThreatened` method, which is
-     * called before every turn (all the way up at `startInterpreter`) to see if the game is over.
-     */
     public void setHasMoved() {
         hasMoved = true;
     }
 
-    boolean addLogic(int row, int col, Set<BoardLoc> locSet) {
-        return addLogic(BoardLoc.at(row, col), locSet);
+    /** used while undoing a move, to put back whatever `hasMoved` was before it */
+    void restoreHasMoved(boolean hasMoved) {
+        this.hasMoved = hasMoved;
     }
 
     /**
      * Places this piece on the board at the given location, replacing the current location the
      * piece is set to be at. If the piece was dead, it will be restored to full health by moving it
      * onto the board.
+     *
+     * Only `Pieces` may call this, so that its masks stay in sync with the piece. Whether the move
+     * is valid is checked where player input comes in (see `ChessGame.movePlayer`), not here.
      */
-    public void move(BoardLoc to) {
-        if (moveInvalid(to)) {
-            System.err.println("invalid move from: " + getLoc() + " to: " + to);
-        }
+    void move(BoardLoc to) {
         alive = true;
         setHasMoved();
         setLoc(to);
@@ -133,8 +161,7 @@ public abstract class Piece {
             throw new IllegalStateException(to + " is not on the board.");
         }
         alive = true;
-        // TODO how am I going to UNSET `hasMoved`?
-        // maybe capture it in the move state?
+        // `hasMoved` is captured in the board's undo state and restored from there
         setLoc(to);
     }
 
@@ -146,81 +173,13 @@ public abstract class Piece {
             : BoardLoc.at(loc.row - spaces, loc.col);
     }
 
-    /* used by queen and rook */
-    @SuppressWarnings("StatementWithEmptyBody") Set<BoardLoc> straightMoves() {
-        Set<BoardLoc> locSet = new HashSet<>();
-        for (int r = getLoc().row - 1; r >= 0 && addLogic(r, getLoc().col, locSet); r--) ;
-        for (int r = getLoc().row + 1; r < 8 && addLogic(r, getLoc().col, locSet); r++) ;
-        for (int c = getLoc().col - 1; c >= 0 && addLogic(getLoc().row, c, locSet); c--) ;
-        for (int c = getLoc().col + 1; c < 8 && addLogic(getLoc().row, c, locSet); c++) ;
-        return locSet;
-    }
-
-    /* used by queen and bishop */
-    Set<BoardLoc> diagonalMoves() {
-        Set<BoardLoc> locSet = new HashSet<>();
-        int r, c;
-
-        r = getLoc().row - 1;
-        c = getLoc().col - 1;
-        while (r >= 0 && c >= 0 && addLogic(r, c, locSet)) {
-            r--;
-            c--;
-        }
-
-        r = getLoc().row + 1;
-        c = getLoc().col + 1;
-        while (r < 8 && c < 8 && addLogic(r, c, locSet)) {
-            r++;
-            c++;
-        }
-
-        r = getLoc().row + 1;
-        c = getLoc().col - 1;
-        while (r < 8 && c >= 0 && addLogic(r, c, locSet)) {
-            r++;
-            c--;
-        }
-
-        r = getLoc().row - 1;
-        c = getLoc().col + 1;
-        while (r >= 0 && c < 8 && addLogic(r, c, locSet)) {
-            r--;
-            c++;
-        }
-
-        return locSet;
+    int square() {
+        return Bitboards.square(loc);
     }
 
-    /**
-     * Adds the location if it is either empty or the opponent's piece is occupying it
-     * @return true iff the slot was empty
-     *
-     * The point is that for a piece who can move up to N tiles in some direction, will continue
-     * iterating through the tiles until addLogic == true. This way it is simple to use in a
-     * for-loop, e.g. see the `straightMoves` function above.
-     */
-    public boolean addLogic(BoardLoc loc, Set<BoardLoc> locSet) {
-        if (!loc.onBoard()) return true;
-
-        /* don't add my loc to the move-set
-         * relied on by the King's `possibleMoves` implementation
-         */
-        if (loc.equals(getLoc())) return true;
-
-        /* If someone is currently occupying the spot, only add it as a possibleMove
-         * if that guy is on the OTHER team
-         */
-        Optional<Piece> currentOccupant = board.getPieceAt(loc);
-        if (currentOccupant.isPresent()) {
-            boolean isEnemy = !currentOccupant.get().team.equals(team);
-            if (isEnemy) locSet.add(loc);
-            return false;
-        }
-
-        // location is empty
-        locSet.add(loc);
-        return true;
+    /** @return `attacks` minus the squares occupied by this piece's own team */
+    long notOwnTeam(long attacks) {
+        return attacks & ~board.occupied(team);
     }
 
     public boolean hasEnemyPiece(BoardLoc loc) {
@@ -237,8 +196,8 @@ public abstract class Piece {
             super(board, loc, team, 'R');
         }
 
-        @Override public Set<BoardLoc> possibleMoves() {
-            return straightMoves();
+        @Override public long moveMask() {
+            return notOwnTeam(Attacks.rook(square(), board.occupied()));
         }
     }
 
@@ -257,45 +216,39 @@ public abstract class Piece {
                 : getLoc().row == 6;
         }
 
-        @Override public Set<BoardLoc> possibleMoves() {
-            Set<BoardLoc> locSet = new HashSet<>();
+        @Override public long moveMask() {
+            long moves = 0;
+            final long empty = ~board.occupied();
 
             // the normal forward move(s)
             final BoardLoc f1 = forward(1);
-            final BoardLoc f2 = forward(2);
-            if (!hasEnemyPiece(f1)) {
-                if (addLogic(f1, locSet) && inHomeRow() && !hasEnemyPiece(f2)) {
-                    addLogic(f2, locSet);
-                }
+            if (f1.onBoard() && Bitboards.contains(empty, Bitboards.square(f1))) {
+                moves |= Bitboards.bit(Bitboards.square(f1));
+                final BoardLoc f2 = forward(2);
+                if (inHomeRow() && Bitboards.contains(empty, Bitboards.square(f2)))
+                    moves |= Bitboards.bit(Bitboards.square(f2));
             }
 
             // the normal capture scenarios
-            BoardLoc upLeft = f1.left();
-            if (hasEnemyPiece(upLeft))
-                addLogic(upLeft, locSet);
-            BoardLoc upRight = f1.right();
-            if (hasEnemyPiece(upRight))
-                addLogic(upRight, locSet);
+            final long captureSquares = Attacks.pawn(team, square());
+            moves |= captureSquares & board.occupied(team.other());
 
             // "EN PASSANT" (in passing) capture
             // https://www.wikiwand.com/en/En_passant
             // when their pawn moves out two paces, but your pawn WOULD have been
             // able to capture it had it only moved one, you can pretend like it
             // only went one square and capture it where it WOULD have been.
-            if (canEnPassant(upLeft)) addLogic(upLeft, locSet);
-            if (canEnPassant(upRight)) addLogic(upRight, locSet);
+            for (long m = notOwnTeam(captureSquares); m != 0; m &= m - 1)
+                if (canEnPassant(Bitboards.loc(Bitboards.first(m))))
+                    moves |= m & -m;
 
-            return locSet;
+            return moves;
         }
 
         boolean canEnPassant(BoardLoc loc) {
             return (team != Team.WHITE || loc.row == 2)
                 && (team != Team.BLACK || loc.row == 5)
-                && board.lastMove() != null
-                && board.lastPieceMoved() != null // this happened while I was playing, not sure how
-                && board.lastPieceMoved() instanceof Pawn
-                && board.lastMove().command.distance() == 2
-                && board.lastMove().command.to.col == loc.col;
+                && board.enPassantSquare() == Bitboards.square(loc);
         }
     }
 
@@ -308,15 +261,8 @@ public abstract class Piece {
             super(board, loc, team, 'N');
         }
 
-        @Override public Set<BoardLoc> possibleMoves() {
-            Set<BoardLoc> locSet = new HashSet<>();
-            int[] rows = {getLoc().row - 2, getLoc().row + 2};
-            int[] rowV = {getLoc().col - 1, getLoc().col + 1};
-            int[] cols = {getLoc().col - 2, getLoc().col + 2};
-            int[] colV = {getLoc().row - 1, getLoc().row + 1};
-            for (int r : rows) for (int v : rowV) addLogic(r, v, locSet);
-            for (int c : cols) for (int v : colV) addLogic(v, c, locSet);
-            return locSet;
+        @Override public long moveMask() {
+            return notOwnTeam(Attacks.knight(square()));
         }
     }
 
@@ -329,8 +275,8 @@ public abstract class Piece {
             super(board, loc, team, 'B');
         }
 
-        @Override public Set<BoardLoc> possibleMoves() {
-            return diagonalMoves();
+        @Override public long moveMask() {
+            return notOwnTeam(Attacks.bishop(square(), board.occupied()));
         }
     }
 
@@ -343,26 +289,35 @@ public abstract class Piece {
             super(board, loc, team, 'K');
         }
 
-        @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-        private static boolean castleValid(boolean sideIsEmpty, Optional<Piece> rookOpt) {
-            return sideIsEmpty
-                && rookOpt.isPresent()
-                && rookOpt.get() instanceof Rook
-                && !rookOpt.get().hasMoved;
-        }
-
-        @Override public Set<BoardLoc> possibleMoves() {
-            Set<BoardLoc> locSet = new HashSet<>();
-            for (int i = -1; i <= 1; i++)
-                for (int j = -1; j <= 1; j++)
-                    addLogic(getLoc().row + i, getLoc().col + j, locSet);
+        static final int CASTLE_LEFT = 1;
+        static final int CASTLE_RIGHT = 2;
 
-            locSet = locSet.stream()
-                .filter(loc -> !board.isThreatened(team, loc))
-                .collect(Collectors.toSet());
+        private static boolean unmovedRook(Piece rook) {
+            return rook instanceof Rook
+                && !rook.hasMoved;
+        }
 
-            /* add castling possibilities iff they are available */
-            if (!hasMoved) {
+        /**
+         * @return the sides (`CASTLE_LEFT | CASTLE_RIGHT`) this king could castle toward if the way
+         * were clear, i.e. neither it nor that side's rook have moved
+         */
+        int castlingRights() {
+            if (hasMoved || !isAlive()) return 0;
+            int rights = 0;
+            if (unmovedRook(board.pieceAt(getLoc().left(4)))) rights |= CASTLE_LEFT;
+            if (unmovedRook(board.pieceAt(getLoc().right(3)))) rights |= CASTLE_RIGHT;
+            return rights;
+        }
+
+        @Override public long moveMask() {
+            // look "through" this king, so that it can't retreat along the line of a checking slider
+            long attacked = board.attacksIgnoring(team.other(), Bitboards.bit(square()));
+            long moves = notOwnTeam(Attacks.king(square())) & ~attacked;
+
+            /* add castling possibilities iff they are available (you can't castle out of, through,
+             * or into check) */
+            final int rights = castlingRights();
+            if (rights != 0 && !isThreatened()) {
                 boolean leftSideEmpty = true;
                 for (int i = 1; i <= 3; i++) {
                     if (board.hasPieceAt(getLoc().left(i))) {
@@ -370,9 +325,9 @@ public abstract class Piece {
                         break;
                     }
                 }
-                Optional<Piece> leftRook = board.getPieceAt(getLoc().left(4));
-                if (castleValid(leftSideEmpty, leftRook)) {
-                    addLogic(getLoc().left(2), locSet);
+                if (leftSideEmpty && (rights & CASTLE_LEFT) != 0
+                    && safe(getLoc().left(1), attacked) && safe(getLoc().left(2), attacked)) {
+                    moves |= Bitboards.bit(Bitboards.square(getLoc().left(2)));
                 }
 
                 boolean rightSideEmpty = true;
@@ -382,21 +337,21 @@ public abstract class Piece {
                         break;
                     }
                 }
-                Optional<Piece> rightRook = board.getPieceAt(getLoc().right(3));
-                if (castleValid(rightSideEmpty, rightRook)) {
-                    addLogic(getLoc().right(2), locSet);
+                if (rightSideEmpty && (rights & CASTLE_RIGHT) != 0
+                    && safe(getLoc().right(1), attacked) && safe(getLoc().right(2), attacked)) {
+                    moves |= Bitboards.bit(Bitboards.square(getLoc().right(2)));
                 }
             }
 
-            return locSet;
+            return moves;
         }
 
         boolean isThreatened() {
-            boolean threatened = board.isThreatened(team, getLoc());
-            if (threatened) {
-                setHasMoved();
-            }
-            return threatened;
+            return board.isThreatened(team, getLoc());
+        }
+
+        private static boolean safe(BoardLoc loc, long attacked) {
+            return !Bitboards.contains(attacked, Bitboards.square(loc));
         }
 
         /**
@@ -404,13 +359,9 @@ public abstract class Piece {
          * Piece
          */
         public boolean withinOneSquareOf(BoardLoc loc) {
-            final int row = getLoc().row;
-            final int col = getLoc().col;
-            for (int i = -1; i <= 1; i++)
-                for (int j = -1; j <= 1; j++)
-                    if (BoardLoc.at(row + i, col + j).equals(loc))
-                        return true;
-            return false;
+            if (!loc.onBoard()) return false;
+            final int square = Bitboards.square(loc);
+            return square == square() || Bitboards.contains(Attacks.king(square()), square);
         }
     }
 
@@ -423,10 +374,8 @@ public abstract class Piece {
             super(board, loc, team, 'Q');
         }
 
-        @Override public Set<BoardLoc> possibleMoves() {
-            Set<BoardLoc> moves = diagonalMoves();
-            moves.addAll(straightMoves()); // java is *very* ugly.
-            return moves;
+        @Override public long moveMask() {
+            return notOwnTeam(Attacks.queen(square(), board.occupied()));
         }
     }
 
@@ -434,7 +383,7 @@ public abstract class Piece {
         static ZERO_VALUE instance = new ZERO_VALUE();
 
         private ZERO_VALUE() {
-            super(null, null, '0');
+            super(null, null, null, '0');
         }
 
         public static ZERO_VALUE instance() {
@@ -444,5 +393,9 @@ public abstract class Piece {
         @Override public Set<BoardLoc> possibleMoves() {
             return null;
         }
+
+        @Override public long moveMask() {
+            return 0;
+        }
     }
 }
@@ -0,0 +1,155 @@
+package game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Piece-square tables: a bonus (or penalty), in centipawns, for each kind of piece on each square,
+ * e.g. knights are worth more in the center and pawns more as they advance. There is one set of
+ * tables for the middlegame and one for the endgame; an evaluator blends the two according to the
+ * game's `phase` (see `Strategy.BoardEvaluator.EvaluateByTaperedTables`).
+ *
+ * `Pieces` keeps each team's totals under its board's tables up to date as pieces are placed and
+ * lifted, so reading them costs nothing (see `Board.placement`).
+ *
+ * Tables are read from a text file (see `resources/game/piece-square.txt`, which `DEFAULT` is read
+ * from, for the format). They are written from white's side with rank 8 on top, which is exactly
+ * our square order (see `Bitboards`); black's squares are mirrored top to bottom.
+ */
+public final class PieceSquare {
+
+    /** the phase with every piece but the pawns still on the board; see `phaseWeight` */
+    public static final int MAX_PHASE = 24;
+
+    public static final PieceSquare DEFAULT = fromResource("piece-square.txt");
+
+    /** indexed by team, piece type, square */
+    private final int[][][] middlegame = new int[2][PieceType.COUNT][64];
+    private final int[][][] endgame = new int[2][PieceType.COUNT][64];
+
+    private PieceSquare() {
+    }
+
+    /** @return the square on the same file, as many ranks from the other side */
+    static int mirror(int square) {
+        return square ^ 56;
+    }
+
+    /** @return the bonus, in centipawns, for a `team` piece of the given type on `square` in the middlegame */
+    public int middlegame(Team team, PieceType type, int square) {
+        return middlegame[team.ordinal()][type.ordinal()][square];
+    }
+
+    /** @return the same as `middlegame`, for the endgame */
+    public int endgame(Team team, PieceType type, int square) {
+        return endgame[team.ordinal()][type.ordinal()][square];
+    }
+
+    /**
+     * @return how much a piece of this type counts toward the game's phase, which runs from
+     * `MAX_PHASE` at the start down to 0 when only kings and pawns are left
+     */
+    public static int phaseWeight(PieceType type) {
+        switch (type) {
+            case KNIGHT:
+            case BISHOP: return 1;
+            case ROOK: return 2;
+            case QUEEN: return 4;
+            default: return 0;
+        }
+    }
+
+    /** LOADING **/
+
+    /**
+     * @throws IOException if `file` can't be read
+     * @throws IllegalArgumentException if it isn't a well-formed table file
+     */
+    public static PieceSquare load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader, file.toString());
+        }
+    }
+
+    private static PieceSquare fromResource(String name) {
+        InputStream in = PieceSquare.class.getResourceAsStream(name);
+        if (in == null) throw new IllegalStateException("missing resource " + name);
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return read(reader, name);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("couldn't read " + name, e);
+        }
+    }
+
+    /**
+     * @param source names the file in error messages
+     * @throws IllegalArgumentException if it isn't a well-formed table file, with all twelve tables
+     */
+    public static PieceSquare read(Reader reader, String source) throws IOException {
+        PieceSquare ret = new PieceSquare();
+        boolean[][] seen = new boolean[2][PieceType.COUNT];
+        BufferedReader lines = new BufferedReader(reader);
+        int[] table = null;
+        int filled = 0;
+        int lineNumber = 0;
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String where = source + ":" + lineNumber;
+
+            if (table == null || filled == 64) {
+                String[] header = line.split("\\s+");
+                if (header.length != 2) throw new IllegalArgumentException(where + ": expected '<type> <phase>', not '" + line + "'");
+                PieceType type;
+                try {
+                    type = PieceType.valueOf(header[0]);
+                }
+                catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(where + ": no such piece type " + header[0]);
+                }
+                int phase = header[1].equals("middlegame") ? 0 : header[1].equals("endgame") ? 1 : -1;
+                if (phase < 0) throw new IllegalArgumentException(where + ": phase must be middlegame or endgame");
+                if (seen[phase][type.ordinal()]) throw new IllegalArgumentException(where + ": " + line + " given twice");
+                seen[phase][type.ordinal()] = true;
+                table = (phase == 0 ? ret.middlegame : ret.endgame)[Team.WHITE.ordinal()][type.ordinal()];
+                filled = 0;
+                continue;
+            }
+
+            for (String number : line.split("\\s+")) {
+                if (filled == 64) throw new IllegalArgumentException(where + ": more than 64 numbers in a table");
+                try {
+                    table[filled++] = Integer.parseInt(number);
+                }
+                catch (NumberFormatException e) {
+                    throw new IllegalArgumentException(where + ": not a number: " + number);
+                }
+            }
+        }
+        if (table != null && filled < 64)
+            throw new IllegalArgumentException(source + ": the last table has only " + filled + " numbers");
+        for (int phase = 0; phase < 2; phase++)
+            for (PieceType type : PieceType.values())
+                if (!seen[phase][type.ordinal()])
+                    throw new IllegalArgumentException(source + ": no " + (phase == 0 ? "middlegame" : "endgame") + " table for " + type);
+
+        for (int[][][] tables : new int[][][][]{ret.middlegame, ret.endgame}) {
+            for (PieceType type : PieceType.values()) {
+                int[] white = tables[Team.WHITE.ordinal()][type.ordinal()];
+                int[] black = tables[Team.BLACK.ordinal()][type.ordinal()];
+                for (int square = 0; square < 64; square++)
+                    black[square] = white[mirror(square)];
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,38 @@
+package game;
+
+/**
+ * The six kinds of chess piece. The ordinal is used to index the per-type masks kept by `Pieces`.
+ */
+public enum PieceType {
+    PAWN('P', 1), KNIGHT('N', 3), BISHOP('B', 3), ROOK('R', 5), QUEEN('Q', 9), KING('K', 100);
+
+    public static final int COUNT = values().length;
+
+    private final char symbol;
+    private final int value;
+
+    PieceType(char symbol, int value) {
+        this.symbol = symbol;
+        this.value = value;
+    }
+
+    public char getSymbol() {
+        return symbol;
+    }
+
+    /** @return the textbook value of a piece of this type, in pawns (see `Board.material`) */
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * @return the type drawn with the given symbol, or null if it isn't a real chess piece (e.g.
+     * `Piece.ZERO_VALUE`)
+     */
+    public static PieceType forSymbol(char symbol) {
+        for (PieceType type : values())
+            if (type.symbol == symbol)
+                return type;
+        return null;
+    }
+}
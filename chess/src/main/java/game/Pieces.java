@@ -2,20 +2,48 @@ package game;
 
 import ui.CommandLineRenderer;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Ethan Petuchowski 7/7/15
+ *
+ * The position itself. Every live piece is recorded three ways, which are always kept in sync:
+ *
+ * 1. `squares` -- the piece sitting on each square (a "mailbox"), for O(1) `getPieceAt`
+ * 2. `typeMasks` -- one bitboard per team and piece type
+ * 3. `teamMasks` and `occupied` -- which squares each team, and anyone, occupies
+ *
+ * It also keeps the piece-placement part of the position's Zobrist key (see `Zobrist`) and the
+ * same for the pawns alone, each
+ * team's material and piece-square totals (see `PieceSquare`), and the game's phase, all updated
+ * every time a piece is placed or lifted.
+ *
+ * All changes to a piece's location or liveness go through this class so that the masks never
+ * drift from the `Piece` objects.
  */
 public class Pieces {
 
     @SuppressWarnings("unused")
     private final Board board;
-    private Set<Piece> pieces = new HashSet<>();
+    private final Piece[] squares = new Piece[64];
+    private final long[][] typeMasks = new long[2][PieceType.COUNT];
+    private final long[] teamMasks = new long[2];
+    private final Piece.King[] kings = new Piece.King[2];
+    private long occupied;
+    private long key;
+    private long pawnKey;
+    private PieceSquare tables = PieceSquare.DEFAULT;
+    /** indexed by `Team.ordinal()`: the sum of `PieceType.getValue()`, and of `tables`' bonuses */
+    private final int[] material = new int[2];
+    private final int[] middlegame = new int[2];
+    private final int[] endgame = new int[2];
+    /** the sum of `PieceSquare.phaseWeight` */
+    private int phase;
 
     /** for testing */
     private Pieces() {
@@ -29,7 +57,7 @@ public class Pieces {
     private Pieces(String rawBoardString, Board board) {
         this(board);
         for (Piece piece : CommandLineRenderer.parseBoard(rawBoardString, board)) {
-            pieces.add(piece);
+            add(piece);
         }
     }
 
@@ -49,6 +77,49 @@ public class Pieces {
         return ret;
     }
 
+    /** @return a copy of the live pieces in `other`, each one a new `Piece` belonging to `board` */
+    static Pieces copyOf(Pieces other, Board board) {
+        Pieces ret = new Pieces(board);
+        ret.tables = other.tables;
+        for (long m = other.occupied; m != 0; m &= m - 1)
+            ret.add(other.squares[Bitboards.first(m)].copyFor(board));
+        return ret;
+    }
+
+    /**
+     * @return the pieces of `snapshot`, belonging to `board`. Every king and rook counts as having
+     * moved unless the snapshot's castling rights say otherwise.
+     */
+    static Pieces fromSnapshot(BoardSnapshot snapshot, Board board) {
+        Pieces ret = new Pieces(board);
+        for (Team team : Team.values()) {
+            for (PieceType type : PieceType.values()) {
+                for (long m = snapshot.piecesOf(team, type); m != 0; m &= m - 1) {
+                    Piece piece = Piece.create(type, board, Bitboards.loc(Bitboards.first(m)), team);
+                    if (type == PieceType.KING || type == PieceType.ROOK) piece.setHasMoved();
+                    ret.add(piece);
+                }
+            }
+            int rights = snapshot.castlingRights() >> 2*team.ordinal() & 3;
+            Piece.King king = ret.kings[team.ordinal()];
+            if (king == null || rights == 0) continue;
+            king.restoreHasMoved(false);
+            if ((rights & Piece.King.CASTLE_LEFT) != 0)
+                castlingRook(ret, king, king.getLoc().left(4)).restoreHasMoved(false);
+            if ((rights & Piece.King.CASTLE_RIGHT) != 0)
+                castlingRook(ret, king, king.getLoc().right(3)).restoreHasMoved(false);
+        }
+        return ret;
+    }
+
+    /** @throws IllegalArgumentException if `king` has no rook of its own at `loc` to castle with */
+    private static Piece castlingRook(Pieces pieces, Piece.King king, BoardLoc loc) {
+        Piece rook = loc.onBoard() ? pieces.pieceAt(loc) : null;
+        if (rook == null || rook.type != PieceType.ROOK || rook.team != king.team)
+            throw new IllegalArgumentException("castling rights for " + king.team + " with no rook at " + loc);
+        return rook;
+    }
+
     /** for testing */
     public static Pieces none() {
         return new Pieces();
@@ -60,82 +131,246 @@ public class Pieces {
 
     private void placeQueens(Board board) {
         BoardLoc whiteQueenLoc = BoardLoc.at(0, 3);
-        pieces.add(new Piece.Queen(board, whiteQueenLoc));
-        pieces.add(new Piece.Queen(board, whiteQueenLoc.mirror()));
+        add(new Piece.Queen(board, whiteQueenLoc));
+        add(new Piece.Queen(board, whiteQueenLoc.mirror()));
     }
 
     private void placeKings(Board board) {
         BoardLoc whiteKingLoc = BoardLoc.at(0, 4);
-        pieces.add(new Piece.King(board, whiteKingLoc));
-        pieces.add(new Piece.King(board, whiteKingLoc.mirror()));
+        add(new Piece.King(board, whiteKingLoc));
+        add(new Piece.King(board, whiteKingLoc.mirror()));
     }
 
     private void placeBishops(Board board) {
         for (BoardLoc loc : BoardLoc.corners(0, 2))
-            pieces.add(new Piece.Bishop(board, loc));
+            add(new Piece.Bishop(board, loc));
     }
 
     private void placeKnights(Board board) {
         for (BoardLoc loc : BoardLoc.corners(0, 1))
-            pieces.add(new Piece.Knight(board, loc));
+            add(new Piece.Knight(board, loc));
     }
 
     private void placeRooks(Board board) {
         for (BoardLoc loc : BoardLoc.corners(0, 0))
-            pieces.add(new Piece.Rook(board, loc));
+            add(new Piece.Rook(board, loc));
     }
 
     private void placePawns(Board board) {
         for (int i = 0; i < 4; i++)
             for (BoardLoc loc : BoardLoc.corners(1, i))
-                pieces.add(new Piece.Pawn(board, loc));
+                add(new Piece.Pawn(board, loc));
+    }
+
+    /** MASK BOOKKEEPING **/
+
+    private void add(Piece piece) {
+        if (piece instanceof Piece.King && kings[piece.team.ordinal()] == null)
+            kings[piece.team.ordinal()] = (Piece.King) piece;
+        if (piece.isAlive())
+            place(piece, Bitboards.square(piece.getLoc()));
+    }
+
+    private void place(Piece piece, int square) {
+        long bit = Bitboards.bit(square);
+        squares[square] = piece;
+        typeMasks[piece.team.ordinal()][piece.type.ordinal()] |= bit;
+        teamMasks[piece.team.ordinal()] |= bit;
+        occupied |= bit;
+        key ^= Zobrist.piece(piece.team, piece.type, square);
+        if (piece.type == PieceType.PAWN) pawnKey ^= Zobrist.piece(piece.team, piece.type, square);
+        material[piece.team.ordinal()] += piece.type.getValue();
+        middlegame[piece.team.ordinal()] += tables.middlegame(piece.team, piece.type, square);
+        endgame[piece.team.ordinal()] += tables.endgame(piece.team, piece.type, square);
+        phase += PieceSquare.phaseWeight(piece.type);
     }
 
+    private void lift(Piece piece, int square) {
+        long bit = ~Bitboards.bit(square);
+        squares[square] = null;
+        typeMasks[piece.team.ordinal()][piece.type.ordinal()] &= bit;
+        teamMasks[piece.team.ordinal()] &= bit;
+        occupied &= bit;
+        key ^= Zobrist.piece(piece.team, piece.type, square);
+        if (piece.type == PieceType.PAWN) pawnKey ^= Zobrist.piece(piece.team, piece.type, square);
+        material[piece.team.ordinal()] -= piece.type.getValue();
+        middlegame[piece.team.ordinal()] -= tables.middlegame(piece.team, piece.type, square);
+        endgame[piece.team.ordinal()] -= tables.endgame(piece.team, piece.type, square);
+        phase -= PieceSquare.phaseWeight(piece.type);
+    }
+
+    /** QUERIES **/
+
     public List<Piece> livePieces() {
-        return pieces.stream()
-            .filter(Piece::isAlive)
-            .collect(Collectors.toList());
+        return piecesOn(occupied);
     }
 
     public List<Piece> livePieces(Team team) {
-        return pieces.stream()
-            .filter(p -> p.team == team && p.isAlive())
-            .collect(Collectors.toList());
+        return piecesOn(teamMasks[team.ordinal()]);
+    }
+
+    private List<Piece> piecesOn(long mask) {
+        List<Piece> ret = new ArrayList<>(Long.bitCount(mask));
+        for (; mask != 0; mask &= mask - 1)
+            ret.add(squares[Bitboards.first(mask)]);
+        return ret;
     }
 
     public Optional<Piece> getPieceAt(BoardLoc at) {
-        return pieces.stream()
-            .filter(p ->
-                p.isAlive() && p.getLoc().equals(at)
-            ).findAny();
+        return Optional.ofNullable(pieceAt(at));
+    }
+
+    /** @return the live piece at `at`, or null if it's empty or off the board */
+    Piece pieceAt(BoardLoc at) {
+        return at.onBoard() ? squares[Bitboards.square(at)] : null;
     }
 
+    Piece pieceAt(int square) {
+        return squares[square];
+    }
+
+    public boolean isOccupied(BoardLoc at) {
+        return at.onBoard() && Bitboards.contains(occupied, Bitboards.square(at));
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public long occupied(Team team) {
+        return teamMasks[team.ordinal()];
+    }
+
+    public long mask(Team team, PieceType type) {
+        return typeMasks[team.ordinal()][type.ordinal()];
+    }
+
+    public Piece.King getKing(Team team) {
+        Piece.King king = kings[team.ordinal()];
+        if (king == null) throw new NoSuchElementException("there is no " + team + " king");
+        return king;
+    }
+
+    /** @return `team`'s king, or null if it never had one (e.g. on test boards) */
+    Piece.King king(Team team) {
+        return kings[team.ordinal()];
+    }
+
+    /** @return every `mask(team, type)`, in the order `BoardSnapshot` keeps them */
+    long[] masks() {
+        long[] ret = new long[2*PieceType.COUNT];
+        System.arraycopy(typeMasks[0], 0, ret, 0, PieceType.COUNT);
+        System.arraycopy(typeMasks[1], 0, ret, PieceType.COUNT, PieceType.COUNT);
+        return ret;
+    }
+
+    /** @return the XOR of `Zobrist.piece` for every live piece */
+    long key() {
+        return key;
+    }
+
+    /** @return the XOR of `Zobrist.piece` for every live pawn */
+    long pawnKey() {
+        return pawnKey;
+    }
+
+    int material(Team team) {
+        return material[team.ordinal()];
+    }
+
+    int middlegame(Team team) {
+        return middlegame[team.ordinal()];
+    }
+
+    int endgame(Team team) {
+        return endgame[team.ordinal()];
+    }
+
+    int phase() {
+        return phase;
+    }
+
+    PieceSquare tables() {
+        return tables;
+    }
+
+    /** switches to `tables`, working the piece-square totals out again from scratch */
+    void useTables(PieceSquare tables) {
+        this.tables = tables;
+        Arrays.fill(middlegame, 0);
+        Arrays.fill(endgame, 0);
+        for (long m = occupied; m != 0; m &= m - 1) {
+            int square = Bitboards.first(m);
+            Piece piece = squares[square];
+            middlegame[piece.team.ordinal()] += tables.middlegame(piece.team, piece.type, square);
+            endgame[piece.team.ordinal()] += tables.endgame(piece.team, piece.type, square);
+        }
+    }
+
+    /** MUTATORS **/
+
     /**
      * doesn't check whether the move is valid for that piece. Used for undo.
+     *
+     * Anyone already standing on `to` is killed, so that a square never holds two live pieces.
      */
     public void forceMove(BoardLoc from, BoardLoc to) {
-        getPieceAt(from).get().forceMove(to);
+        forceMove(Bitboards.square(from), Bitboards.square(to));
+    }
+
+    void forceMove(int from, int to) {
+        Piece piece = squares[from];
+        if (piece == null)
+            throw new NoSuchElementException("there is no piece at " + Bitboards.loc(from));
+        Piece occupant = squares[to];
+        if (occupant != null) kill(occupant);
+        lift(piece, from);
+        piece.forceMove(Bitboards.loc(to));
+        place(piece, to);
     }
 
     public void moveFromTo(BoardLoc from, BoardLoc to) {
-        Optional<Piece> f = getPieceAt(from);
-        if (f.isPresent()) {
-            Optional<Piece> t = getPieceAt(to);
-            if (t.isPresent())
-                t.get().kill();
-            f.get().move(to);
+        moveFromTo(Bitboards.square(from), Bitboards.square(to));
+    }
+
+    void moveFromTo(int from, int to) {
+        Piece f = squares[from];
+        if (f != null) {
+            Piece t = squares[to];
+            if (t != null)
+                kill(t);
+            lift(f, from);
+            f.move(Bitboards.loc(to));
+            place(f, to);
         }
-        else throw new RuntimeException("there is no piece at " + from);
+        else throw new RuntimeException("there is no piece at " + Bitboards.loc(from));
     }
 
-    public Piece.King getKing(Team team) {
-        return (Piece.King) pieces
-            .stream()
-            .filter(p -> p.team == team && p instanceof Piece.King)
-            .findFirst().get();
+    void kill(Piece piece) {
+        if (!piece.isAlive()) return;
+        lift(piece, Bitboards.square(piece.getLoc()));
+        piece.kill();
+    }
+
+    /** brings a dead piece back onto the board at `square`; used when undoing its capture */
+    void revive(Piece piece, int square) {
+        if (piece.isAlive()) lift(piece, Bitboards.square(piece.getLoc()));
+        piece.forceMove(Bitboards.loc(square));
+        place(piece, square);
     }
 
     public void forceResetPiecesTo(Set<Piece> pieces) {
-        this.pieces = pieces;
+        Arrays.fill(squares, null);
+        for (long[] masks : typeMasks) Arrays.fill(masks, 0);
+        Arrays.fill(teamMasks, 0);
+        Arrays.fill(kings, null);
+        occupied = 0;
+        key = 0;
+        pawnKey = 0;
+        Arrays.fill(material, 0);
+        Arrays.fill(middlegame, 0);
+        Arrays.fill(endgame, 0);
+        phase = 0;
+        for (Piece piece : pieces) add(piece);
     }
 }
@@ -0,0 +1,70 @@
+package game;
+
+/**
+ * The random numbers that make up a position's Zobrist key (see `Board.zobristKey`).
+ *
+ * A position's key is the XOR of one number per (team, piece type, square) that is occupied, one per
+ * combination of castling rights, one for the en passant file (if a capture is possible there), and
+ * one more if it is black's turn. Making a move only has to XOR the few numbers that changed.
+ *
+ * The numbers come from a fixed seed so that keys are stable across runs and can be stored (e.g. in
+ * an opening book).
+ */
+public final class Zobrist {
+
+    /** indexed by team, piece type, square */
+    private static final long[][][] PIECES = new long[2][PieceType.COUNT][64];
+    /** indexed by the 4-bit castling rights mask from `Board.castlingRights` */
+    private static final long[] CASTLING = new long[16];
+    /** indexed by the column of the en passant square */
+    private static final long[] EN_PASSANT = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        SplitMix64 random = new SplitMix64(0x2F0B3A1C5E7D9F11L);
+        for (long[][] team : PIECES)
+            for (long[] type : team)
+                for (int square = 0; square < 64; square++)
+                    type[square] = random.next();
+        for (int i = 0; i < CASTLING.length; i++) CASTLING[i] = random.next();
+        for (int i = 0; i < EN_PASSANT.length; i++) EN_PASSANT[i] = random.next();
+        BLACK_TO_MOVE = random.next();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(Team team, PieceType type, int square) {
+        return PIECES[team.ordinal()][type.ordinal()][square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    public static long enPassant(int col) {
+        return EN_PASSANT[col];
+    }
+
+    public static long sideToMove(Team team) {
+        return team == Team.BLACK ? BLACK_TO_MOVE : 0;
+    }
+
+    /**
+     * Small, fast generator with good 64-bit output; `java.util.Random` only has 48 bits of state.
+     */
+    static final class SplitMix64 {
+        private long state;
+
+        SplitMix64(long seed) {
+            this.state = seed;
+        }
+
+        long next() {
+            long z = (state += 0x9E3779B97F4A7C15L);
+            z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
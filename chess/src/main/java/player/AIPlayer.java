@@ -1,20 +1,45 @@
 package player;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import player.strategies.AlphaBetaAI;
 import player.strategies.GreedyAI;
+import player.strategies.LazySmpAI;
+import player.strategies.SearchLimits;
 import player.strategies.Strategy;
+import player.strategies.TranspositionTable;
 import game.cmd.AbstractCommand;
 import game.Board;
+import game.GameStatus;
+import game.Move;
 import game.cmd.BoardCommand;
 import game.Team;
 
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * Ethan Petuchowski 7/8/15
  */
 public class AIPlayer implements Player {
 
+    private static final Logger logger = LoggerFactory.getLogger(AIPlayer.class);
+
     private final Team team;
     private final Board board;
     private Strategy strategy;
+    private OpeningBook book;
+    private Random bookRandom;
+
+    /** PONDERING **/
+
+    private ExecutorService ponderThread;
+    private Ponder ponder;
+    private int ponderHits;
+    private int ponderMisses;
 
     public AIPlayer(Team team, Board board, Strategy strategy) {
         this.board = board;
@@ -27,6 +52,16 @@ public class AIPlayer implements Player {
         return new AIPlayer(team, board, evaluator);
     }
 
+    /** an alpha-beta searcher that spends no more than `millis` on each move */
+    public static AIPlayer newAlphaBetaAI(Team team, Board board, long millis) {
+        return new AIPlayer(team, board, new AlphaBetaAI(board, team, SearchLimits.millis(millis)));
+    }
+
+    /** like `newAlphaBetaAI`, but searching on `threads` threads at once */
+    public static AIPlayer newLazySmpAI(Team team, Board board, long millis, int threads) {
+        return new AIPlayer(team, board, new LazySmpAI(board, team, SearchLimits.millis(millis), threads));
+    }
+
     /**
      * in which the opponent makes his move
      *
@@ -40,8 +75,170 @@ public class AIPlayer implements Player {
         return team;
     }
 
+    /**
+     * Play from `book` while the position is in it, choosing among its moves with `random`, and
+     * only then ask the strategy. A null book turns this off.
+     */
+    public void setOpeningBook(OpeningBook book, Random random) {
+        this.book = book;
+        this.bookRandom = random;
+    }
+
+    public OpeningBook getOpeningBook() {
+        return book;
+    }
+
+    /**
+     * Whether to think on the opponent's time. After each move, the player guesses the reply its
+     * transposition table expects, and searches the position after that reply on a background
+     * thread (on a copy of the board, sharing the table and the evaluator) while the opponent thinks.
+     *
+     * If the opponent plays the expected reply, the next `move()` is answered from that search,
+     * waiting for the rest of it if it hasn't finished yet. Otherwise the search is stopped, and
+     * has at least left the table warm. Only `AlphaBetaAI` and `LazySmpAI` strategies can ponder.
+     */
+    public void setPondering(boolean pondering) {
+        if (pondering && !(strategy instanceof AlphaBetaAI || strategy instanceof LazySmpAI))
+            throw new IllegalArgumentException("can't ponder with a " + strategy.getClass().getSimpleName());
+        if (pondering && ponderThread == null) {
+            ponderThread = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "ponder-" + team);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        else if (!pondering && ponderThread != null) {
+            if (ponder != null) ponder.cancel();
+            ponder = null;
+            ponderThread.shutdown();
+            ponderThread = null;
+        }
+    }
+
+    public boolean isPondering() {
+        return ponderThread != null;
+    }
+
+    /** @return how many times the opponent played the reply that was pondered */
+    public int getPonderHits() {
+        return ponderHits;
+    }
+
+    /** @return how many times the opponent played something else */
+    public int getPonderMisses() {
+        return ponderMisses;
+    }
+
     private BoardCommand chooseMove() {
-        return strategy.chooseMove();
+        BoardCommand move = finishPondering();
+        if (book != null) {
+            BoardCommand bookMove = book.pick(board, bookRandom);
+            if (bookMove != null) move = bookMove;
+        }
+        if (move == null) move = strategy.chooseMove();
+        if (isPondering()) startPondering(move);
+        return move;
+    }
+
+    /** a search of the position after the reply we expect to `move` */
+    private static final class Ponder {
+        final long expectedKey;
+        final Future<BoardCommand> search;
+        final Runnable stop;
+
+        Ponder(long expectedKey, Future<BoardCommand> search, Runnable stop) {
+            this.expectedKey = expectedKey;
+            this.search = search;
+            this.stop = stop;
+        }
+
+        /** @return the search's move, or null if it failed */
+        BoardCommand await() {
+            try {
+                return search.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            catch (ExecutionException e) {
+                logger.warn("ponder search failed", e.getCause());
+                return null;
+            }
+        }
+
+        /** Stops the search and waits for it to let go of the table. */
+        void cancel() {
+            stop.run();
+            await();
+        }
+    }
+
+    /** Starts searching the position after `move` and the reply the table expects to it, if any. */
+    private void startPondering(BoardCommand move) {
+        TranspositionTable table = strategy instanceof AlphaBetaAI ? ((AlphaBetaAI) strategy).getTable()
+            : ((LazySmpAI) strategy).getTable();
+        Board after = board.copy();
+        after.execute(after.encode(move));
+        long entry = table.probe(after.zobristKey());
+        if (entry == TranspositionTable.MISS) return;
+        int reply = TranspositionTable.move(entry);
+        if (!after.isLegal(team.other(), reply)) return;
+        after.execute(reply);
+        if (after.status() != GameStatus.ONGOING) return;
+
+        final Strategy search;
+        final Runnable stop;
+        if (strategy instanceof AlphaBetaAI) {
+            AlphaBetaAI main = (AlphaBetaAI) strategy;
+            AlphaBetaAI ponderSearch = new AlphaBetaAI(after, team, main.getLimits(), table);
+            // the main search is idle until the ponder search is done with it
+            ponderSearch.setEvaluator(main.getEvaluator());
+            ponderSearch.setQuiescence(main.usesQuiescence());
+            ponderSearch.setBitbases(main.getBitbases());
+            search = ponderSearch;
+            stop = ponderSearch::stop;
+        }
+        else {
+            LazySmpAI main = (LazySmpAI) strategy;
+            final LazySmpAI ponderSearch = new LazySmpAI(after, team, main.getLimits(), main.getThreads(), table);
+            ponderSearch.setQuiescence(main.usesQuiescence());
+            ponderSearch.setBitbases(main.getBitbases());
+            search = () -> {
+                try {
+                    return ponderSearch.chooseMove();
+                }
+                finally {
+                    ponderSearch.shutdown();
+                }
+            };
+            stop = ponderSearch::stop;
+        }
+        logger.debug("{} pondering {} after {}", team, Move.toString(reply), move);
+        ponder = new Ponder(after.zobristKey(), ponderThread.submit(search::chooseMove), stop);
+    }
+
+    /**
+     * @return the pondered search's move if the opponent played the expected reply, or null (having
+     * stopped the search) if they didn't, or there was no search
+     */
+    private BoardCommand finishPondering() {
+        Ponder finished = ponder;
+        ponder = null;
+        if (finished == null) return null;
+        if (board.zobristKey() != finished.expectedKey) {
+            finished.cancel();
+            ponderMisses++;
+            return null;
+        }
+        BoardCommand move = finished.await();
+        if (move == null || !board.locHasTeam(move.from, team) || !board.isLegal(team, board.encode(move))) return null;
+        ponderHits++;
+        return move;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
     }
 
     public Board getBoard() {
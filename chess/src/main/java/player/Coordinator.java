@@ -0,0 +1,366 @@
+package player;
+
+import game.Fen;
+import game.cmd.BoardCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hands `Job`s out to `Worker` processes over TCP and collects their results, so that a batch of
+ * games or analyses can use every core of a machine (or, later, several machines) without all of
+ * them sharing one JVM's heap and garbage collector.
+ *
+ * `spawnWorkers(n)` starts `n` worker JVMs on this machine, with the same `java` and class path as
+ * this one, and starts another in place of any that exits before the coordinator is closed. Workers
+ * started elsewhere (see `Worker`) can connect too. Each connection gets one job at a time; if it
+ * closes before the result comes back, the job goes back on the queue for another worker, up to
+ * `maxAttempts` times, after which it's reported as failed rather than being allowed to take down
+ * every worker in turn.
+ *
+ * usage:
+ *
+ * <pre>
+ * Coordinator [-workers N] [-port N] [-bind addr] [-games N] [-moves N] [-opening-plies N]
+ *             [-fens file] [-analyze] [-out file] [-verbose] engine engine ...
+ * </pre>
+ *
+ * Engines are as for `Tournament`. By default every pair of engines plays `games` games (swapping
+ * colors) from the opening positions `Tournament` uses, or from the FENs in a file in turn. With
+ * `-analyze`, each engine instead picks a move in each of the file's positions. Results go to
+ * stdout (or `-out`) as CSV, in the order they come in. `-workers 0` starts no local workers, and
+ * just waits for remote ones on `-port`.
+ */
+public final class Coordinator implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Coordinator.class);
+
+    /** FIELDS **/
+
+    private final ServerSocket server;
+    private final BlockingQueue<Job> pending = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Job.Result> results = new LinkedBlockingQueue<>();
+    private final Map<Integer, Integer> attempts = new ConcurrentHashMap<>();
+    private final Set<Process> processes = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connections = new AtomicInteger();
+    /** local worker slots still being kept filled */
+    private final AtomicInteger supervised = new AtomicInteger();
+    private final List<String> workerJvmOptions = new ArrayList<>();
+    private int maxAttempts = 3;
+    private int maxRestarts = 10;
+    private volatile boolean closed;
+
+    /**
+     * Starts listening for workers.
+     *
+     * @param port 0 for any free port (see `getPort`)
+     * @param bind the address to listen on; the loopback address keeps other machines out
+     */
+    public Coordinator(int port, InetAddress bind) throws IOException {
+        server = new ServerSocket(port, 50, bind);
+        Thread acceptor = new Thread(this::accept, "coordinator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /** how many times a job may lose its worker before it's given up on */
+    public void setMaxAttempts(int maxAttempts) {
+        if (maxAttempts < 1) throw new IllegalArgumentException("need at least 1 attempt, not " + maxAttempts);
+        this.maxAttempts = maxAttempts;
+    }
+
+    /** how many times each local worker may be restarted */
+    public void setMaxRestarts(int maxRestarts) {
+        this.maxRestarts = maxRestarts;
+    }
+
+    /** options for local worker JVMs, e.g. "-Xmx256m"; only affects workers spawned after this */
+    public void setWorkerJvmOptions(List<String> options) {
+        workerJvmOptions.clear();
+        workerJvmOptions.addAll(options);
+    }
+
+    /** Starts `n` worker JVMs on this machine, each of which is restarted if it dies. */
+    public void spawnWorkers(int n) {
+        for (int i = 0; i < n; i++) {
+            final int slot = i;
+            supervised.incrementAndGet();
+            Thread supervisor = new Thread(() -> supervise(slot), "coordinator-worker-" + slot);
+            supervisor.setDaemon(true);
+            supervisor.start();
+        }
+    }
+
+    private void supervise(int slot) {
+        try {
+            for (int restarts = 0; !closed; restarts++) {
+                if (restarts > maxRestarts) {
+                    logger.error("worker {} has died {} times; giving up on it", slot, restarts);
+                    return;
+                }
+                List<String> command = new ArrayList<>();
+                command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+                command.addAll(workerJvmOptions);
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(Worker.class.getName());
+                command.add(InetAddress.getLoopbackAddress().getHostAddress());
+                command.add(Integer.toString(getPort()));
+                Process process = new ProcessBuilder(command).inheritIO().start();
+                processes.add(process);
+                int status = process.waitFor();
+                processes.remove(process);
+                if (!closed) logger.warn("worker {} exited with status {}; restarting it", slot, status);
+            }
+        }
+        catch (IOException e) {
+            logger.error("couldn't start worker {}", slot, e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            supervised.decrementAndGet();
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                final Socket socket = server.accept();
+                Thread connection = new Thread(() -> serve(socket), "coordinator-" + socket.getRemoteSocketAddress());
+                connection.setDaemon(true);
+                connection.start();
+            }
+            catch (IOException e) {
+                if (!closed) logger.error("stopped accepting workers", e);
+                return;
+            }
+        }
+    }
+
+    /** Feeds jobs to one worker until the coordinator is closed or the worker goes away. */
+    private void serve(Socket socket) {
+        Job job = null;
+        connections.incrementAndGet();
+        try (Socket s = socket) {
+            s.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8));
+            String hello = in.readLine();
+            if (!Worker.HELLO.equals(hello)) {
+                logger.warn("dropping {}: it said {}, not {}", s.getRemoteSocketAddress(), hello, Worker.HELLO);
+                return;
+            }
+            while (!closed) {
+                job = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (job == null) continue;
+                out.print(job.toLine() + "\n");
+                out.flush();
+                String line = in.readLine();
+                if (line == null) throw new SocketException("worker closed the connection");
+                final Job sent = job;
+                results.add(Job.Result.parse(line, id -> id == sent.id ? sent : null));
+                job = null;
+            }
+            out.print(Worker.BYE + "\n");
+            out.flush();
+        }
+        catch (IOException | IllegalArgumentException e) {
+            logger.warn("lost worker {}: {}", socket.getRemoteSocketAddress(), e.toString());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            connections.decrementAndGet();
+            if (job != null) retry(job);
+        }
+    }
+
+    private void retry(Job job) {
+        int tries = attempts.merge(job.id, 1, Integer::sum);
+        if (tries >= maxAttempts) results.add(Job.Result.failed(job, "lost its worker " + tries + " times"));
+        else pending.add(job);
+    }
+
+    /**
+     * Does every job, passing each result to `sink` (on the calling thread) as it comes in. Jobs
+     * should have distinct ids.
+     *
+     * @return the results, in the order they came in
+     * @throws IllegalStateException if every local worker has been given up on, and no others are
+     * connected, with jobs still to do
+     */
+    public List<Job.Result> run(List<Job> jobs, Consumer<Job.Result> sink) throws InterruptedException {
+        results.clear();
+        pending.addAll(jobs);
+        List<Job.Result> ret = new ArrayList<>(jobs.size());
+        boolean spawned = supervised.get() > 0;
+        while (ret.size() < jobs.size()) {
+            Job.Result result = results.poll(1, TimeUnit.SECONDS);
+            if (result == null) {
+                if (spawned && supervised.get() == 0 && connections.get() == 0)
+                    throw new IllegalStateException("no workers left, with " + (jobs.size() - ret.size()) + " jobs to do");
+                continue;
+            }
+            ret.add(result);
+            sink.accept(result);
+        }
+        return ret;
+    }
+
+    /** Tells the workers to stop, and stops listening for more. */
+    @Override public void close() throws IOException {
+        closed = true;
+        server.close();
+        // connected workers get BYE within a poll; anything left after that is stuck in a job
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        for (Process process : processes) {
+            try {
+                long left = deadline - System.nanoTime();
+                if (left <= 0 || !process.waitFor(left, TimeUnit.NANOSECONDS)) process.destroyForcibly();
+            }
+            catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** MAIN **/
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int workers = Runtime.getRuntime().availableProcessors();
+        int port = 0;
+        String bind = null;
+        int games = 2;
+        int moves = 150;
+        int openingPlies = 8;
+        String fens = null;
+        boolean analyze = false;
+        boolean verbose = false;
+        String out = null;
+        List<String> engines = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-workers": workers = Integer.parseInt(args[++i]); break;
+                    case "-port": port = Integer.parseInt(args[++i]); break;
+                    case "-bind": bind = args[++i]; break;
+                    case "-games": games = Integer.parseInt(args[++i]); break;
+                    case "-moves": moves = Integer.parseInt(args[++i]); break;
+                    case "-opening-plies": openingPlies = Integer.parseInt(args[++i]); break;
+                    case "-fens": fens = args[++i]; break;
+                    case "-analyze": analyze = true; break;
+                    case "-out": out = args[++i]; break;
+                    case "-verbose": verbose = true; break;
+                    default:
+                        Tournament.Engine.parse(args[i]);
+                        engines.add(args[i]);
+                }
+            }
+            if (analyze ? engines.isEmpty() || fens == null : engines.size() < 2)
+                throw new IllegalArgumentException(analyze ? "need -fens and at least 1 engine" : "need at least 2 engines");
+            if (workers == 0 && port == 0) throw new IllegalArgumentException("need -port for remote workers");
+        }
+        catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: Coordinator [-workers N] [-port N] [-bind addr] [-games N] [-moves N] [-opening-plies N] [-fens file] [-analyze] [-out file] [-verbose] engine engine ...");
+            System.exit(2);
+        }
+        if (!verbose)
+            Tournament.quietLogging();
+        // logging goes to stdout, and would get mixed in with the results
+        final PrintStream stdout = System.out;
+        System.setOut(System.err);
+
+        List<String> starts = new ArrayList<>();
+        if (fens != null) {
+            for (String line : Files.readAllLines(new File(fens).toPath(), StandardCharsets.UTF_8)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) starts.add(line);
+            }
+        }
+        else {
+            for (List<BoardCommand> line : OpeningBook.readLines(OpeningBook.defaultLines()))
+                starts.add(Fen.of(Tournament.startAfter(line.subList(0, Math.min(openingPlies, line.size())))));
+        }
+
+        List<Job> jobs = new ArrayList<>();
+        if (analyze) {
+            for (String fen : starts)
+                for (String engine : engines) jobs.add(Job.analysis(jobs.size() + 1, fen, engine));
+        }
+        else {
+            for (int a = 0; a < engines.size(); a++) {
+                for (int b = a + 1; b < engines.size(); b++) {
+                    for (int i = 0; i < games; i++) {
+                        String white = engines.get(i%2 == 0 ? a : b);
+                        String black = engines.get(i%2 == 0 ? b : a);
+                        jobs.add(Job.game(jobs.size() + 1, starts.get(i/2%starts.size()), white, black, moves));
+                    }
+                }
+            }
+        }
+
+        InetAddress address = bind != null ? InetAddress.getByName(bind) : InetAddress.getLoopbackAddress();
+        try (Coordinator coordinator = new Coordinator(port, address);
+             PrintStream output = out == null ? new PrintStream(stdout, true)
+                 : new PrintStream(Paths.get(out).toFile(), "UTF-8")) {
+            System.err.println("listening on " + address.getHostAddress() + ":" + coordinator.getPort());
+            coordinator.spawnWorkers(workers);
+            output.println(Job.Result.csvHeader());
+            final long start = System.nanoTime();
+            List<Job.Result> results = coordinator.run(jobs, result -> output.println(result.toCsv()));
+
+            System.err.printf("%d jobs in %.1f s%n", results.size(), (System.nanoTime() - start)/1e9);
+            if (!analyze) {
+                Map<String, Double> points = new LinkedHashMap<>();
+                for (String engine : engines) points.put(engine, 0.0);
+                int failed = 0;
+                for (Job.Result result : results) {
+                    if (result.failed()) {
+                        failed++;
+                        continue;
+                    }
+                    for (String engine : new String[]{result.job.white, result.job.black})
+                        points.merge(engine, result.pointsFor(engine), Double::sum);
+                }
+                if (failed > 0) System.err.println(failed + " games failed, and aren't counted");
+                for (String engine : points.keySet())
+                    System.err.printf("%-16s %6.1f%n", engine, points.get(engine));
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package player;
+
+import game.Board;
+import game.Fen;
+import game.Team;
+import game.cmd.AbstractCommand;
+import game.cmd.BoardCommand;
+import player.Tournament.Engine;
+import player.Tournament.GameResult;
+import player.Tournament.Usage;
+
+import java.util.function.IntFunction;
+
+/**
+ * A unit of work for a `Worker`: a game between two engines from a given position, or one engine's
+ * choice of move in it. Engines are given as `Tournament.Engine` specs (e.g. "millis:100"), which
+ * carry the search budget along with the strategy.
+ *
+ * Jobs and their results travel between processes as single lines of tab-separated text:
+ *
+ * <pre>
+ * JOB     id  GAME      fen  white  black  moveLimit
+ * JOB     id  ANALYSIS  fen  engine
+ * RESULT  id  outcome  reason  plies  millis  whiteMoves whiteNanos whiteNodes  blackMoves blackNanos blackNodes
+ * </pre>
+ *
+ * so that nothing but the FEN and the specs has to agree between the coordinator and its workers.
+ */
+public final class Job {
+
+    public enum Kind {
+        /** play a game out */
+        GAME,
+        /** search the position once, for the side to move */
+        ANALYSIS
+    }
+
+    /** FIELDS **/
+
+    public final int id;
+    public final Kind kind;
+    public final String fen;
+    /** the engine for white, or the only engine of an analysis */
+    public final String white;
+    /** null for an analysis */
+    public final String black;
+    public final int moveLimit;
+
+    private Job(int id, Kind kind, String fen, String white, String black, int moveLimit) {
+        // fail now, in the coordinator, rather than on every worker in turn
+        Fen.toBoard(fen);
+        Engine.parse(white);
+        if (black != null) Engine.parse(black);
+        for (String field : new String[]{fen, white, black})
+            if (field != null && (field.indexOf('\t') >= 0 || field.indexOf('\n') >= 0))
+                throw new IllegalArgumentException("tab or newline in " + field);
+        this.id = id;
+        this.kind = kind;
+        this.fen = fen;
+        this.white = white;
+        this.black = black;
+        this.moveLimit = moveLimit;
+    }
+
+    public static Job game(int id, String fen, String white, String black, int moveLimit) {
+        return new Job(id, Kind.GAME, fen, white, black, moveLimit);
+    }
+
+    public static Job analysis(int id, String fen, String engine) {
+        return new Job(id, Kind.ANALYSIS, fen, engine, null, 0);
+    }
+
+    /** @return this job as one line of the protocol (without the newline) */
+    public String toLine() {
+        return "JOB\t" + id + "\t" + kind + "\t" + fen + "\t" + white
+            + (kind == Kind.GAME ? "\t" + black + "\t" + moveLimit : "");
+    }
+
+    /** @throws IllegalArgumentException if `line` isn't a job */
+    public static Job parse(String line) {
+        String[] fields = line.split("\t");
+        try {
+            if (fields[0].equals("JOB") && fields.length == 7 && fields[2].equals(Kind.GAME.name()))
+                return game(Integer.parseInt(fields[1]), fields[3], fields[4], fields[5], Integer.parseInt(fields[6]));
+            if (fields[0].equals("JOB") && fields.length == 5 && fields[2].equals(Kind.ANALYSIS.name()))
+                return analysis(Integer.parseInt(fields[1]), fields[3], fields[4]);
+        }
+        catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("not a job: " + line);
+    }
+
+    /**
+     * Does the job on the calling thread. Like `Tournament.play`, a job that throws is reported as
+     * an "ERROR" result rather than thrown on.
+     */
+    public Result run() {
+        if (kind == Kind.GAME) {
+            GameResult game = Tournament.play(id, Engine.parse(white), Engine.parse(black), Fen.toBoard(fen),
+                fen, moveLimit);
+            return new Result(this, game.result, game.reason, game.plies, game.millis, game.whiteUsage, game.blackUsage);
+        }
+
+        final long start = System.nanoTime();
+        Board board = Fen.toBoard(fen);
+        Team team = board.sideToMove();
+        Usage usage = new Usage();
+        String outcome = "-";
+        String reason;
+        try {
+            Player player = Engine.parse(white).create(team, board);
+            AbstractCommand move = player.move();
+            usage.nanos = System.nanoTime() - start;
+            usage.moves = 1;
+            if (player instanceof AIPlayer) usage.nodes = ((AIPlayer) player).getStrategy().getNodes();
+            if (move instanceof BoardCommand) {
+                BoardCommand command = (BoardCommand) move;
+                outcome = command.from.toString().toLowerCase() + command.to.toString().toLowerCase();
+            }
+            reason = board.status().toString();
+        }
+        catch (RuntimeException e) {
+            reason = "ERROR " + e;
+        }
+        long millis = (System.nanoTime() - start)/1_000_000;
+        return team == Team.WHITE ? new Result(this, outcome, reason, 1, millis, usage, new Usage())
+            : new Result(this, outcome, reason, 1, millis, new Usage(), usage);
+    }
+
+    @Override public String toString() {
+        return "job " + id + ": " + (kind == Kind.GAME ? white + " v " + black : white) + " from " + fen;
+    }
+
+    /** RESULTS **/
+
+    public static final class Result {
+        public final Job job;
+        /** for a game, as `GameResult.result`; for an analysis, the move chosen (e.g. "e2e4"), or "-" if none */
+        public final String outcome;
+        /** as `GameResult.reason`; "ERROR ..." if the job failed */
+        public final String reason;
+        public final int plies;
+        public final long millis;
+        public final Usage whiteUsage;
+        public final Usage blackUsage;
+
+        Result(Job job, String outcome, String reason, int plies, long millis, Usage whiteUsage, Usage blackUsage) {
+            this.job = job;
+            this.outcome = outcome;
+            // an exception's message could be anything
+            this.reason = reason.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+            this.plies = plies;
+            this.millis = millis;
+            this.whiteUsage = whiteUsage;
+            this.blackUsage = blackUsage;
+        }
+
+        /** @return a result for `job` that no worker could produce */
+        static Result failed(Job job, String why) {
+            return new Result(job, job.kind == Kind.GAME ? "*" : "-", "ERROR " + why, 0, 0, new Usage(), new Usage());
+        }
+
+        public boolean failed() {
+            return reason.startsWith("ERROR");
+        }
+
+        public String toLine() {
+            return "RESULT\t" + job.id + "\t" + outcome + "\t" + reason + "\t" + plies + "\t" + millis
+                + "\t" + whiteUsage.moves + "\t" + whiteUsage.nanos + "\t" + whiteUsage.nodes
+                + "\t" + blackUsage.moves + "\t" + blackUsage.nanos + "\t" + blackUsage.nodes;
+        }
+
+        /**
+         * @param jobs finds the job with a given id, or returns null
+         * @throws IllegalArgumentException if `line` isn't a result for one of `jobs`
+         */
+        public static Result parse(String line, IntFunction<Job> jobs) {
+            String[] fields = line.split("\t", -1);
+            if (!fields[0].equals("RESULT") || fields.length != 12)
+                throw new IllegalArgumentException("not a result: " + line);
+            try {
+                Job job = jobs.apply(Integer.parseInt(fields[1]));
+                if (job == null) throw new IllegalArgumentException("result for an unknown job: " + line);
+                return new Result(job, fields[2], fields[3], Integer.parseInt(fields[4]), Long.parseLong(fields[5]),
+                    usage(fields, 6), usage(fields, 9));
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("not a result: " + line, e);
+            }
+        }
+
+        private static Usage usage(String[] fields, int from) {
+            Usage ret = new Usage();
+            ret.moves = Integer.parseInt(fields[from]);
+            ret.nanos = Long.parseLong(fields[from + 1]);
+            ret.nodes = Long.parseLong(fields[from + 2]);
+            return ret;
+        }
+
+        /** @return the points `engine` (by spec) scored in a game, as `GameResult.pointsFor` */
+        public double pointsFor(String engine) {
+            double whitePoints = outcome.equals("1-0") ? 1 : outcome.equals("0-1") ? 0 : .5;
+            return engine.equals(job.white) ? whitePoints : 1 - whitePoints;
+        }
+
+        public static String csvHeader() {
+            return "job,kind,white,black,fen,outcome,reason,plies,millis,white_ms_per_move,white_nps,black_ms_per_move,black_nps";
+        }
+
+        public String toCsv() {
+            return job.id + "," + job.kind + "," + job.white + "," + (job.black == null ? "" : job.black) + ","
+                + job.fen + "," + outcome + "," + reason.replace(',', ';') + "," + plies + "," + millis + ","
+                + String.format("%.2f", whiteUsage.millisPerMove()) + "," + whiteUsage.nodesPerSecond() + ","
+                + String.format("%.2f", blackUsage.millisPerMove()) + "," + blackUsage.nodesPerSecond();
+        }
+
+        @Override public String toString() {
+            return job + ": " + outcome + " (" + reason + ")";
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package player;
+
+import game.Bitboards;
+import game.Board;
+import game.BoardLoc;
+import game.Move;
+import game.Team;
+import game.cmd.BoardCommand;
+
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * An opening book: for known positions, the moves worth playing and how often to play each.
+ *
+ * The file is laid out like a Polyglot book: 16-byte big-endian entries, sorted by position key.
+ *
+ * <pre>
+ * bytes  0-7   position key
+ * bytes  8-9   move: to file (bits 0-2), to rank (3-5), from file (6-8), from rank (9-11);
+ *              files count from A and ranks from 1, both from 0
+ * bytes 10-11  weight: how much more often to play this move than the others
+ * bytes 12-15  unused (Polyglot's "learn" field)
+ * </pre>
+ *
+ * Unlike Polyglot, the keys are our own `Board.zobristKey()`s and castling is written as the king's
+ * own move, so real Polyglot books can't be read, only books built by `build`.
+ *
+ * The file is memory-mapped rather than read in, so opening even a large book costs nothing up
+ * front, and each lookup is a binary search touching a few pages.
+ *
+ * usage:
+ *
+ * <pre>
+ * OpeningBook build [lines.txt] book.bin     build a book from lines of moves (default: our own
+ *                                            `openings.txt`), e.g. "e2e4 e7e5 g1f3"
+ * </pre>
+ */
+public final class OpeningBook {
+
+    public static final int ENTRY_BYTES = 16;
+
+    private final ByteBuffer entries;
+    private final int size;
+
+    private OpeningBook(ByteBuffer entries) {
+        this.entries = entries;
+        this.size = entries.capacity()/ENTRY_BYTES;
+    }
+
+    /**
+     * @throws IOException if `file` can't be mapped
+     * @throws IllegalArgumentException if its size isn't a whole number of entries
+     */
+    public static OpeningBook open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() % ENTRY_BYTES != 0)
+                throw new IllegalArgumentException(file + " isn't a book: " + channel.size() + " bytes");
+            // the mapping stays valid after the channel is closed
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /** @return how many (position, move) entries the book has */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return one of the book's moves for `board`'s position, chosen at random in proportion to
+     * the moves' weights; or null if the position isn't in the book. Moves that aren't legal (which
+     * could only come from a key collision) are never returned.
+     */
+    public BoardCommand pick(Board board, Random random) {
+        final Team side = board.sideToMove();
+        final long key = board.zobristKey();
+        int total = 0;
+        int first = firstIndexOf(key);
+        int end = first;
+        for (; end < size && key(end) == key; end++)
+            if (isLegal(board, side, end)) total += weight(end);
+        if (total == 0) return null;
+
+        int choice = random.nextInt(total);
+        for (int i = first; i < end; i++) {
+            if (!isLegal(board, side, i)) continue;
+            choice -= weight(i);
+            if (choice < 0) return command(i);
+        }
+        throw new AssertionError("weights changed while picking");
+    }
+
+    /** @return the index of the first entry whose key isn't less than `key` */
+    private int firstIndexOf(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(mid), key) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private long key(int index) {
+        return entries.getLong(index*ENTRY_BYTES);
+    }
+
+    private int move(int index) {
+        return entries.getShort(index*ENTRY_BYTES + 8) & 0xFFFF;
+    }
+
+    private int weight(int index) {
+        return entries.getShort(index*ENTRY_BYTES + 10) & 0xFFFF;
+    }
+
+    private BoardCommand command(int index) {
+        int move = move(index);
+        return new BoardCommand(loc(move >> 6), loc(move));
+    }
+
+    private boolean isLegal(Board board, Team side, int index) {
+        BoardCommand command = command(index);
+        if (!board.locHasTeam(command.from, side)) return false;
+        return board.isLegal(side, board.encode(command));
+    }
+
+    /** @return the square in the low 6 bits of a book move (file, then rank from 1) */
+    private static BoardLoc loc(int sixBits) {
+        return BoardLoc.at(7 - (sixBits >> 3 & 7), sixBits & 7);
+    }
+
+    private static int sixBits(int square) {
+        return (7 - Bitboards.row(square)) << 3 | Bitboards.col(square);
+    }
+
+    /** BUILDING **/
+
+    /**
+     * Plays each line of moves (e.g. "e2e4 e7e5 g1f3", one per line; '#' starts a comment) from the
+     * starting position, and writes a book in which each move's weight is how many lines play it
+     * from that position.
+     *
+     * @throws IllegalArgumentException if a line contains an illegal move
+     */
+    public static void build(Reader lines, OutputStream out) throws IOException {
+        // key -> (book move -> weight)
+        Map<Long, Map<Integer, Integer>> book = new HashMap<>();
+        BufferedReader reader = new BufferedReader(lines);
+        int lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            Board board = Board.completeSet();
+            try {
+                for (BoardCommand command : parseLine(line)) {
+                    Team side = board.sideToMove();
+                    if (!board.locHasTeam(command.from, side) || !board.isLegal(side, board.encode(command)))
+                        throw new IllegalArgumentException("illegal move " + command);
+                    int move = board.encode(command);
+                    int bookMove = sixBits(Move.from(move)) << 6 | sixBits(Move.to(move));
+                    book.computeIfAbsent(board.zobristKey(), k -> new HashMap<>()).merge(bookMove, 1, Integer::sum);
+                    board.execute(move);
+                }
+            }
+            catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        List<long[]> entries = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, Integer>> position : book.entrySet())
+            for (Map.Entry<Integer, Integer> move : position.getValue().entrySet())
+                entries.add(new long[]{position.getKey(), move.getKey(), Math.min(move.getValue(), 0xFFFF)});
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        DataOutputStream data = new DataOutputStream(out);
+        for (long[] entry : entries) {
+            data.writeLong(entry[0]);
+            data.writeShort((int) entry[1]);
+            data.writeShort((int) entry[2]);
+            data.writeInt(0);
+        }
+        data.flush();
+    }
+
+    /**
+     * @return the lines of moves in `lines` (in the format `build` takes), skipping blank lines and
+     * comments; not checked for legality
+     */
+    public static List<List<BoardCommand>> readLines(Reader lines) throws IOException {
+        List<List<BoardCommand>> ret = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(lines);
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            List<BoardCommand> moves = parseLine(line);
+            if (!moves.isEmpty()) ret.add(moves);
+        }
+        return ret;
+    }
+
+    /** @throws IllegalArgumentException if a move isn't written like "e2e4" */
+    private static List<BoardCommand> parseLine(String line) {
+        int comment = line.indexOf('#');
+        if (comment >= 0) line = line.substring(0, comment);
+        line = line.trim();
+        List<BoardCommand> ret = new ArrayList<>();
+        if (line.isEmpty()) return ret;
+        for (String token : line.split("\\s+")) {
+            if (token.length() != 4) throw new IllegalArgumentException("bad move " + token);
+            ret.add(new BoardCommand(BoardLoc.parse(token.substring(0, 2)), BoardLoc.parse(token.substring(2))));
+        }
+        return ret;
+    }
+
+    /** MAIN **/
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3 || !args[0].equals("build")) {
+            System.err.println("usage: OpeningBook build [lines.txt] book.bin");
+            System.exit(2);
+        }
+        Path out = Paths.get(args[args.length - 1]);
+        try (Reader lines = args.length == 3
+                ? Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)
+                : defaultLines();
+             OutputStream stream = Files.newOutputStream(out)) {
+            build(lines, stream);
+        }
+        System.out.println("wrote " + Files.size(out)/ENTRY_BYTES + " entries to " + out);
+    }
+
+    /** @return the lines of our own `openings.txt` */
+    public static Reader defaultLines() {
+        InputStream in = OpeningBook.class.getResourceAsStream("openings.txt");
+        if (in == null) throw new IllegalStateException("missing resource openings.txt");
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,151 @@
+package player;
+
+/**
+ * A sequential probability ratio test on game results: after each game it says whether there is
+ * already enough evidence to decide between
+ *
+ * - H0: engine A is no stronger than B by more than `elo0`, and
+ * - H1: A is stronger than B by at least `elo1`,
+ *
+ * with error rates of at most `alpha` (accepting H1 when H0 is true) and `beta` (the other way
+ * round); or whether more games are needed.
+ *
+ * The log-likelihood ratio is the usual normal approximation for win/draw/loss results ("GSPRT"):
+ * with mean score `m`, score variance `v` and `n` games,
+ *
+ * <pre>
+ * LLR = n (s1 - s0) (2m - s0 - s1) / (2v)
+ * </pre>
+ *
+ * where `s0` and `s1` are the expected scores at `elo0` and `elo1`. H1 is accepted once the LLR
+ * reaches log((1 - beta)/alpha), and H0 once it falls to log(beta/(1 - alpha)).
+ */
+public final class Sprt {
+
+    public enum Verdict {
+        /** keep playing */
+        CONTINUE,
+        /** A isn't `elo1` stronger */
+        H0,
+        /** A is at least `elo1` stronger */
+        H1
+    }
+
+    /** FIELDS **/
+
+    private final double elo0;
+    private final double elo1;
+    private final double lowerBound;
+    private final double upperBound;
+
+    /** from A's side */
+    private int wins;
+    private int draws;
+    private int losses;
+
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        if (elo1 <= elo0) throw new IllegalArgumentException("elo1 (" + elo1 + ") must be above elo0 (" + elo0 + ")");
+        if (alpha <= 0 || alpha >= 1 || beta <= 0 || beta >= 1)
+            throw new IllegalArgumentException("alpha and beta must be between 0 and 1");
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        lowerBound = Math.log(beta/(1 - alpha));
+        upperBound = Math.log((1 - beta)/alpha);
+    }
+
+    /** @param score A's score in a game: 1, 1/2 or 0 */
+    public void record(double score) {
+        if (score == 1) wins++;
+        else if (score == 0) losses++;
+        else if (score == .5) draws++;
+        else throw new IllegalArgumentException("not a game score: " + score);
+    }
+
+    public int games() {
+        return wins + draws + losses;
+    }
+
+    public int wins() {
+        return wins;
+    }
+
+    public int draws() {
+        return draws;
+    }
+
+    public int losses() {
+        return losses;
+    }
+
+    public double lowerBound() {
+        return lowerBound;
+    }
+
+    public double upperBound() {
+        return upperBound;
+    }
+
+    /** @return A's mean score per game */
+    public double score() {
+        return games() == 0 ? .5 : (wins + draws/2.0)/games();
+    }
+
+    /** @return the variance of the score in one game, with these results */
+    private static double variance(double wins, double draws, double losses) {
+        final double n = wins + draws + losses;
+        final double m = (wins + draws/2)/n;
+        return (wins*(1 - m)*(1 - m) + draws*(.5 - m)*(.5 - m) + losses*m*m)/n;
+    }
+
+    /**
+     * @return the log-likelihood ratio of H1 to H0 so far. Half a win and half a loss are added to
+     * the results, so that the first few (e.g. a win and nothing else, with no variance at all)
+     * can't decide the test on their own.
+     */
+    public double llr() {
+        final double w = wins + .5;
+        final double l = losses + .5;
+        final double n = w + draws + l;
+        final double m = (w + draws/2.0)/n;
+        double s0 = expectedScore(elo0);
+        double s1 = expectedScore(elo1);
+        return n*(s1 - s0)*(2*m - s0 - s1)/(2*variance(w, draws, l));
+    }
+
+    public Verdict verdict() {
+        double llr = llr();
+        return llr >= upperBound ? Verdict.H1 : llr <= lowerBound ? Verdict.H0 : Verdict.CONTINUE;
+    }
+
+    /** @return how much stronger A seems than B, in Elo */
+    public double elo() {
+        return eloOf(score());
+    }
+
+    /**
+     * @return half the width of the 95% confidence interval around `elo()`. It isn't symmetric in
+     * Elo; this is the wider half, to be safe.
+     */
+    public double eloError() {
+        if (games() == 0) return Double.POSITIVE_INFINITY;
+        double margin = 1.96*Math.sqrt(variance(wins, draws, losses)/games());
+        return Math.max(eloOf(score() + margin) - elo(), elo() - eloOf(score() - margin));
+    }
+
+    /** @return the expected score against an opponent `elo` weaker */
+    static double expectedScore(double elo) {
+        return 1/(1 + Math.pow(10, -elo/400));
+    }
+
+    /** @return the Elo difference that gives an expected score of `score`; infinite at 0 and 1 */
+    static double eloOf(double score) {
+        if (score <= 0) return Double.NEGATIVE_INFINITY;
+        if (score >= 1) return Double.POSITIVE_INFINITY;
+        return -400*Math.log10(1/score - 1);
+    }
+
+    @Override public String toString() {
+        return String.format("%d games (+%d =%d -%d): Elo %.1f +/- %.1f, LLR %.2f [%.2f, %.2f]",
+            games(), wins, draws, losses, elo(), eloError(), llr(), lowerBound, upperBound);
+    }
+}
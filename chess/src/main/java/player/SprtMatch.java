@@ -0,0 +1,289 @@
+package player;
+
+import game.Board;
+import game.Fen;
+import game.cmd.BoardCommand;
+import player.Tournament.Engine;
+import player.Tournament.GameResult;
+import player.Tournament.Usage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * An A/B test between two engines (see `Tournament.Engine`): plays A against B in pairs of games
+ * from the same start position, A taking white in one and black in the other, until a `Sprt` says
+ * whether A is stronger, or `maxGames` have been played.
+ *
+ * Games run on a fixed pool of one thread per core (by default). A few more games than there are
+ * threads are kept queued, so no core waits for the results to be tallied; once the test is
+ * decided, the games still running are abandoned.
+ *
+ * Start positions are the first `openingPlies` moves of each line of `OpeningBook.defaultLines()`,
+ * or a file of FENs, one per line, used in turn.
+ *
+ * usage:
+ *
+ * <pre>
+ * SprtMatch [-elo0 0] [-elo1 10] [-alpha 0.05] [-beta 0.05] [-max-games 10000] [-max-failures 10]
+ *           [-threads N] [-moves N] [-opening-plies N] [-fens file] [-verbose] engineA engineB
+ * </pre>
+ *
+ * e.g. `SprtMatch nodes:5000 material:3`. As well as the verdict, it reports A's Elo advantage with
+ * a 95% error bar, and each engine's time per move and nodes per second, so a gain in strength can
+ * be weighed against its cost. To compare at equal CPU cost, give both engines the same `millis:`.
+ *
+ * A game that fails (see `GameResult.failed`) is left out of the test and the usage, and reported;
+ * if more than `maxFailures` do, the match is abandoned, since an engine that keeps crashing can't
+ * be measured. A game that hits the move limit counts as a draw.
+ */
+public final class SprtMatch {
+
+    /** a position to start a pair of games from */
+    public static final class Start {
+        final String name;
+        private final String fen;
+        private final List<BoardCommand> moves;
+
+        private Start(String name, String fen, List<BoardCommand> moves) {
+            this.name = name;
+            this.fen = fen;
+            this.moves = moves;
+        }
+
+        public static Start fromFen(String fen) {
+            Fen.toBoard(fen); // fail now rather than in the middle of the match
+            return new Start(fen, fen, null);
+        }
+
+        public static Start afterMoves(List<BoardCommand> moves) {
+            return new Start(Tournament.movesOf(moves), null, moves);
+        }
+
+        Board board() {
+            return fen != null ? Fen.toBoard(fen) : Tournament.startAfter(moves);
+        }
+    }
+
+    /** FIELDS **/
+
+    private final Engine a;
+    private final Engine b;
+    private final Sprt sprt;
+    private final List<Start> starts;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int moveLimit = 150;
+    private int maxGames = 10_000;
+    private int maxFailures = 10;
+    private int failures;
+
+    private final Usage usageA = new Usage();
+    private final Usage usageB = new Usage();
+
+    public SprtMatch(Engine a, Engine b, Sprt sprt, List<Start> starts) {
+        if (starts.isEmpty()) throw new IllegalArgumentException("no start positions");
+        // named apart, so that results can tell them apart even when they're configured alike
+        this.a = new Engine("A " + a.name, a::create);
+        this.b = new Engine("B " + b.name, b::create);
+        this.sprt = sprt;
+        this.starts = starts;
+    }
+
+    /** @return the first `plies` moves of each line of `OpeningBook.defaultLines()` */
+    public static List<Start> openings(int plies) throws IOException {
+        List<Start> ret = new ArrayList<>();
+        for (List<BoardCommand> line : OpeningBook.readLines(OpeningBook.defaultLines()))
+            ret.add(Start.afterMoves(line.subList(0, Math.min(plies, line.size()))));
+        return ret;
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("need at least 1 thread, not " + threads);
+        this.threads = threads;
+    }
+
+    /** how many moves each side may make before the game is called a draw */
+    public void setMoveLimit(int moveLimit) {
+        this.moveLimit = moveLimit;
+    }
+
+    /** the most games to play if the test hasn't been decided by then; rounded up to a whole pair */
+    public void setMaxGames(int maxGames) {
+        this.maxGames = maxGames + maxGames%2;
+    }
+
+    /** how many games may fail before `run` gives up */
+    public void setMaxFailures(int maxFailures) {
+        this.maxFailures = maxFailures;
+    }
+
+    /** @return how many games have failed, and been left out of the test */
+    public int getFailures() {
+        return failures;
+    }
+
+    public Sprt getSprt() {
+        return sprt;
+    }
+
+    /** @return A's time per move and nodes, over all its games */
+    public Usage getUsageA() {
+        return usageA;
+    }
+
+    public Usage getUsageB() {
+        return usageB;
+    }
+
+    /**
+     * Plays games until the test is decided or `maxGames` are done, passing each result to `sink`
+     * (on the calling thread) as it comes in, failed games included, once the test and the usage
+     * have taken it into account.
+     *
+     * @return the verdict; `CONTINUE` if `maxGames` ran out first
+     * @throws IllegalStateException if more than `maxFailures` games fail
+     */
+    public Sprt.Verdict run(Consumer<GameResult> sink) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "sprt-game");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<GameResult> results = new ExecutorCompletionService<>(pool);
+            int submitted = 0;
+            int running = 0;
+            while (true) {
+                while (running < threads + 2 && submitted < maxGames) {
+                    final int number = ++submitted;
+                    final Start start = starts.get((number - 1)/2%starts.size());
+                    final boolean aIsWhite = number%2 == 1;
+                    results.submit(() -> Tournament.play(number, aIsWhite ? a : b, aIsWhite ? b : a,
+                        start.board(), start.name, moveLimit));
+                    running++;
+                }
+                if (running == 0) return sprt.verdict();
+
+                GameResult result;
+                try {
+                    result = results.take().get();
+                }
+                catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+                running--;
+                if (result.failed()) {
+                    failures++;
+                    sink.accept(result);
+                    if (failures > maxFailures)
+                        throw new IllegalStateException(failures + " games failed, the last with " + result.reason);
+                    continue;
+                }
+                boolean aIsWhite = result.number%2 == 1;
+                sprt.record(result.pointsFor(a.name));
+                usageA.add(aIsWhite ? result.whiteUsage : result.blackUsage);
+                usageB.add(aIsWhite ? result.blackUsage : result.whiteUsage);
+                sink.accept(result);
+                if (sprt.verdict() != Sprt.Verdict.CONTINUE) return sprt.verdict();
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** MAIN **/
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        double elo0 = 0;
+        double elo1 = 10;
+        double alpha = .05;
+        double beta = .05;
+        int maxGames = 10_000;
+        int maxFailures = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int moves = 150;
+        int openingPlies = 8;
+        String fens = null;
+        boolean verbose = false;
+        List<Engine> engines = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-elo0": elo0 = Double.parseDouble(args[++i]); break;
+                    case "-elo1": elo1 = Double.parseDouble(args[++i]); break;
+                    case "-alpha": alpha = Double.parseDouble(args[++i]); break;
+                    case "-beta": beta = Double.parseDouble(args[++i]); break;
+                    case "-max-games": maxGames = Integer.parseInt(args[++i]); break;
+                    case "-max-failures": maxFailures = Integer.parseInt(args[++i]); break;
+                    case "-threads": threads = Integer.parseInt(args[++i]); break;
+                    case "-moves": moves = Integer.parseInt(args[++i]); break;
+                    case "-opening-plies": openingPlies = Integer.parseInt(args[++i]); break;
+                    case "-fens": fens = args[++i]; break;
+                    case "-verbose": verbose = true; break;
+                    default: engines.add(Engine.parse(args[i]));
+                }
+            }
+            if (engines.size() != 2) throw new IllegalArgumentException("need exactly 2 engines");
+        }
+        catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: SprtMatch [-elo0 0] [-elo1 10] [-alpha 0.05] [-beta 0.05] [-max-games N] [-max-failures N] [-threads N] [-moves N] [-opening-plies N] [-fens file] [-verbose] engineA engineB");
+            System.exit(2);
+        }
+        if (!verbose)
+            Tournament.quietLogging();
+
+        List<Start> starts = new ArrayList<>();
+        if (fens == null) starts = openings(openingPlies);
+        else {
+            try (BufferedReader lines = Files.newBufferedReader(Paths.get(fens), StandardCharsets.UTF_8)) {
+                for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) starts.add(Start.fromFen(line));
+                }
+            }
+        }
+
+        SprtMatch match = new SprtMatch(engines.get(0), engines.get(1), new Sprt(elo0, elo1, alpha, beta), starts);
+        match.setThreads(threads);
+        match.setMoveLimit(moves);
+        match.setMaxGames(maxGames);
+        match.setMaxFailures(maxFailures);
+        final Sprt sprt = match.getSprt();
+        final long start = System.nanoTime();
+        Sprt.Verdict verdict;
+        try {
+            verdict = match.run(result -> {
+                if (result.failed()) System.err.println("game " + result.number + " failed: " + result.reason);
+                else if (sprt.games()%10 == 0) System.err.println(sprt);
+            });
+        }
+        catch (IllegalStateException e) {
+            System.err.println("abandoned after " + sprt.games() + " games: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        System.out.println(sprt);
+        System.out.printf("played in %.1f s%n", (System.nanoTime() - start)/1e9);
+        System.out.println(verdict == Sprt.Verdict.H1 ? "H1: " + engines.get(0) + " is stronger by at least " + elo1 + " Elo"
+            : verdict == Sprt.Verdict.H0 ? "H0: " + engines.get(0) + " is not stronger by " + elo1 + " Elo"
+            : "undecided after " + sprt.games() + " games");
+        if (match.getFailures() > 0)
+            System.out.println(match.getFailures() + " games failed, and aren't counted");
+        System.out.println("A " + engines.get(0) + ": " + match.getUsageA());
+        System.out.println("B " + engines.get(1) + ": " + match.getUsageB());
+    }
+}
@@ -0,0 +1,467 @@
+package player;
+
+import game.Board;
+import game.ChessGame;
+import game.GameStatus;
+import game.Team;
+import game.cmd.AbstractCommand;
+import game.cmd.BoardCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import player.strategies.AlphaBetaAI;
+import player.strategies.SearchLimits;
+import player.strategies.Strategy;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Plays many games between AIs at once, without drawing any boards, and reports each game's result
+ * and how long it took.
+ *
+ * Every pair of engines plays `games` games, swapping colors after each one. So that the games
+ * aren't all the same, each pair of games starts from the first `openingPlies` moves of the next
+ * line of `OpeningBook.defaultLines()`. Each game has its own `Board` and players, and the games
+ * run on a fixed pool of threads, so only `threads` games (and their transposition tables) are
+ * alive at once however many are played.
+ *
+ * usage:
+ *
+ * <pre>
+ * Tournament [-games N] [-threads N] [-moves N] [-opening-plies N] [-json] [-out file] [-verbose]
+ *            engine engine ...
+ *
+ * engines:  greedy           GreedyAI with textbook piece values
+ *           depth:N          AlphaBetaAI searching N plies
+ *           nodes:N          AlphaBetaAI searching N nodes a move
+ *           millis:N         AlphaBetaAI searching N ms a move
+ *           material:N       AlphaBetaAI searching N plies, counting material only
+ * </pre>
+ *
+ * Results are written one line per game as they finish (CSV by default); a summary of each engine's
+ * points goes to stderr at the end. `-verbose` keeps the engines' debug logging, which is otherwise
+ * turned off as it would swamp the output.
+ */
+public final class Tournament {
+
+    private static final Logger logger = LoggerFactory.getLogger(Tournament.class);
+
+    /** FIELDS **/
+
+    private final List<Engine> engines;
+    private int games = 2;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int moveLimit = 150;
+    private int openingPlies = 8;
+    private final List<List<BoardCommand>> openings;
+
+    public Tournament(List<Engine> engines) throws IOException {
+        if (engines.size() < 2) throw new IllegalArgumentException("need at least 2 engines, not " + engines.size());
+        this.engines = engines;
+        openings = OpeningBook.readLines(OpeningBook.defaultLines());
+    }
+
+    /** how many games each pair of engines plays */
+    public void setGames(int games) {
+        this.games = games;
+    }
+
+    /** how many games to play at once */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("need at least 1 thread, not " + threads);
+        this.threads = threads;
+    }
+
+    /** how many moves each side may make before the game is called a draw */
+    public void setMoveLimit(int moveLimit) {
+        this.moveLimit = moveLimit;
+    }
+
+    /** how many plies of each opening line to play before the engines take over */
+    public void setOpeningPlies(int openingPlies) {
+        this.openingPlies = openingPlies;
+    }
+
+    /**
+     * Plays every game, passing each result to `sink` (on the calling thread) as it finishes.
+     *
+     * @return the results, in the order they finished
+     */
+    public List<GameResult> run(Consumer<GameResult> sink) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "tournament-game");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<GameResult> results = new ExecutorCompletionService<>(pool);
+            int submitted = 0;
+            for (int a = 0; a < engines.size(); a++) {
+                for (int b = a + 1; b < engines.size(); b++) {
+                    for (int i = 0; i < games; i++) {
+                        final Engine white = i%2 == 0 ? engines.get(a) : engines.get(b);
+                        final Engine black = i%2 == 0 ? engines.get(b) : engines.get(a);
+                        final List<BoardCommand> opening = opening(i/2);
+                        final int number = ++submitted;
+                        results.submit(() -> play(number, white, black, startAfter(opening), movesOf(opening), moveLimit));
+                    }
+                }
+            }
+            List<GameResult> ret = new ArrayList<>(submitted);
+            for (int i = 0; i < submitted; i++) {
+                GameResult result;
+                try {
+                    result = results.take().get();
+                }
+                catch (ExecutionException e) {
+                    // `play` catches what the game throws, so this is a bug in the runner itself
+                    throw new IllegalStateException(e.getCause());
+                }
+                ret.add(result);
+                sink.accept(result);
+            }
+            return ret;
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** @return the first `openingPlies` moves of the `n`th line (going round again past the last) */
+    private List<BoardCommand> opening(int n) {
+        List<BoardCommand> line = openings.get(n%openings.size());
+        return line.subList(0, Math.min(openingPlies, line.size()));
+    }
+
+    /** @return the starting position after `opening` */
+    public static Board startAfter(List<BoardCommand> opening) {
+        Board board = Board.completeSet();
+        for (BoardCommand move : opening) board.execute(move);
+        return board;
+    }
+
+    /** @return `opening` as written in `openings.txt`, e.g. "e2e4 e7e5" */
+    public static String movesOf(List<BoardCommand> opening) {
+        StringBuilder ret = new StringBuilder();
+        for (BoardCommand move : opening) {
+            if (ret.length() > 0) ret.append(' ');
+            ret.append(move.from.toString().toLowerCase()).append(move.to.toString().toLowerCase());
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Plays one game from `board` (which the game takes over), on the calling thread.
+     *
+     * A game that throws (e.g. an engine with a bug) is recorded as unfinished, with the exception
+     * as its reason, rather than stopping the tournament.
+     *
+     * @param opening describes where the game started, e.g. the moves that led to `board`
+     */
+    public static GameResult play(int number, Engine white, Engine black, Board board, String opening, int moveLimit) {
+        final long start = System.nanoTime();
+        MeteredPlayer whitePlayer = new MeteredPlayer(white.create(Team.WHITE, board));
+        MeteredPlayer blackPlayer = new MeteredPlayer(black.create(Team.BLACK, board));
+        ChessGame game = new ChessGame(board, whitePlayer, blackPlayer);
+        String result;
+        String reason;
+        try {
+            GameStatus status = game.play(moveLimit);
+            reason = status.toString();
+            result = status == GameStatus.CHECKMATE ? (board.sideToMove() == Team.WHITE ? "0-1" : "1-0")
+                : status.isDraw() ? "1/2-1/2"
+                : "*";
+        }
+        catch (RuntimeException e) {
+            logger.warn("game {} ({} v {}) failed", number, white, black, e);
+            result = "*";
+            reason = "ERROR " + e;
+        }
+        return new GameResult(number, white.name, black.name, opening, result, reason, game.plies(),
+            (System.nanoTime() - start)/1_000_000, whitePlayer.usage, blackPlayer.usage);
+    }
+
+    /** a player that keeps track of how long it takes over its moves, and how many nodes it searches */
+    private static final class MeteredPlayer implements Player {
+        private final Player player;
+        final Usage usage = new Usage();
+
+        MeteredPlayer(Player player) {
+            this.player = player;
+        }
+
+        @Override public AbstractCommand move() {
+            final long start = System.nanoTime();
+            AbstractCommand ret = player.move();
+            usage.nanos += System.nanoTime() - start;
+            usage.moves++;
+            if (player instanceof AIPlayer) usage.nodes += ((AIPlayer) player).getStrategy().getNodes();
+            return ret;
+        }
+
+        @Override public Team getTeam() {
+            return player.getTeam();
+        }
+    }
+
+    /** ENGINES **/
+
+    /** a named way of making a player, e.g. "depth:3" */
+    public static final class Engine {
+        public final String name;
+        private final BiFunction<Team, Board, Player> factory;
+
+        public Engine(String name, BiFunction<Team, Board, Player> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        public Player create(Team team, Board board) {
+            return factory.apply(team, board);
+        }
+
+        /** @throws IllegalArgumentException if `spec` isn't one of the engines in the class comment */
+        public static Engine parse(String spec) {
+            String[] parts = spec.split(":", 2);
+            if (parts[0].equals("greedy") && parts.length == 1)
+                return new Engine(spec, AIPlayer::newGreedyTextbookAI);
+            if (parts.length != 2) throw new IllegalArgumentException("no such engine: " + spec);
+            final long n;
+            try {
+                n = Long.parseLong(parts[1]);
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException(spec + ": not a number: " + parts[1]);
+            }
+            switch (parts[0]) {
+                case "depth":
+                    return new Engine(spec, (team, board) ->
+                        new AIPlayer(team, board, new AlphaBetaAI(board, team, SearchLimits.depth((int) n))));
+                case "nodes":
+                    return new Engine(spec, (team, board) ->
+                        new AIPlayer(team, board, new AlphaBetaAI(board, team, SearchLimits.nodes(n))));
+                case "millis":
+                    return new Engine(spec, (team, board) -> AIPlayer.newAlphaBetaAI(team, board, n));
+                case "material":
+                    return new Engine(spec, (team, board) -> {
+                        AlphaBetaAI search = new AlphaBetaAI(board, team, SearchLimits.depth((int) n));
+                        search.setEvaluator(new Strategy.BoardEvaluator.EvaluateByPieces(team));
+                        return new AIPlayer(team, board, search);
+                    });
+                default:
+                    throw new IllegalArgumentException("no such engine: " + spec);
+            }
+        }
+
+        @Override public String toString() {
+            return name;
+        }
+    }
+
+    /** RESULTS **/
+
+    /** one side's moves in a game, and what they cost */
+    public static final class Usage {
+        public int moves;
+        public long nanos;
+        public long nodes;
+
+        public void add(Usage other) {
+            moves += other.moves;
+            nanos += other.nanos;
+            nodes += other.nodes;
+        }
+
+        public double millisPerMove() {
+            return moves == 0 ? 0 : nanos/1e6/moves;
+        }
+
+        public long nodesPerSecond() {
+            return nanos == 0 ? 0 : (long) (nodes*1e9/nanos);
+        }
+
+        @Override public String toString() {
+            return String.format("%.2f ms/move, %d nodes/sec", millisPerMove(), nodesPerSecond());
+        }
+    }
+
+    public static final class GameResult {
+        public final int number;
+        public final String white;
+        public final String black;
+        /** where the game started, e.g. "e2e4 e7e5" */
+        public final String opening;
+        /** "1-0", "0-1", "1/2-1/2", or "*" if the game hit the move limit or failed */
+        public final String result;
+        /** the `GameStatus` the game ended with, or why it failed */
+        public final String reason;
+        /** how many moves the engines made */
+        public final int plies;
+        public final long millis;
+        public final Usage whiteUsage;
+        public final Usage blackUsage;
+
+        GameResult(int number, String white, String black, String opening, String result,
+                   String reason, int plies, long millis, Usage whiteUsage, Usage blackUsage) {
+            this.number = number;
+            this.white = white;
+            this.black = black;
+            this.opening = opening;
+            this.result = result;
+            this.reason = reason;
+            this.plies = plies;
+            this.millis = millis;
+            this.whiteUsage = whiteUsage;
+            this.blackUsage = blackUsage;
+        }
+
+        /** @return true iff the game threw rather than ending or hitting the move limit */
+        public boolean failed() {
+            return reason.startsWith("ERROR");
+        }
+
+        /**
+         * @return the points `engine` (by name) scored: 1 for a win, 1/2 for a draw or a game that
+         * hit the move limit. A `failed` game says nothing about the engines, so don't count it.
+         */
+        public double pointsFor(String engine) {
+            double whitePoints = result.equals("1-0") ? 1 : result.equals("0-1") ? 0 : .5;
+            return engine.equals(white) ? whitePoints : 1 - whitePoints;
+        }
+
+        /** @return the usage of `engine` (by name) */
+        public Usage usageOf(String engine) {
+            return engine.equals(white) ? whiteUsage : blackUsage;
+        }
+
+        public static String csvHeader() {
+            return "game,white,black,opening,result,reason,plies,millis,white_ms_per_move,white_nps,black_ms_per_move,black_nps";
+        }
+
+        public String toCsv() {
+            return number + "," + white + "," + black + "," + opening.replace(',', ';') + "," + result + ","
+                + reason.replace(',', ';') + "," + plies + "," + millis + ","
+                + String.format("%.2f", whiteUsage.millisPerMove()) + "," + whiteUsage.nodesPerSecond() + ","
+                + String.format("%.2f", blackUsage.millisPerMove()) + "," + blackUsage.nodesPerSecond();
+        }
+
+        public String toJson() {
+            return "{\"game\": " + number + ", \"white\": " + quote(white) + ", \"black\": " + quote(black)
+                + ", \"opening\": " + quote(opening) + ", \"result\": " + quote(result)
+                + ", \"reason\": " + quote(reason) + ", \"plies\": " + plies + ", \"millis\": " + millis
+                + ", \"white_ms_per_move\": " + String.format("%.2f", whiteUsage.millisPerMove())
+                + ", \"white_nps\": " + whiteUsage.nodesPerSecond()
+                + ", \"black_ms_per_move\": " + String.format("%.2f", blackUsage.millisPerMove())
+                + ", \"black_nps\": " + blackUsage.nodesPerSecond() + "}";
+        }
+
+        private static String quote(String s) {
+            return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+        }
+
+        @Override public String toString() {
+            return "game " + number + ": " + white + " v " + black + " " + result + " (" + reason + ")";
+        }
+    }
+
+    /** MAIN **/
+
+    /**
+     * Turns the (mostly per-move) DEBUG logging off, for the command-line tools. The level belongs
+     * to the logging backend, so this does nothing if it isn't logback.
+     */
+    static void quietLogging() {
+        Logger root = LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        if (root instanceof ch.qos.logback.classic.Logger)
+            ((ch.qos.logback.classic.Logger) root).setLevel(ch.qos.logback.classic.Level.INFO);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = 2;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int moves = 150;
+        int openingPlies = 8;
+        boolean json = false;
+        boolean verbose = false;
+        String out = null;
+        List<Engine> engines = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-games": games = Integer.parseInt(args[++i]); break;
+                    case "-threads": threads = Integer.parseInt(args[++i]); break;
+                    case "-moves": moves = Integer.parseInt(args[++i]); break;
+                    case "-opening-plies": openingPlies = Integer.parseInt(args[++i]); break;
+                    case "-json": json = true; break;
+                    case "-out": out = args[++i]; break;
+                    case "-verbose": verbose = true; break;
+                    default: engines.add(Engine.parse(args[i]));
+                }
+            }
+            if (engines.size() < 2) throw new IllegalArgumentException("need at least 2 engines");
+        }
+        catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: Tournament [-games N] [-threads N] [-moves N] [-opening-plies N] [-json] [-out file] [-verbose] engine engine ...");
+            System.exit(2);
+        }
+        if (!verbose)
+            quietLogging();
+
+        Tournament tournament = new Tournament(engines);
+        tournament.setGames(games);
+        tournament.setThreads(threads);
+        tournament.setMoveLimit(moves);
+        tournament.setOpeningPlies(openingPlies);
+
+        final boolean asJson = json;
+        try (PrintStream output = out == null ? new PrintStream(System.out, true)
+                : new PrintStream(Paths.get(out).toFile(), "UTF-8")) {
+            output.println(asJson ? "[" : GameResult.csvHeader());
+            final boolean[] first = {true};
+            final long start = System.nanoTime();
+            List<GameResult> results = tournament.run(result -> {
+                if (asJson) {
+                    output.println((first[0] ? "  " : ", ") + result.toJson());
+                    first[0] = false;
+                }
+                else output.println(result.toCsv());
+            });
+            if (asJson) output.println("]");
+
+            Map<String, Double> points = new LinkedHashMap<>();
+            Map<String, Integer> played = new LinkedHashMap<>();
+            for (Engine engine : engines) {
+                points.put(engine.name, 0.0);
+                played.put(engine.name, 0);
+            }
+            int failed = 0;
+            for (GameResult result : results) {
+                if (result.failed()) {
+                    failed++;
+                    continue;
+                }
+                for (String engine : new String[]{result.white, result.black}) {
+                    points.merge(engine, result.pointsFor(engine), Double::sum);
+                    played.merge(engine, 1, Integer::sum);
+                }
+            }
+            System.err.printf("%d games in %.1f s%n", results.size(), (System.nanoTime() - start)/1e9);
+            if (failed > 0) System.err.println(failed + " games failed, and aren't counted");
+            for (String engine : points.keySet())
+                System.err.printf("%-16s %6.1f / %d%n", engine, points.get(engine), played.get(engine));
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package player;
+
+import game.Board;
+import game.BoardLoc;
+import game.Fen;
+import game.Move;
+import game.Team;
+import game.cmd.BoardCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import player.strategies.AlphaBetaAI;
+import player.strategies.LazySmpAI;
+import player.strategies.SearchLimits;
+import player.strategies.TranspositionTable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Speaks the Universal Chess Interface on stdin/stdout, so that match managers and analysis tools
+ * can drive the engine.
+ *
+ * Each `go` runs a `LazySmpAI` search (with `Threads` threads) on a background thread, so that the
+ * input loop keeps reading and `stop` takes effect straight away. The transposition table (`Hash`
+ * megabytes) is kept between searches, and only cleared by `ucinewgame`.
+ *
+ * Supported:
+ *
+ * <pre>
+ * uci, isready, ucinewgame, quit
+ * setoption name Hash value N | name Threads value N | name Ponder value true/false
+ * position startpos | fen FEN [moves e2e4 e7e5 ...]
+ * go [depth N] [nodes N] [movetime N] [wtime N btime N [winc N] [binc N] [movestogo N]] [infinite] [ponder]
+ * stop, ponderhit
+ * </pre>
+ *
+ * As the spec requires, `go infinite` and `go ponder` hold on to their `bestmove` until `stop` (or
+ * `ponderhit`), even if the search runs out of depth first. While pondering there is no time limit;
+ * the clock given with `go ponder` only starts on `ponderhit`. There is no promotion in this game,
+ * so moves are always 4 characters, and castling is the king's move (e.g. "e1g1").
+ */
+public final class Uci {
+
+    private static final Logger logger = LoggerFactory.getLogger(Uci.class);
+
+    static final String NAME = "Chess";
+    static final int MAX_HASH_MEGABYTES = 4096;
+    static final int MAX_THREADS = 256;
+    /** how much of the clock to keep back for the GUI and the network */
+    private static final long MOVE_OVERHEAD_MILLIS = 50;
+    /** how many moves to plan for when the GUI doesn't say (`movestogo`) */
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    /** FIELDS **/
+
+    private final PrintStream out;
+    private Board board = Board.completeSet();
+    private int hashMegabytes = TranspositionTable.DEFAULT_MEGABYTES;
+    private TranspositionTable table = new TranspositionTable(hashMegabytes);
+    private int threads = 1;
+
+    private final Object lock = new Object();
+    /** guarded by `lock` */
+    private Search current;
+    private Thread searchThread;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "uci-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Uci(PrintStream out) {
+        this.out = out;
+    }
+
+    private void send(String line) {
+        synchronized (out) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    /** Reads commands until `quit` or the end of `in`. */
+    public void run(BufferedReader in) throws IOException {
+        for (String line = in.readLine(); line != null; line = in.readLine())
+            if (!handle(line)) return;
+        handle("quit");
+    }
+
+    /**
+     * Handles one line of input. Anything unrecognised is ignored, as the spec says.
+     *
+     * @return false once told to quit
+     */
+    public boolean handle(String line) {
+        List<String> tokens = Arrays.asList(line.trim().split("\\s+"));
+        logger.debug("<< {}", line);
+        try {
+            switch (tokens.get(0)) {
+                case "uci":
+                    send("id name " + NAME);
+                    send("id author Ethan Petuchowski");
+                    send("option name Hash type spin default " + TranspositionTable.DEFAULT_MEGABYTES
+                        + " min 1 max " + MAX_HASH_MEGABYTES);
+                    send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                    send("option name Ponder type check default false");
+                    send("uciok");
+                    break;
+                case "isready":
+                    send("readyok");
+                    break;
+                case "setoption":
+                    finishSearch();
+                    setOption(tokens);
+                    break;
+                case "ucinewgame":
+                    finishSearch();
+                    table.clear();
+                    board = Board.completeSet();
+                    break;
+                case "position":
+                    finishSearch();
+                    board = position(tokens);
+                    break;
+                case "go":
+                    finishSearch();
+                    go(tokens);
+                    break;
+                case "stop":
+                    stop(null);
+                    break;
+                case "ponderhit":
+                    ponderhit();
+                    break;
+                case "quit":
+                    finishSearch();
+                    timer.shutdownNow();
+                    return false;
+                default:
+                    logger.debug("ignoring {}", line);
+            }
+        }
+        catch (RuntimeException e) {
+            // the GUI carries on regardless, so say what went wrong in a way it will show
+            send("info string error: " + e.getMessage());
+        }
+        return true;
+    }
+
+    private void setOption(List<String> tokens) {
+        int name = tokens.indexOf("name");
+        int value = tokens.indexOf("value");
+        if (name < 0 || value < name) throw new IllegalArgumentException("expected setoption name N value V");
+        String option = String.join(" ", tokens.subList(name + 1, value));
+        String setting = String.join(" ", tokens.subList(value + 1, tokens.size()));
+        switch (option.toLowerCase()) {
+            case "hash":
+                hashMegabytes = clamp(Integer.parseInt(setting), 1, MAX_HASH_MEGABYTES);
+                table = new TranspositionTable(hashMegabytes);
+                break;
+            case "threads":
+                threads = clamp(Integer.parseInt(setting), 1, MAX_THREADS);
+                break;
+            case "ponder":
+                // pondering is up to the GUI, which only sends `go ponder` when this is on
+                break;
+            default:
+                throw new IllegalArgumentException("no such option: " + option);
+        }
+    }
+
+    private static int clamp(int n, int min, int max) {
+        return Math.max(min, Math.min(max, n));
+    }
+
+    /** @return the position described by a `position` command */
+    static Board position(List<String> tokens) {
+        int moves = tokens.indexOf("moves");
+        if (moves < 0) moves = tokens.size();
+        Board ret;
+        if (tokens.size() > 1 && tokens.get(1).equals("startpos")) ret = Board.completeSet();
+        else if (tokens.size() > 2 && tokens.get(1).equals("fen")) ret = Fen.toBoard(String.join(" ", tokens.subList(2, moves)));
+        else throw new IllegalArgumentException("expected position startpos|fen ...");
+
+        for (String token : tokens.subList(Math.min(moves + 1, tokens.size()), tokens.size())) {
+            Team side = ret.sideToMove();
+            if (token.length() != 4) throw new IllegalArgumentException("bad move " + token);
+            BoardCommand command = new BoardCommand(BoardLoc.parse(token.substring(0, 2)), BoardLoc.parse(token.substring(2)));
+            if (!ret.locHasTeam(command.from, side) || !ret.isLegal(side, ret.encode(command)))
+                throw new IllegalArgumentException("illegal move " + token);
+            ret.execute(ret.encode(command));
+        }
+        return ret;
+    }
+
+    /** @return "e2e4" for the move from e2 to e4 */
+    static String uciMove(BoardCommand move) {
+        return move.from.toString().toLowerCase() + move.to.toString().toLowerCase();
+    }
+
+    /** SEARCH **/
+
+    /** one `go`, from start to `bestmove` */
+    private final class Search implements Runnable {
+        final Board board;
+        final LazySmpAI strategy;
+        final boolean infinite;
+        /** the time limit to start on `ponderhit`, or 0 for none */
+        final long ponderMillis;
+        /** guarded by `lock` */
+        boolean pondering;
+        boolean stopped;
+
+        Search(Board board, SearchLimits limits, boolean infinite, boolean pondering, long ponderMillis) {
+            this.board = board;
+            strategy = new LazySmpAI(board, board.sideToMove(), limits, threads, table);
+            this.infinite = infinite;
+            this.pondering = pondering;
+            this.ponderMillis = ponderMillis;
+        }
+
+        @Override public void run() {
+            final long start = System.nanoTime();
+            BoardCommand best = null;
+            try {
+                best = strategy.chooseMove();
+            }
+            catch (IllegalStateException e) {
+                // no legal moves
+                send("info string " + e.getMessage());
+            }
+            finally {
+                strategy.shutdown();
+            }
+            long millis = (System.nanoTime() - start)/1_000_000;
+
+            String ponder = null;
+            if (best != null) {
+                int mate = AlphaBetaAI.matePlies(strategy.getLastScore());
+                String score = mate != 0 ? "mate " + (mate > 0 ? (mate + 1)/2 : -(-mate + 1)/2)
+                    : "cp " + Math.round(strategy.getLastScore()*100);
+                ponder = expectedReply(best);
+                send("info depth " + strategy.getCompletedDepth() + " score " + score
+                    + " nodes " + strategy.getNodes() + " nps " + strategy.getNodes()*1000/Math.max(1, millis)
+                    + " time " + millis + " pv " + uciMove(best) + (ponder != null ? " " + ponder : ""));
+            }
+
+            synchronized (lock) {
+                // the GUI isn't ready for a `bestmove` until it says so
+                while ((infinite || pondering) && !stopped) {
+                    try {
+                        lock.wait();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+                current = null;
+            }
+            send(best == null ? "bestmove 0000" : "bestmove " + uciMove(best) + (ponder != null ? " ponder " + ponder : ""));
+        }
+
+        /** @return the reply the table expects to `best`, or null if it doesn't know one */
+        private String expectedReply(BoardCommand best) {
+            Board after = board.copy();
+            after.execute(after.encode(best));
+            long entry = table.probe(after.zobristKey());
+            if (entry == TranspositionTable.MISS) return null;
+            int reply = TranspositionTable.move(entry);
+            return after.isLegal(after.sideToMove(), reply) ? uciMove(Move.toCommand(reply)) : null;
+        }
+    }
+
+    private void go(List<String> tokens) {
+        SearchLimits limits = SearchLimits.infinite();
+        boolean infinite = false;
+        boolean ponder = false;
+        long moveTime = 0;
+        long[] clock = new long[Team.values().length];
+        long[] increment = new long[Team.values().length];
+        int movesToGo = DEFAULT_MOVES_TO_GO;
+        for (int i = 1; i < tokens.size(); i++) {
+            switch (tokens.get(i)) {
+                case "infinite": infinite = true; break;
+                case "ponder": ponder = true; break;
+                case "depth": limits = limits.withDepth(clamp(Integer.parseInt(tokens.get(++i)), 1, SearchLimits.MAX_DEPTH)); break;
+                case "nodes": limits = limits.withNodes(Math.max(1, Long.parseLong(tokens.get(++i)))); break;
+                case "movetime": moveTime = Math.max(1, Long.parseLong(tokens.get(++i))); break;
+                case "wtime": clock[Team.WHITE.ordinal()] = Long.parseLong(tokens.get(++i)); break;
+                case "btime": clock[Team.BLACK.ordinal()] = Long.parseLong(tokens.get(++i)); break;
+                case "winc": increment[Team.WHITE.ordinal()] = Long.parseLong(tokens.get(++i)); break;
+                case "binc": increment[Team.BLACK.ordinal()] = Long.parseLong(tokens.get(++i)); break;
+                case "movestogo": movesToGo = Math.max(1, Integer.parseInt(tokens.get(++i))); break;
+                default: logger.debug("ignoring go {}", tokens.get(i));
+            }
+        }
+        int side = board.sideToMove().ordinal();
+        long millis = moveTime > 0 ? moveTime
+            : clock[side] > 0 || increment[side] > 0 ? timeFor(clock[side], increment[side], movesToGo)
+            : 0;
+        if (millis > 0 && !ponder && !infinite) limits = limits.withMillis(millis);
+
+        Search search = new Search(board.copy(), limits, infinite, ponder, infinite ? 0 : millis);
+        synchronized (lock) {
+            current = search;
+            searchThread = new Thread(search, "uci-search");
+            searchThread.setDaemon(true);
+            searchThread.start();
+        }
+    }
+
+    /** @return how long to spend on this move, with `clock` ms left and `increment` ms a move to come */
+    static long timeFor(long clock, long increment, int movesToGo) {
+        long budget = clock/movesToGo + increment*3/4;
+        return Math.max(1, Math.min(budget, clock - MOVE_OVERHEAD_MILLIS));
+    }
+
+    /**
+     * Stops `search` (or whichever search is running, if null), which then sends its `bestmove`.
+     */
+    private void stop(Search search) {
+        synchronized (lock) {
+            if (current == null || (search != null && search != current)) return;
+            current.stopped = true;
+            current.strategy.stop();
+            lock.notifyAll();
+        }
+    }
+
+    /** The opponent played the expected move: carry on searching, now on our own clock. */
+    private void ponderhit() {
+        synchronized (lock) {
+            if (current == null || !current.pondering) return;
+            final Search search = current;
+            search.pondering = false;
+            if (search.ponderMillis > 0) timer.schedule(() -> stop(search), search.ponderMillis, TimeUnit.MILLISECONDS);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Stops the running search, if any, and waits for its `bestmove`. The GUI should have sent
+     * `stop` itself before changing anything, but an infinite search would otherwise never end.
+     */
+    private void finishSearch() {
+        stop(null);
+        awaitSearch();
+    }
+
+    /** Waits for the running search (if any) to send its `bestmove`. */
+    void awaitSearch() {
+        Thread thread;
+        synchronized (lock) {
+            thread = searchThread;
+        }
+        if (thread == null) return;
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** MAIN **/
+
+    public static void main(String[] args) throws IOException {
+        // stdout belongs to the protocol, so logging goes to stderr
+        PrintStream protocol = new PrintStream(System.out, true);
+        System.setOut(System.err);
+        Tournament.quietLogging();
+        new Uci(protocol).run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,73 @@
+package player;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Does `Job`s for a `Coordinator`, one at a time, until it's told to stop or the coordinator goes
+ * away.
+ *
+ * A worker connects to the coordinator, says `HELLO` with the protocol version, then answers each
+ * `JOB` line with a `RESULT` line, and exits on `BYE`. A job that fails is still answered (with an
+ * "ERROR" result), so the only way a job goes unanswered is the worker dying, which the coordinator
+ * notices by the connection closing.
+ *
+ * usage: `Worker host port`. The coordinator starts its own local workers like this; workers on
+ * other machines can be started the same way against a coordinator listening on a public address.
+ */
+public final class Worker {
+
+    private static final Logger logger = LoggerFactory.getLogger(Worker.class);
+
+    /** the first line a worker sends; the coordinator drops workers that speak another version */
+    static final String HELLO = "HELLO chess-jobs 1";
+    static final String BYE = "BYE";
+
+    private Worker() {
+    }
+
+    /** Connects to the coordinator at `host`:`port` and does jobs until told to stop. */
+    public static void run(String host, int port) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            serve(in, out);
+        }
+    }
+
+    static void serve(BufferedReader in, PrintWriter out) throws IOException {
+        out.print(HELLO + "\n");
+        out.flush();
+        for (String line = in.readLine(); line != null && !line.equals(BYE); line = in.readLine()) {
+            Job job = Job.parse(line);
+            logger.debug("starting {}", job);
+            Job.Result result = job.run();
+            // "\n" rather than println, so that a Windows worker still speaks the same protocol
+            out.print(result.toLine() + "\n");
+            out.flush();
+            if (out.checkError()) throw new IOException("lost the coordinator");
+        }
+    }
+
+    /** MAIN **/
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: Worker host port");
+            System.exit(2);
+        }
+        // the coordinator's stdout is for its results, and local workers share it
+        System.setOut(System.err);
+        Tournament.quietLogging();
+        run(args[0], Integer.parseInt(args[1]));
+    }
+}
@@ -0,0 +1,397 @@
+package player.strategies;
+
+import game.Board;
+import game.Move;
+import game.MoveList;
+import game.PieceType;
+import game.Team;
+import game.cmd.BoardCommand;
+
+/**
+ * An AI Strategy that runs a negamax search with alpha-beta pruning, deepening one ply at a time
+ * until it runs out of budget (see `SearchLimits`).
+ *
+ * Only iterations that finish are trusted: when the budget runs out part way through one, the
+ * search unwinds and plays the best move from the deepest iteration that completed. Each iteration
+ * starts with the previous one's best move, and the transposition table remembers the best move of
+ * every position searched, so the deeper iterations cost much less than searching from scratch.
+ * The order of the other moves is up to the `MoveOrderer`.
+ *
+ * At the end of the main search (the "horizon"), a quiescence search keeps playing captures until
+ * the position is quiet, so that a position isn't scored in the middle of an exchange. Each side
+ * may "stand pat" on the static score instead of capturing, and captures that couldn't raise the
+ * score enough even if they won the piece for free are skipped ("delta pruning"). It can be turned
+ * off with `setQuiescence`, which scores the horizon statically instead.
+ *
+ * With `setBitbases`, positions that an endgame table covers aren't searched at all: a win scores
+ * `KNOWN_WIN` less the plies from the root to its mate (and a loss the opposite), so the search
+ * takes the shortest mate the tables know of; a draw scores 0. Positions where the side to move is
+ * in check aren't probed but searched, so that mates are found as mates. A position that has
+ * already occurred scores 0 too, so the search doesn't wander round in circles.
+ *
+ * Only legal moves are generated (see `Board.getLegalMovesFor`). Having none is checkmate when in
+ * check and stalemate when not, and capturing the enemy king (which can only happen if it was left
+ * in check before the search started) wins outright.
+ */
+public class AlphaBetaAI implements Strategy {
+
+    /** larger than any material score; mate in `n` plies scores `MATE - n` */
+    static final double MATE = 1_000_000;
+    /** scores beyond this are mates */
+    private static final double MATE_BOUND = MATE - SearchLimits.MAX_DEPTH;
+    /**
+     * what a win according to the bitbases is worth, less the plies (from the root) to its mate;
+     * well short of a mate that the search has seen for itself
+     */
+    static final double KNOWN_WIN = 10_000;
+    /** how much more than the captured piece a capture may gain (e.g. by winning tempo); 2 pawns */
+    private static final double DELTA_MARGIN = 2;
+    /** how many nodes to search between looks at the clock */
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    private final Board board;
+    private final Team team;
+    private BoardEvaluator boardEvaluator;
+    private final TranspositionTable table;
+    private final MoveOrderer orderer;
+    private final MoveList rootMoves = new MoveList();
+    private final double[] pieceValues = new double[PieceType.COUNT];
+    private SearchLimits limits;
+    private boolean quiescence = true;
+    private Bitbases bitbases;
+    /** the depth of the first iteration; helper searches start deeper (see `LazySmpAI`) */
+    int firstDepth = 1;
+
+    /** SEARCH STATE */
+    private volatile boolean stopRequested;
+    private boolean aborted;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private int completedDepth;
+    private double lastScore;
+
+    public AlphaBetaAI(Board board, Team team, SearchLimits limits) {
+        this(board, team, limits, new TranspositionTable());
+    }
+
+    public AlphaBetaAI(Board board, Team team, SearchLimits limits, TranspositionTable table) {
+        this(board, team, limits, table, new MoveOrderer(PieceEvaluator.textbook()));
+    }
+
+    public AlphaBetaAI(Board board, Team team, SearchLimits limits, TranspositionTable table,
+                       MoveOrderer orderer) {
+        this(board, team, limits, table, orderer, new BoardEvaluator.EvaluateByTaperedTables(team, new PawnTable()));
+    }
+
+    /** @param evaluator see `setEvaluator` */
+    public AlphaBetaAI(Board board, Team team, SearchLimits limits, TranspositionTable table,
+                       MoveOrderer orderer, BoardEvaluator evaluator) {
+        this.board = board;
+        this.team = team;
+        this.limits = limits;
+        this.table = table;
+        this.orderer = orderer;
+        setEvaluator(evaluator);
+        for (PieceType type : PieceType.values())
+            pieceValues[type.ordinal()] = PieceEvaluator.textbook().valueOf(type);
+    }
+
+    public Team getTeam() {
+        return team;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public SearchLimits getLimits() {
+        return limits;
+    }
+
+    public void setLimits(SearchLimits limits) {
+        this.limits = limits;
+    }
+
+    public BoardEvaluator getEvaluator() {
+        return boardEvaluator;
+    }
+
+    /**
+     * Replaces the default `EvaluateByTaperedTables`, with its own `PawnTable`. The evaluator must
+     * score positions for this search's team.
+     */
+    public void setEvaluator(BoardEvaluator evaluator) {
+        if (evaluator.team != team)
+            throw new IllegalArgumentException("evaluator is for " + evaluator.team + ", not " + team);
+        this.boardEvaluator = evaluator;
+    }
+
+    public boolean usesQuiescence() {
+        return quiescence;
+    }
+
+    /** whether to run a quiescence search at the horizon (the default), or score it statically */
+    public void setQuiescence(boolean quiescence) {
+        this.quiescence = quiescence;
+    }
+
+    public Bitbases getBitbases() {
+        return bitbases;
+    }
+
+    /** endgame tables to cut the search off with (see `Bitbases.probe`), or null for none (the default) */
+    public void setBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+    }
+
+    /**
+     * Asks a running `chooseMove` (e.g. on another thread) to return as soon as it can, with the
+     * best move found so far; or one that hasn't quite started yet to return straight away.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /** @return the nodes visited by the last `chooseMove` */
+    @Override public long getNodes() {
+        return nodes;
+    }
+
+    /** @return the deepest iteration the last `chooseMove` completed */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /** @return the score (for `team`) of the move the last `chooseMove` returned */
+    public double getLastScore() {
+        return lastScore;
+    }
+
+    /**
+     * @return how many plies from the root a search `score` mates in: positive if the side searching
+     * mates, negative if it gets mated, or 0 if the score isn't a mate
+     */
+    public static int matePlies(double score) {
+        return score > MATE_BOUND ? (int) (MATE - score) : score < -MATE_BOUND ? -(int) (MATE + score) : 0;
+    }
+
+    @Override public BoardCommand chooseMove() {
+        try {
+            return search();
+        }
+        finally {
+            // a `stop()` is for this search, not the next
+            stopRequested = false;
+        }
+    }
+
+    private BoardCommand search() {
+        final long start = System.nanoTime();
+        aborted = false;
+        nodes = 0;
+        nodeLimit = limits.getNodes();
+        deadline = limits.hasTimeLimit() ? start + limits.getMillis()*1_000_000 : Long.MAX_VALUE;
+        completedDepth = 0;
+        orderer.newSearch();
+
+        board.getLegalMovesFor(team, rootMoves);
+        if (rootMoves.size() == 0)
+            throw new IllegalStateException("GAME OVER: " + team + " has no legal moves");
+        int bestMove = rootMoves.get(0);
+
+        double bestScore = 0;
+        for (int depth = Math.min(firstDepth, limits.getDepth()); depth <= limits.getDepth(); depth++) {
+            int iterationBest = Move.NONE;
+            double alpha = Double.NEGATIVE_INFINITY;
+            orderer.sort(rootMoves, team, 0, bestMove);
+            for (int i = 0; i < rootMoves.size(); i++) {
+                int move = rootMoves.get(i);
+                board.execute(move);
+                double score = capturesKing(move) ? MATE - 1
+                    : -negamax(depth - 1, 1, Double.NEGATIVE_INFINITY, -alpha, team.other());
+                board.undoMove(move);
+                if (aborted) break;
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = move;
+                }
+            }
+            if (aborted) break;
+            bestMove = iterationBest;
+            bestScore = alpha;
+            completedDepth = depth;
+            table.store(board.zobristKey(), depth, bestScore, TranspositionTable.EXACT, bestMove);
+            // no point looking deeper once a forced mate has been found
+            if (Math.abs(bestScore) > MATE_BOUND) break;
+        }
+
+        lastScore = bestScore;
+        long micros = Math.max(1, (System.nanoTime() - start)/1000);
+        STRATEGY_LOGGER.debug("alpha-beta chose {} ({}) at depth {}: {} nodes in {} ms ({} nodes/sec); {}; {}",
+            Move.toString(bestMove), bestScore, completedDepth, nodes, micros/1000,
+            nodes*1_000_000/micros, table, boardEvaluator);
+        return Move.toCommand(bestMove);
+    }
+
+    /**
+     * @return the score of the current position for `side` (the team to move), searched `depth`
+     * plies deep; or 0 if the search was aborted, in which case the caller must ignore it
+     */
+    private double negamax(int depth, int ply, double alpha, double beta, Team side) {
+        // a draw if it comes round again: going round in circles is no way to win
+        if (board.repetitions() > 0) return 0;
+        if (depth == 0 && quiescence) return quiesce(ply, alpha, beta, side);
+        if (outOfBudget()) {
+            aborted = true;
+            return 0;
+        }
+        nodes++;
+        if (bitbases != null) {
+            double known = probeBitbases(side, ply);
+            if (!Double.isNaN(known)) return known;
+        }
+        if (depth == 0) return evaluate(side);
+
+        final double originalAlpha = alpha;
+        final long key = board.zobristKey();
+        final long cached = table.probe(key);
+        int hashMove = Move.NONE;
+        if (cached != TranspositionTable.MISS) {
+            hashMove = TranspositionTable.move(cached);
+            if (TranspositionTable.depth(cached) >= depth) {
+                double score = fromTable(TranspositionTable.score(cached), ply);
+                switch (TranspositionTable.bound(cached)) {
+                    case TranspositionTable.EXACT:
+                        return score;
+                    case TranspositionTable.LOWER_BOUND:
+                        alpha = Math.max(alpha, score);
+                        break;
+                    case TranspositionTable.UPPER_BOUND:
+                        beta = Math.min(beta, score);
+                        break;
+                }
+                if (alpha >= beta) return score;
+            }
+        }
+
+        MovePicker moves = orderer.start(board, side, ply, hashMove);
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int bestMove = Move.NONE;
+        for (int move = moves.next(); move != Move.NONE; move = moves.next()) {
+            board.execute(move);
+            double score = capturesKing(move) ? MATE - ply - 1
+                : ply + 1 < SearchLimits.MAX_DEPTH ? -negamax(depth - 1, ply + 1, -beta, -alpha, side.other())
+                : -evaluate(side.other());
+            board.undoMove(move);
+            if (aborted) return 0;
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+            }
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta) {
+                orderer.recordCutoff(side, move, ply, depth);
+                break;
+            }
+        }
+
+        if (bestMove == Move.NONE) // no legal moves
+            return kingInCheck(side) ? -MATE + ply : 0;
+
+        int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+            : bestScore >= beta ? TranspositionTable.LOWER_BOUND
+            : TranspositionTable.EXACT;
+        table.store(key, depth, toTable(bestScore, ply), bound, bestMove);
+        return bestScore;
+    }
+
+    /**
+     * @return the score of the current position for `side`, once the captures have played out; or 0
+     * if the search was aborted
+     *
+     * When in check, standing pat isn't an option, so every legal move is searched instead (and
+     * having none is mate).
+     */
+    private double quiesce(int ply, double alpha, double beta, Team side) {
+        if (outOfBudget()) {
+            aborted = true;
+            return 0;
+        }
+        nodes++;
+        if (bitbases != null) {
+            double known = probeBitbases(side, ply);
+            if (!Double.isNaN(known)) return known;
+        }
+        final boolean inCheck = kingInCheck(side);
+        final double standPat = evaluate(side);
+        if (ply + 1 >= SearchLimits.MAX_DEPTH) return standPat;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        if (!inCheck) {
+            if (standPat >= beta) return standPat;
+            alpha = Math.max(alpha, standPat);
+            bestScore = standPat;
+        }
+
+        MovePicker moves = inCheck ? orderer.start(board, side, ply, Move.NONE) : orderer.startCaptures(board, side, ply);
+        for (int move = moves.next(); move != Move.NONE; move = moves.next()) {
+            if (!inCheck && !capturesKing(move)
+                && standPat + pieceValues[Move.captured(move).ordinal()] + DELTA_MARGIN <= alpha)
+                continue;
+            board.execute(move);
+            double score = capturesKing(move) ? MATE - ply - 1 : -quiesce(ply + 1, -beta, -alpha, side.other());
+            board.undoMove(move);
+            if (aborted) return 0;
+            if (score > bestScore) bestScore = score;
+            if (score >= beta) return score;
+            alpha = Math.max(alpha, score);
+        }
+        return bestScore == Double.NEGATIVE_INFINITY ? -MATE + ply : bestScore;
+    }
+
+    private boolean outOfBudget() {
+        if (nodes >= nodeLimit || stopRequested) return true;
+        return nodes % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0;
+    }
+
+    /** @return the static score of the current position for `side` */
+    private double evaluate(Team side) {
+        double score = boardEvaluator.evaluate(board);
+        return side == team ? score : -score;
+    }
+
+    /**
+     * @return the bitbases' score of the current position, `ply` plies from the root, for `side`; or
+     * NaN if they don't have it
+     */
+    private double probeBitbases(Team side, int ply) {
+        int plies = bitbases.probePlies(board);
+        if (plies == Bitbases.NONE || kingInCheck(side)) return Double.NaN;
+        if (plies == Bitbases.NO_MATE) return 0;
+        // the side that mates is the one to move an odd number of plies before it
+        return plies % 2 == 1 ? KNOWN_WIN - ply - plies : -(KNOWN_WIN - ply - plies);
+    }
+
+    /** only possible when the position was handed to us with the other king already in check */
+    private static boolean capturesKing(int move) {
+        return Move.captured(move) == PieceType.KING;
+    }
+
+    /** boards set up without a king (e.g. in tests) are never in check */
+    private boolean kingInCheck(Team side) {
+        return board.piecesOf(side, PieceType.KING) != 0 && board.inCheck(side);
+    }
+
+    /*
+     * A mate score counts plies from the root, but a table entry may be reused at any ply, so mates
+     * are stored counting from the entry's own position instead.
+     */
+
+    private static double toTable(double score, int ply) {
+        return score > MATE_BOUND ? score + ply : score < -MATE_BOUND ? score - ply : score;
+    }
+
+    private static double fromTable(double score, int ply) {
+        return score > MATE_BOUND ? score - ply : score < -MATE_BOUND ? score + ply : score;
+    }
+}
@@ -0,0 +1,274 @@
+package player.strategies;
+
+import game.Bitboards;
+import game.Board;
+import game.PieceType;
+import game.Team;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Whether the side to move wins, draws or loses with perfect play, and how soon, for every
+ * position with one small set of pieces. The set is named by its "signature", e.g. "KRvK" for white's king and rook
+ * against black's bare king; white is always the stronger side, and positions with the colors the
+ * other way around are looked up mirrored (see `canonical`).
+ *
+ * A table is one byte per position (see `entry`), with positions numbered by
+ *
+ * <pre>
+ * index = side to move (0 for white) followed by each piece's square, 6 bits apiece
+ * </pre>
+ *
+ * with the pieces listed white first, each side's king first and the rest in the signature's order.
+ * That is 512 KB for three pieces and 32 MB for four; tables are memory-mapped, so only the pages
+ * the search actually touches are ever read.
+ *
+ * Knowing only that a position is won isn't enough to win it: a search that can't see the mate has
+ * nothing to choose between the winning moves by, and goes round in circles. So each entry holds
+ * the distance to mate in plies, which the winning side brings down by one every move.
+ *
+ * Positions with castling rights or an en passant capture aren't covered (see `Bitbases.probe`),
+ * and the fifty-move rule is ignored. Tables are built by `BitbaseGenerator`.
+ */
+public final class Bitbase {
+
+    /** values, for the side to move; `ILLEGAL` positions (e.g. with two pieces on one square) are never probed */
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+    static final int ILLEGAL = 3;
+
+    /*
+     * What a table holds for each position: 0 for a draw, `ILLEGAL_ENTRY` for one that can't occur,
+     * and otherwise 1 + the plies to mate with best play. Those are odd when the side to move wins
+     * (it gives the mate) and even when it loses, so they say which it is.
+     */
+    static final int DRAW_ENTRY = 0;
+    static final int ILLEGAL_ENTRY = 0xFF;
+    /** the longest mate an entry may hold; far longer than any table here needs */
+    static final int MAX_PLIES = 250;
+
+    /** more would take 2 GB a table */
+    public static final int MAX_PIECES = 4;
+
+    public static final String EXTENSION = ".bitbase";
+
+    /** the order of the letters on each side of a signature */
+    private static final String LETTERS = "KQRBNP";
+    private static final PieceType[] TYPES = {
+        PieceType.KING, PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT, PieceType.PAWN
+    };
+
+    private final String signature;
+    /** the table's pieces, in index order */
+    final Team[] teams;
+    final PieceType[] types;
+    /** `materialKey`s of positions found as they are, and with the colors swapped */
+    final long whiteKey;
+    final long swappedKey;
+    private final ByteBuffer values;
+
+    Bitbase(String signature, ByteBuffer values) {
+        if (!signature.equals(canonical(signature)))
+            throw new IllegalArgumentException(signature + " should be written " + canonical(signature));
+        this.signature = signature;
+        int split = signature.indexOf('v');
+        teams = new Team[signature.length() - 1];
+        types = new PieceType[teams.length];
+        long white = 0;
+        long swapped = 0;
+        for (int i = 0; i < teams.length; i++) {
+            int letter = i < split ? i : i + 1;
+            teams[i] = i < split ? Team.WHITE : Team.BLACK;
+            types[i] = TYPES[LETTERS.indexOf(signature.charAt(letter))];
+            white += 1L << materialShift(teams[i], types[i]);
+            swapped += 1L << materialShift(teams[i].other(), types[i]);
+        }
+        whiteKey = white;
+        swappedKey = swapped;
+        if (values.capacity() != bytes(teams.length))
+            throw new IllegalArgumentException(signature + " takes " + bytes(teams.length) + " bytes, not " + values.capacity());
+        this.values = values;
+    }
+
+    /**
+     * @throws IOException if `file` can't be mapped
+     * @throws IllegalArgumentException if it isn't named for a signature or is the wrong size for it
+     */
+    public static Bitbase open(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(EXTENSION)) throw new IllegalArgumentException(file + " isn't a " + EXTENSION + " file");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Bitbase(name.substring(0, name.length() - EXTENSION.length()),
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public void writeTo(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer all = values.duplicate();
+            all.clear();
+            while (all.hasRemaining()) channel.write(all);
+        }
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public int pieceCount() {
+        return teams.length;
+    }
+
+    /** @return how many positions a table with `pieces` pieces has */
+    static int positions(int pieces) {
+        return 2 << 6*pieces;
+    }
+
+    static int bytes(int pieces) {
+        return positions(pieces);
+    }
+
+    /** @return the entry for the position numbered `index` */
+    int entry(int index) {
+        return values.get(index) & 0xFF;
+    }
+
+    /** @return the value of the position numbered `index` */
+    int value(int index) {
+        return valueOf(entry(index));
+    }
+
+    static int valueOf(int entry) {
+        return entry == DRAW_ENTRY ? DRAW : entry == ILLEGAL_ENTRY ? ILLEGAL : entry % 2 == 0 ? WIN : LOSS;
+    }
+
+    /** @return the plies to mate in a won or lost position's `entry` */
+    static int pliesOf(int entry) {
+        return entry - 1;
+    }
+
+    /** @return the entry for mate in `plies` */
+    static int entryOf(int plies) {
+        return plies + 1;
+    }
+
+    /** @return the longest mate in the table, in plies, or -1 if it has none; reads the whole table */
+    int maxPlies() {
+        int ret = -1;
+        for (int index = 0; index < values.capacity(); index++) {
+            int entry = entry(index);
+            if (entry != DRAW_ENTRY && entry != ILLEGAL_ENTRY) ret = Math.max(ret, pliesOf(entry));
+        }
+        return ret;
+    }
+
+    /**
+     * @return `WIN`, `DRAW` or `LOSS` for the side to move on `board`, which must hold exactly this
+     * table's pieces; with the colors swapped if `swapped`
+     */
+    int probe(Board board, boolean swapped) {
+        return value(indexOf(board, swapped));
+    }
+
+    /** @return the number of `board`'s position, which must hold exactly this table's pieces */
+    int indexOf(Board board, boolean swapped) {
+        int index = (board.sideToMove() == Team.WHITE) != swapped ? 0 : 1;
+        long remaining = 0;
+        for (int i = 0; i < teams.length; i++) {
+            if (i == 0 || teams[i] != teams[i - 1] || types[i] != types[i - 1])
+                remaining = board.piecesOf(swapped ? teams[i].other() : teams[i], types[i]);
+            int square = Bitboards.first(remaining);
+            remaining &= remaining - 1;
+            index = index << 6 | (swapped ? square ^ 56 : square);
+        }
+        return index;
+    }
+
+    /** SIGNATURES **/
+
+    /**
+     * @return a one-number summary of which pieces are on `board`: each team's count of each type,
+     * 4 bits apiece
+     */
+    static long materialKey(Board board) {
+        long key = 0;
+        for (Team team : Team.values())
+            for (PieceType type : PieceType.values())
+                key += (long) Long.bitCount(board.piecesOf(team, type)) << materialShift(team, type);
+        return key;
+    }
+
+    private static int materialShift(Team team, PieceType type) {
+        return 4*(team.ordinal()*PieceType.COUNT + type.ordinal());
+    }
+
+    /**
+     * @return `signature` with each side's pieces in order (king, queen, rook, bishop, knight, pawn)
+     * and the stronger side (by material, then by its pieces' order) first, e.g. "KvKR" gives "KRvK"
+     * @throws IllegalArgumentException unless it is two sides, each with one king, separated by 'v',
+     * with no more than `MAX_PIECES` pieces
+     */
+    public static String canonical(String signature) {
+        String[] sides = signature.split("v", -1);
+        if (sides.length != 2) throw new IllegalArgumentException("not a signature like KRvK: " + signature);
+        if (signature.length() - 1 > MAX_PIECES)
+            throw new IllegalArgumentException(signature + " has more than " + MAX_PIECES + " pieces");
+        for (int i = 0; i < 2; i++) {
+            char[] letters = sides[i].toCharArray();
+            int[] order = new int[letters.length];
+            for (int j = 0; j < letters.length; j++) {
+                order[j] = LETTERS.indexOf(letters[j]);
+                if (order[j] < 0) throw new IllegalArgumentException(signature + ": no such piece " + letters[j]);
+            }
+            Arrays.sort(order);
+            StringBuilder side = new StringBuilder();
+            for (int letter : order) side.append(LETTERS.charAt(letter));
+            sides[i] = side.toString();
+            if (!sides[i].startsWith("K") || sides[i].lastIndexOf('K') != 0)
+                throw new IllegalArgumentException(signature + ": each side needs exactly one king");
+        }
+        return isStronger(sides[1], sides[0]) ? sides[1] + "v" + sides[0] : sides[0] + "v" + sides[1];
+    }
+
+    private static boolean isStronger(String side, String other) {
+        int difference = material(side) - material(other);
+        if (difference != 0) return difference > 0;
+        for (int i = 0; i < Math.min(side.length(), other.length()); i++)
+            if (side.charAt(i) != other.charAt(i))
+                return LETTERS.indexOf(side.charAt(i)) < LETTERS.indexOf(other.charAt(i));
+        return side.length() > other.length();
+    }
+
+    private static int material(String side) {
+        int ret = 0;
+        for (int i = 1; i < side.length(); i++)
+            ret += TYPES[LETTERS.indexOf(side.charAt(i))].getValue();
+        return ret;
+    }
+
+    /**
+     * @return true iff no position with these pieces can ever be mate, so there is no table to
+     * build: bare kings, or a king and one minor piece against a bare king
+     */
+    static boolean isDrawn(String signature) {
+        String pieces = signature.replace("K", "").replace("v", "");
+        return pieces.isEmpty() || pieces.equals("B") || pieces.equals("N");
+    }
+
+    /** @return `signature` without one of its pieces (by index, as in `teams`), canonical */
+    static String without(String signature, int piece) {
+        int letter = piece < signature.indexOf('v') ? piece : piece + 1;
+        return canonical(signature.substring(0, letter) + signature.substring(letter + 1));
+    }
+
+    @Override public String toString() {
+        return signature;
+    }
+}
@@ -0,0 +1,391 @@
+package player.strategies;
+
+import game.Attacks;
+import game.Bitboards;
+import game.PieceType;
+import game.Team;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static player.strategies.Strategy.STRATEGY_LOGGER;
+
+/**
+ * Builds `Bitbase`s by retrograde analysis: starting from the positions whose value is known
+ * outright (mate, stalemate, or a capture into a smaller table), it sweeps the whole table again
+ * and again, deciding each position once its children allow:
+ *
+ * - a position is won if some move leads to a position lost for the opponent, and the mate comes
+ *   one ply after the quickest such loss
+ * - it is lost if every move leads to a position won for the opponent, and the mate comes one ply
+ *   after the slowest such win
+ *
+ * Sweep `n` decides exactly the positions that are mate in `n` plies, by only looking at children
+ * that are mate in fewer; the others count as undecided for now. It stops once a sweep decides
+ * nothing new and no capture leads to a longer mate in a smaller table; whatever is left undecided
+ * is a draw, since neither side can force anything.
+ *
+ * Each sweep is split into chunks on a `ForkJoinPool`. The chunks write into the same array without
+ * locking: a position only ever goes from undecided to decided, and what a sweep decides is mate in
+ * exactly `n` plies, which the same sweep ignores wherever it reads it.
+ *
+ * Tables needed for captures (e.g. KRvK for KQvKR) are built first, and kept for later calls.
+ */
+final class BitbaseGenerator {
+
+    /* what the sweeps keep for each position: a `Bitbase` entry, except for these */
+    private static final int UNDECIDED = 0;
+    private static final int DRAWN = Bitbase.ILLEGAL_ENTRY - 1;
+
+    private static final int CHUNK = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final Map<String, Bitbase> built = new HashMap<>();
+
+    BitbaseGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /** @return the table for `signature` (see `Bitbase.canonical`), and any it needed, built if they haven't been */
+    Bitbase generate(String signature) {
+        signature = Bitbase.canonical(signature);
+        if (Bitbase.isDrawn(signature)) throw new IllegalArgumentException(signature + " is always drawn");
+        Bitbase ret = built.get(signature);
+        if (ret == null) {
+            ret = new Build(signature).run();
+            built.put(signature, ret);
+        }
+        return ret;
+    }
+
+    /** @return every table built so far */
+    Map<String, Bitbase> getBuilt() {
+        return built;
+    }
+
+    /** the state of one table's generation */
+    private final class Build {
+
+        private final String signature;
+        private final int pieces;
+        private final Team[] teams;
+        private final PieceType[] types;
+        /** by team ordinal, the index of its king */
+        private final int[] kings = new int[2];
+        private final byte[] states;
+
+        /** after piece `i` is captured: the smaller table (null if it's always drawn) ... */
+        private final Bitbase[] captureTables;
+        /** ... whether it has the colors swapped ... */
+        private final boolean[] captureSwapped;
+        /** ... and which of our pieces goes in each of its slots */
+        private final int[][] captureOrder;
+        /** the longest mate a capture can lead to, in plies */
+        private int longestCapture = -1;
+
+        Build(String signature) {
+            this.signature = signature;
+            // the table is built in place, and only wrapped up as a `Bitbase` here to learn its layout
+            states = new byte[Bitbase.positions(signature.length() - 1)];
+            Bitbase layout = new Bitbase(signature, ByteBuffer.wrap(states));
+            teams = layout.teams;
+            types = layout.types;
+            pieces = teams.length;
+            for (int i = 0; i < pieces; i++)
+                if (types[i] == PieceType.KING) kings[teams[i].ordinal()] = i;
+
+            captureTables = new Bitbase[pieces];
+            captureSwapped = new boolean[pieces];
+            captureOrder = new int[pieces][];
+            for (int i = 0; i < pieces; i++) {
+                if (types[i] == PieceType.KING) continue;
+                String smaller = Bitbase.without(signature, i);
+                if (Bitbase.isDrawn(smaller)) continue;
+                Bitbase table = generate(smaller);
+                captureTables[i] = table;
+                captureSwapped[i] = !matchesFirstTeam(table, i);
+                captureOrder[i] = slotsOf(table, i, captureSwapped[i]);
+                longestCapture = Math.max(longestCapture, table.maxPlies());
+            }
+        }
+
+        /** @return true iff `table`'s white pieces are exactly ours without piece `captured` */
+        private boolean matchesFirstTeam(Bitbase table, int captured) {
+            int slot = 0;
+            for (int i = 0; i < pieces; i++) {
+                if (i == captured || teams[i] != Team.WHITE) continue;
+                if (slot >= table.teams.length || table.teams[slot] != Team.WHITE || table.types[slot] != types[i]) return false;
+                slot++;
+            }
+            return slot == table.teams.length || table.teams[slot] != Team.WHITE;
+        }
+
+        private int[] slotsOf(Bitbase table, int captured, boolean swapped) {
+            int[] ret = new int[table.teams.length];
+            boolean[] used = new boolean[pieces];
+            used[captured] = true;
+            for (int slot = 0; slot < ret.length; slot++) {
+                for (int i = 0; i < pieces; i++) {
+                    Team team = swapped ? teams[i].other() : teams[i];
+                    if (!used[i] && team == table.teams[slot] && types[i] == table.types[slot]) {
+                        used[i] = true;
+                        ret[slot] = i;
+                        break;
+                    }
+                }
+            }
+            return ret;
+        }
+
+        Bitbase run() {
+            final long start = System.nanoTime();
+            int plies = 0;
+            long decided;
+            do {
+                if (plies > Bitbase.MAX_PLIES)
+                    throw new IllegalStateException(signature + " has mates longer than " + Bitbase.MAX_PLIES + " plies");
+                final int sweep = plies;
+                try {
+                    decided = pool.submit(() -> IntStream.range(0, (states.length + CHUNK - 1)/CHUNK)
+                        .parallel()
+                        .mapToLong(chunk -> sweep(chunk*CHUNK, Math.min(states.length, (chunk + 1)*CHUNK), sweep))
+                        .sum()).get();
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    throw new IllegalStateException("generating " + signature, e);
+                }
+                STRATEGY_LOGGER.debug("{}: sweep {} decided {} positions", signature, sweep, decided);
+                plies++;
+            } while (decided > 0 || plies <= longestCapture + 1);
+
+            for (int index = 0; index < states.length; index++)
+                if (states[index] == UNDECIDED || state(index) == DRAWN) states[index] = Bitbase.DRAW_ENTRY;
+            STRATEGY_LOGGER.info("generated {} in {} sweeps, {} ms",
+                signature, plies, (System.nanoTime() - start)/1_000_000);
+            return new Bitbase(signature, ByteBuffer.wrap(states));
+        }
+
+        private int state(int index) {
+            return states[index] & 0xFF;
+        }
+
+        /** @return how many positions in [from, to) were decided as mate in `plies`, or drawn */
+        private long sweep(int from, int to, int plies) {
+            final int[] squares = new int[pieces];
+            long decided = 0;
+            for (int index = from; index < to; index++) {
+                if (states[index] != UNDECIDED) continue;
+                int side = decode(index, squares);
+                if (plies == 0 && !isLegal(squares, side)) {
+                    states[index] = (byte) Bitbase.ILLEGAL_ENTRY;
+                    continue;
+                }
+                int state = evaluate(squares, side, -1, plies);
+                if (state != UNDECIDED) {
+                    states[index] = (byte) state;
+                    decided++;
+                }
+            }
+            return decided;
+        }
+
+        /** @return the side to move (0 for white), after filling `squares` */
+        private int decode(int index, int[] squares) {
+            for (int i = pieces - 1; i >= 0; i--) {
+                squares[i] = index & 63;
+                index >>>= 6;
+            }
+            return index;
+        }
+
+        private int encode(int[] squares, int side) {
+            int index = side;
+            for (int i = 0; i < pieces; i++) index = index << 6 | squares[i];
+            return index;
+        }
+
+        private boolean isLegal(int[] squares, int side) {
+            long occupied = 0;
+            for (int i = 0; i < pieces; i++) {
+                long bit = Bitboards.bit(squares[i]);
+                if ((occupied & bit) != 0) return false;
+                occupied |= bit;
+                // a pawn can't stand on its own back rank; on the far one it just can't move
+                if (types[i] == PieceType.PAWN && Bitboards.row(squares[i]) == (teams[i] == Team.WHITE ? 7 : 0))
+                    return false;
+            }
+            // the side that just moved can't have left its king attacked
+            Team waiting = side == 0 ? Team.BLACK : Team.WHITE;
+            return !isAttacked(squares[kings[waiting.ordinal()]], waiting.other(), squares, occupied, -1);
+        }
+
+        /**
+         * @return the entry for `side` to move, or `DRAWN`, as far as its children are decided;
+         * otherwise `UNDECIDED`. Children that are mate in `plies` or more count as undecided.
+         *
+         * @param enPassant the square a pawn could capture onto en passant, or -1
+         */
+        private int evaluate(int[] squares, int side, int enPassant, int plies) {
+            final Team us = side == 0 ? Team.WHITE : Team.BLACK;
+            long occupied = 0;
+            long ours = 0;
+            for (int i = 0; i < pieces; i++) {
+                occupied |= Bitboards.bit(squares[i]);
+                if (teams[i] == us) ours |= Bitboards.bit(squares[i]);
+            }
+            final Outcome outcome = new Outcome(plies);
+            for (int i = 0; i < pieces; i++) {
+                if (teams[i] != us) continue;
+                final int from = squares[i];
+                for (long targets = targets(i, from, occupied, ours); targets != 0; targets &= targets - 1) {
+                    int to = Bitboards.first(targets);
+                    outcome.add(play(squares, side, i, to, pieceOn(squares, to), occupied, plies));
+                }
+                if (types[i] == PieceType.PAWN && enPassant >= 0 && Bitboards.contains(Attacks.pawn(us, from), enPassant))
+                    outcome.add(play(squares, side, i, enPassant, pieceOn(squares, enPassant - forward(us)), occupied, plies));
+            }
+            if (!outcome.moved)
+                return isAttacked(squares[kings[us.ordinal()]], us.other(), squares, occupied, -1)
+                    ? Bitbase.entryOf(0) : DRAWN;
+            return outcome.state();
+        }
+
+        /**
+         * Moves piece `i` to `to`, capturing piece `captured` (or nothing, if -1), and looks the
+         * result up; `squares` is left as it was.
+         *
+         * @return the child's state for the opponent, or `ILLEGAL_ENTRY` if the move would leave our
+         * king attacked
+         */
+        private int play(int[] squares, int side, int i, int to, int captured, long occupied, int plies) {
+            final Team us = teams[i];
+            final int from = squares[i];
+            long after = occupied & ~Bitboards.bit(from) | Bitboards.bit(to);
+            if (captured >= 0) after &= ~Bitboards.bit(squares[captured]);
+            squares[i] = to;
+            try {
+                if (isAttacked(squares[kings[us.ordinal()]], us.other(), squares, after, captured))
+                    return Bitbase.ILLEGAL_ENTRY;
+                if (captured >= 0) return lookUpCapture(squares, 1 - side, captured);
+                if (types[i] == PieceType.PAWN && Math.abs(to - from) == 16) {
+                    // a double push the opponent could take en passant: the table doesn't know about
+                    // that, so work this child out by hand
+                    int passed = (from + to)/2;
+                    if ((Attacks.pawn(us, passed) & piecesOf(squares, us.other(), PieceType.PAWN)) != 0)
+                        return evaluate(squares.clone(), 1 - side, passed, plies);
+                }
+                return state(encode(squares, 1 - side));
+            }
+            finally {
+                squares[i] = from;
+            }
+        }
+
+        private int lookUpCapture(int[] squares, int side, int captured) {
+            Bitbase table = captureTables[captured];
+            if (table == null) return DRAWN;
+            boolean swapped = captureSwapped[captured];
+            int index = swapped ? 1 - side : side;
+            for (int i : captureOrder[captured])
+                index = index << 6 | (swapped ? squares[i] ^ 56 : squares[i]);
+            int entry = table.entry(index);
+            return entry == Bitbase.DRAW_ENTRY ? DRAWN : entry;
+        }
+
+        /** @return where piece `i`, on `from`, could move, not counting en passant or whether it leaves the king attacked */
+        private long targets(int i, int from, long occupied, long ours) {
+            if (types[i] != PieceType.PAWN)
+                return attacks(i, from, occupied) & ~ours;
+            final Team team = teams[i];
+            long ret = Attacks.pawn(team, from) & occupied & ~ours;
+            int one = from + forward(team);
+            if (one >= 0 && one < 64 && !Bitboards.contains(occupied, one)) {
+                ret |= Bitboards.bit(one);
+                int two = one + forward(team);
+                if (Bitboards.row(from) == (team == Team.WHITE ? 6 : 1) && !Bitboards.contains(occupied, two))
+                    ret |= Bitboards.bit(two);
+            }
+            return ret;
+        }
+
+        private long attacks(int i, int square, long occupied) {
+            switch (types[i]) {
+                case PAWN: return Attacks.pawn(teams[i], square);
+                case KNIGHT: return Attacks.knight(square);
+                case BISHOP: return Attacks.bishop(square, occupied);
+                case ROOK: return Attacks.rook(square, occupied);
+                case QUEEN: return Attacks.queen(square, occupied);
+                default: return Attacks.king(square);
+            }
+        }
+
+        /** @return true iff any `by` piece but `ignored` (e.g. one just captured) attacks `square` */
+        private boolean isAttacked(int square, Team by, int[] squares, long occupied, int ignored) {
+            for (int i = 0; i < pieces; i++)
+                if (i != ignored && teams[i] == by && Bitboards.contains(attacks(i, squares[i], occupied), square))
+                    return true;
+            return false;
+        }
+
+        /** @return the index of the piece on `square`, or -1 */
+        private int pieceOn(int[] squares, int square) {
+            for (int i = 0; i < pieces; i++)
+                if (squares[i] == square) return i;
+            return -1;
+        }
+
+        private long piecesOf(int[] squares, Team team, PieceType type) {
+            long ret = 0;
+            for (int i = 0; i < pieces; i++)
+                if (teams[i] == team && types[i] == type) ret |= Bitboards.bit(squares[i]);
+            return ret;
+        }
+    }
+
+    /** what one position's children, as far as they are decided, make of it */
+    private static final class Outcome {
+
+        /** children that are mate in this many plies or more count as undecided */
+        private final int plies;
+        private boolean moved;
+        private boolean undecided;
+        private boolean drawn;
+        /** the quickest mate the opponent can be handed, and the slowest it can give, or -1 */
+        private int quickestLoss = -1;
+        private int slowestWin = -1;
+
+        Outcome(int plies) {
+            this.plies = plies;
+        }
+
+        void add(int child) {
+            if (child == Bitbase.ILLEGAL_ENTRY) return;
+            moved = true;
+            if (child == UNDECIDED) undecided = true;
+            else if (child == DRAWN) drawn = true;
+            else if (Bitbase.valueOf(child) == Bitbase.LOSS) {
+                int mate = Bitbase.pliesOf(child);
+                if (mate >= plies) undecided = true;
+                else if (quickestLoss < 0 || mate < quickestLoss) quickestLoss = mate;
+            }
+            else if (Bitbase.pliesOf(child) >= plies) undecided = true;
+            else slowestWin = Math.max(slowestWin, Bitbase.pliesOf(child));
+        }
+
+        /** @return the entry, `DRAWN` or `UNDECIDED`, for a position with at least one legal move */
+        int state() {
+            if (quickestLoss >= 0) return Bitbase.entryOf(quickestLoss + 1);
+            if (undecided) return UNDECIDED;
+            return drawn ? DRAWN : Bitbase.entryOf(slowestWin + 1);
+        }
+    }
+
+    /** @return how a pawn of `team`'s square number changes as it advances one rank */
+    private static int forward(Team team) {
+        return team == Team.WHITE ? -8 : 8;
+    }
+}
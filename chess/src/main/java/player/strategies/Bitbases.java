@@ -0,0 +1,124 @@
+package player.strategies;
+
+import game.Board;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The `Bitbase`s a search can consult, e.g. every table in a directory. `probe` finds the one
+ * (if any) with the board's pieces.
+ *
+ * Tables are only read, so one set can be shared by any number of search threads.
+ *
+ * usage:
+ *
+ * <pre>
+ * Bitbases generate dir [signature ...]     build the tables for the given signatures (default:
+ *                                           `DEFAULT_SIGNATURES`), and any they need, into dir
+ * </pre>
+ */
+public final class Bitbases {
+
+    /** `probe` returns this when no table covers the position */
+    public static final int NONE = -1;
+    /** `probePlies` returns this when neither side can force mate */
+    public static final int NO_MATE = -2;
+
+    public static final List<String> DEFAULT_SIGNATURES = Arrays.asList("KQvK", "KRvK", "KPvK", "KBNvK", "KQvKR");
+
+    private final Bitbase[] tables;
+    private final int maxPieces;
+
+    public Bitbases(Collection<Bitbase> tables) {
+        this.tables = tables.toArray(new Bitbase[0]);
+        int max = 0;
+        for (Bitbase table : tables) max = Math.max(max, table.pieceCount());
+        maxPieces = max;
+    }
+
+    /** maps every table in `directory` */
+    public static Bitbases open(Path directory) throws IOException {
+        List<Bitbase> tables = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + Bitbase.EXTENSION)) {
+            for (Path file : files) tables.add(Bitbase.open(file));
+        }
+        return new Bitbases(tables);
+    }
+
+    /**
+     * @return `Bitbase.WIN`, `DRAW` or `LOSS` for the side to move on `board`; or `NONE` if no table
+     * has its pieces, or castling or en passant is possible (which the tables leave out)
+     */
+    public int probe(Board board) {
+        int entry = probeEntry(board);
+        return entry == NONE ? NONE : Bitbase.valueOf(entry);
+    }
+
+    /**
+     * @return how many plies it takes, with best play, for the side to move on `board` to mate (an
+     * odd number) or to be mated (an even one); `NO_MATE` if it's a draw; or `NONE` as for `probe`
+     */
+    public int probePlies(Board board) {
+        int entry = probeEntry(board);
+        return entry == NONE ? NONE : entry == Bitbase.DRAW_ENTRY ? NO_MATE : Bitbase.pliesOf(entry);
+    }
+
+    /** @return `board`'s entry in its table, or `NONE` */
+    private int probeEntry(Board board) {
+        if (Long.bitCount(board.occupied()) > maxPieces
+            || board.enPassantSquare() != Board.NO_EN_PASSANT
+            || board.castlingRights() != 0)
+            return NONE;
+        final long material = Bitbase.materialKey(board);
+        for (Bitbase table : tables) {
+            if (table.whiteKey == material) return table.entry(table.indexOf(board, false));
+            if (table.swappedKey == material) return table.entry(table.indexOf(board, true));
+        }
+        return NONE;
+    }
+
+    public int size() {
+        return tables.length;
+    }
+
+    /** @return the table with these pieces, in either order of colors, or null */
+    public Bitbase get(String signature) {
+        signature = Bitbase.canonical(signature);
+        for (Bitbase table : tables)
+            if (table.getSignature().equals(signature)) return table;
+        return null;
+    }
+
+    @Override public String toString() {
+        return "bitbases" + Arrays.toString(tables);
+    }
+
+    /** MAIN **/
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !args[0].equals("generate")) {
+            System.err.println("usage: Bitbases generate dir [signature ...]");
+            System.exit(2);
+        }
+        Path directory = Paths.get(args[1]);
+        List<String> signatures = args.length > 2 ? Arrays.asList(args).subList(2, args.length) : DEFAULT_SIGNATURES;
+        Files.createDirectories(directory);
+
+        BitbaseGenerator generator = new BitbaseGenerator(ForkJoinPool.commonPool());
+        for (String signature : signatures) generator.generate(signature);
+        for (Bitbase table : generator.getBuilt().values()) {
+            Path file = directory.resolve(table.getSignature() + Bitbase.EXTENSION);
+            table.writeTo(file);
+            System.out.println("wrote " + file);
+        }
+    }
+}
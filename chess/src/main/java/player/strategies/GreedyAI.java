@@ -1,5 +1,6 @@
 package player.strategies;
 
+import game.Bitboards;
 import game.Board;
 import game.cmd.BoardCommand;
 import game.BoardLoc;
@@ -15,6 +16,7 @@ public class GreedyAI implements Strategy {
     private final Team team;
     private final Board board;
     private PieceEvaluator pieceEvaluator;
+    private long nodes;
 
     public GreedyAI(Team team, Board board, PieceEvaluator pieceEvaluator) {
         this.team = team;
@@ -32,9 +34,12 @@ public class GreedyAI implements Strategy {
     @Override public BoardCommand chooseMove() {
 
         AIMove best = new AIMove(BoardCommand.empty(), Double.NEGATIVE_INFINITY);
+        nodes = 0;
         for (Piece p : board.livePiecesFor(team)) {
-            for (BoardLoc move : p.possibleMoves()) {
+            for (long m = p.moveMask(); m != 0; m &= m - 1) {
+                BoardLoc move = Bitboards.loc(Bitboards.first(m));
                 double value = evaluate(move);
+                nodes++;
                 if (value > best.value) {
                     BoardCommand command = new BoardCommand(p.getLoc(), move);
                     best = new AIMove(command, value);
@@ -47,4 +52,9 @@ public class GreedyAI implements Strategy {
         }
         return best.command;
     }
+
+    /** @return the moves the last `chooseMove` scored */
+    @Override public long getNodes() {
+        return nodes;
+    }
 }
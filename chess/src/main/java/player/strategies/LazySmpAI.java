@@ -0,0 +1,202 @@
+package player.strategies;
+
+import game.Board;
+import game.Team;
+import game.cmd.BoardCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An AI Strategy that runs `AlphaBetaAI` on several threads at once ("Lazy SMP").
+ *
+ * Each thread searches the same position with its own copy of the board, its own `MoveOrderer`
+ * and its own `PawnTable`, and all of them share one `TranspositionTable`. The threads don't divide up the
+ * work explicitly: they simply reuse each other's results through the table, and since their
+ * searches drift apart (half of them start one ply deeper), together they cover the tree faster
+ * than one thread could.
+ *
+ * The calling thread runs the main search; when it finishes (or `stop()` is called) the helpers are
+ * stopped, and the move comes from whichever search completed the deepest iteration. Every thread
+ * gets the full `SearchLimits`, so a node limit is per thread.
+ *
+ * Call `shutdown()` when done with it, to let go of the helper threads.
+ */
+public class LazySmpAI implements Strategy {
+
+    private final Board board;
+    private final Team team;
+    private final int threads;
+    private final TranspositionTable table;
+    /** one per thread, kept between moves so that their history tables keep learning */
+    private final MoveOrderer[] orderers;
+    /** one per thread too, so that each keeps its pawn table between moves */
+    private final BoardEvaluator[] evaluators;
+    private final ExecutorService helperPool;
+    private SearchLimits limits;
+    private boolean quiescence = true;
+    private Bitbases bitbases;
+
+    private volatile AlphaBetaAI[] searches = new AlphaBetaAI[0];
+    private volatile boolean stopRequested;
+    private long nodes;
+    private int completedDepth;
+    private double lastScore;
+
+    public LazySmpAI(Board board, Team team, SearchLimits limits, int threads) {
+        this(board, team, limits, threads, new TranspositionTable());
+    }
+
+    public LazySmpAI(Board board, Team team, SearchLimits limits, int threads, TranspositionTable table) {
+        if (threads < 1) throw new IllegalArgumentException("need at least 1 thread, not " + threads);
+        this.board = board;
+        this.team = team;
+        this.limits = limits;
+        this.threads = threads;
+        this.table = table;
+        orderers = new MoveOrderer[threads];
+        evaluators = new BoardEvaluator[threads];
+        for (int i = 0; i < threads; i++) {
+            orderers[i] = new MoveOrderer(PieceEvaluator.textbook());
+            evaluators[i] = new BoardEvaluator.EvaluateByTaperedTables(team, new PawnTable());
+        }
+        helperPool = threads == 1 ? null : Executors.newFixedThreadPool(threads - 1, r -> {
+            Thread thread = new Thread(r, "lazy-smp-helper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Team getTeam() {
+        return team;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public SearchLimits getLimits() {
+        return limits;
+    }
+
+    public void setLimits(SearchLimits limits) {
+        this.limits = limits;
+    }
+
+    public boolean usesQuiescence() {
+        return quiescence;
+    }
+
+    /** see `AlphaBetaAI.setQuiescence` */
+    public void setQuiescence(boolean quiescence) {
+        this.quiescence = quiescence;
+    }
+
+    public Bitbases getBitbases() {
+        return bitbases;
+    }
+
+    /** see `AlphaBetaAI.setBitbases`; the threads share them */
+    public void setBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+    }
+
+    /** @return the nodes visited by all threads during the last `chooseMove` */
+    @Override public long getNodes() {
+        return nodes;
+    }
+
+    /** @return the deepest iteration any thread completed during the last `chooseMove` */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /** @return the score (for `team`) of the move the last `chooseMove` returned */
+    public double getLastScore() {
+        return lastScore;
+    }
+
+    @Override public BoardCommand chooseMove() {
+        final long start = System.nanoTime();
+        AlphaBetaAI[] searches = new AlphaBetaAI[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new AlphaBetaAI(board.copy(), team, limits, table, orderers[i], evaluators[i]);
+            searches[i].firstDepth = 1 + i%2;
+            searches[i].setQuiescence(quiescence);
+            searches[i].setBitbases(bitbases);
+        }
+        this.searches = searches;
+        // a `stop()` that came in before the searches existed
+        if (stopRequested)
+            for (AlphaBetaAI search : searches) search.stop();
+
+        List<Future<BoardCommand>> helpers = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++)
+            helpers.add(helperPool.submit(searches[i]::chooseMove));
+
+        BoardCommand best;
+        try {
+            best = searches[0].chooseMove();
+        }
+        finally {
+            stopRequested = false;
+            for (int i = 1; i < threads; i++)
+                searches[i].stop();
+        }
+
+        int bestDepth = searches[0].getCompletedDepth();
+        double bestScore = searches[0].getLastScore();
+        nodes = searches[0].getNodes();
+        for (int i = 1; i < threads; i++) {
+            BoardCommand move = await(helpers.get(i - 1));
+            nodes += searches[i].getNodes();
+            if (searches[i].getCompletedDepth() > bestDepth) {
+                bestDepth = searches[i].getCompletedDepth();
+                bestScore = searches[i].getLastScore();
+                best = move;
+            }
+        }
+        completedDepth = bestDepth;
+        lastScore = bestScore;
+
+        long micros = Math.max(1, (System.nanoTime() - start)/1000);
+        STRATEGY_LOGGER.debug("lazy smp ({} threads) chose {} at depth {}: {} nodes in {} ms ({} nodes/sec); {}; main thread's {}",
+            threads, best, completedDepth, nodes, micros/1000, nodes*1_000_000/micros, table, searches[0].getEvaluator());
+        return best;
+    }
+
+    private static BoardCommand await(Future<BoardCommand> helper) {
+        try {
+            return helper.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for a helper search", e);
+        }
+        catch (ExecutionException e) {
+            throw new IllegalStateException("helper search failed", e.getCause());
+        }
+    }
+
+    /**
+     * Asks a running `chooseMove` (e.g. on another thread) to return as soon as it can, even if it
+     * has only just been called and its threads haven't got going yet.
+     */
+    public void stop() {
+        stopRequested = true;
+        for (AlphaBetaAI search : searches)
+            search.stop();
+    }
+
+    public void shutdown() {
+        if (helperPool != null) helperPool.shutdownNow();
+    }
+}
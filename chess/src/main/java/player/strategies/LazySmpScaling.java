@@ -0,0 +1,47 @@
+package player.strategies;
+
+import game.Board;
+
+/**
+ * Reports how `LazySmpAI`'s search speed (nodes/sec) scales with its thread count, by running a
+ * fixed-time search from the same position with 1, 2, 4, ... up to N threads.
+ *
+ * usage: LazySmpScaling [max threads (default: available processors)] [millis per search (default 2000)]
+ */
+public class LazySmpScaling {
+
+    /** an ordinary opening position: 1. e4 e5 2. Nf3 Nc6 3. Bc4 Nf6 */
+    private static final String[] OPENING = {"e2 e4", "e7 e5", "g1 f3", "b8 c6", "f1 c4", "g8 f6"};
+
+    public static void main(String[] args) {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        long millis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+
+        Board board = Board.completeSet();
+        for (String move : OPENING)
+            board.execute(move);
+
+        // let the JIT compile the search before anything is measured
+        new AlphaBetaAI(board.copy(), board.sideToMove(), SearchLimits.millis(millis)).chooseMove();
+
+        System.out.printf("%7s %8s %12s %12s %8s %6s%n", "threads", "millis", "nodes", "nodes/sec", "speedup", "depth");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+            LazySmpAI ai = new LazySmpAI(board, board.sideToMove(), SearchLimits.millis(millis), threads);
+            long start = System.nanoTime();
+            ai.chooseMove();
+            double seconds = (System.nanoTime() - start)/1e9;
+            ai.shutdown();
+
+            double nps = ai.getNodes()/seconds;
+            if (threads == 1) baseline = nps;
+            System.out.printf("%7d %8.0f %12d %12.0f %7.2fx %6d%n",
+                threads, seconds*1000, ai.getNodes(), nps, nps/baseline, ai.getCompletedDepth());
+        }
+    }
+
+    /** doubles, but doesn't skip `max` itself */
+    private static int nextThreadCount(int threads, int max) {
+        return threads < max && threads*2 > max ? max : threads*2;
+    }
+}
@@ -1,6 +1,8 @@
 package player.strategies;
 
 import game.Board;
+import game.Move;
+import game.MoveList;
 import game.cmd.BoardCommand;
 import game.Piece;
 import game.Team;
@@ -15,17 +17,37 @@ public class MinimaxAI implements Strategy {
     private final Board board;
     private final Team team;
     private BoardEvaluator boardEvaluator;
+    /** one reusable move buffer per search depth */
+    private final MoveList[] moveLists = new MoveList[SEARCH_DEPTH];
+    private final TranspositionTable table;
+    private long nodes;
 
     public MinimaxAI(Board board, Team team) {
+        this(board, team, new TranspositionTable());
+    }
+
+    public MinimaxAI(Board board, Team team, TranspositionTable table) {
         this.board = board;
         this.team = team;
+        this.table = table;
         boardEvaluator = new BoardEvaluator.EvaluateByPieces(team);
+        for (int i = 0; i < SEARCH_DEPTH; i++)
+            moveLists[i] = new MoveList();
+    }
+
+    public TranspositionTable getTable() {
+        return table;
     }
 
     public Team getTeam() {
         return team;
     }
 
+    /** @return the positions the last `chooseMove` visited */
+    @Override public long getNodes() {
+        return nodes;
+    }
+
     /**
      * Choose the move that scores highest according to minimax
      *
@@ -34,6 +56,7 @@ public class MinimaxAI implements Strategy {
     @Override public BoardCommand chooseMove() {
         BoardCommand bestMove = null;
         double bestVal = Double.NEGATIVE_INFINITY;
+        nodes = 0;
         for (BoardCommand curMove : board.getMovesFor(team)) {
             double curVal = minimax(curMove);
             if (curVal > bestVal) {
@@ -41,6 +64,7 @@ public class MinimaxAI implements Strategy {
                 bestVal = curVal;
             }
         }
+        STRATEGY_LOGGER.debug("minimax chose {} ({}); {}", bestMove, bestVal, table);
         return bestMove;
     }
 
@@ -56,22 +80,41 @@ public class MinimaxAI implements Strategy {
 
     /**
      * run the minimax algorithm on the current state of the board
+     *
+     * Results are cached in the transposition table, so a position reached again through a
+     * different move order (with at least as much depth left to search) isn't searched again.
      */
     private double minimax(int curDepth, boolean maximize) {
+        nodes++;
         if (curDepth == SEARCH_DEPTH) {
             return boardEvaluator.evaluate(board);
         }
         else {
+            final int depthLeft = SEARCH_DEPTH - curDepth;
+            final long key = board.zobristKey();
+            final long cached = table.probe(key);
+            if (cached != TranspositionTable.MISS && TranspositionTable.depth(cached) >= depthLeft) {
+                return TranspositionTable.score(cached);
+            }
+
             double bestScore = 0;
-            for (BoardCommand move : board.getMovesFor(team)) {
+            int bestMove = Move.NONE;
+            MoveList moves = moveLists[curDepth];
+            board.getMovesFor(team, moves);
+            for (int i = 0; i < moves.size(); i++) {
+                int move = moves.get(i);
                 board.execute(move);
                 double score = minimax(curDepth + 1, !maximize);
+                if (maximize ? score > bestScore : score < bestScore) {
+                    bestMove = move;
+                }
                 bestScore = maximize
                     ? Math.max(score, bestScore)
                     : Math.min(score, bestScore);
 
-                board.undoMove();
+                board.undoMove(move);
             }
+            table.store(key, depthLeft, bestScore, TranspositionTable.EXACT, bestMove);
             return bestScore;
         }
     }
@@ -0,0 +1,140 @@
+package player.strategies;
+
+import game.Board;
+import game.Move;
+import game.MoveList;
+import game.PieceType;
+import game.Team;
+
+import java.util.Arrays;
+
+/**
+ * Decides which moves a search should try first. Alpha-beta prunes the most when the best move is
+ * searched first, so the better the guesses here, the fewer nodes a search visits.
+ *
+ * Moves are tried in this order:
+ *
+ * 1. the "hash move": the best move found the last time this position was searched (see
+ *    `TranspositionTable`)
+ * 2. captures, most valuable victim first, then least valuable attacker first ("MVV-LVA"), using
+ *    the values of the given `PieceEvaluator`
+ * 3. "killer moves": the last two quiet moves that caused a cutoff at the same ply, since sibling
+ *    positions tend to be refuted by the same move
+ * 4. the remaining quiet moves, best "history" first: how often (weighted by depth) each move has
+ *    caused a cutoff anywhere in the search
+ *
+ * Use one `MoveOrderer` per search thread; it remembers killers and history between the positions
+ * of a search, and `newSearch` ages them between searches.
+ */
+public class MoveOrderer {
+
+    /** `sort` puts every capture above every quiet move */
+    private static final int CAPTURE_BASE = 1 << 30;
+    private static final int KILLER_SCORE = CAPTURE_BASE - 1;
+    /** history scores are halved before they can grow past this (and into the killers) */
+    private static final int MAX_HISTORY = 1 << 24;
+
+    private final int[] values = new int[PieceType.COUNT];
+    private final int[][] killers = new int[SearchLimits.MAX_DEPTH][2];
+    /** indexed by `Team.ordinal()`, from square, to square */
+    private final int[][][] history = new int[2][64][64];
+    private final MovePicker[] pickers = new MovePicker[SearchLimits.MAX_DEPTH];
+
+    public MoveOrderer(Strategy.PieceEvaluator evaluator) {
+        for (PieceType type : PieceType.values())
+            values[type.ordinal()] = evaluator.valueOf(type);
+        for (int ply = 0; ply < pickers.length; ply++)
+            pickers[ply] = new MovePicker(this, ply);
+    }
+
+    /** forgets the killers, and halves the history so that newer cutoffs count for more */
+    public void newSearch() {
+        for (int[] plyKillers : killers)
+            Arrays.fill(plyKillers, Move.NONE);
+        ageHistory();
+    }
+
+    private void ageHistory() {
+        for (int[][] team : history)
+            for (int[] from : team)
+                for (int to = 0; to < from.length; to++)
+                    from[to] >>= 1;
+    }
+
+    /**
+     * @return the picker for `ply`, ready to hand out `side`'s moves in the current position. Each
+     * ply has a single picker that is reused, so a ply's moves must be used up (or abandoned)
+     * before the same ply is started again.
+     */
+    public MovePicker start(Board board, Team side, int ply, int hashMove) {
+        MovePicker picker = pickers[ply];
+        picker.reset(board, side, hashMove, false);
+        return picker;
+    }
+
+    /** Like `start`, but the picker only hands out captures, best first; for quiescence search. */
+    public MovePicker startCaptures(Board board, Team side, int ply) {
+        MovePicker picker = pickers[ply];
+        picker.reset(board, side, Move.NONE, true);
+        return picker;
+    }
+
+    /** tells the orderer that `move` was good enough to end the search of its position early */
+    public void recordCutoff(Team side, int move, int ply, int depth) {
+        if (Move.isCapture(move)) return; // captures are already ordered well
+        int[] plyKillers = killers[ply];
+        if (plyKillers[0] != move) {
+            plyKillers[1] = plyKillers[0];
+            plyKillers[0] = move;
+        }
+        int[] fromHistory = history[side.ordinal()][Move.from(move)];
+        fromHistory[Move.to(move)] += depth*depth;
+        if (fromHistory[Move.to(move)] > MAX_HISTORY) ageHistory();
+    }
+
+    /**
+     * Puts all of `moves` in order at once, for when every move will be searched anyway (e.g. at
+     * the root).
+     */
+    public void sort(MoveList moves, Team side, int ply, int hashMove) {
+        int[] scores = new int[moves.size()];
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            scores[i] = move == hashMove ? Integer.MAX_VALUE
+                : Move.isCapture(move) ? CAPTURE_BASE + captureScore(move)
+                : isKiller(move, ply) ? KILLER_SCORE
+                : historyScore(side, move);
+        }
+        // insertion sort: lists are short and often already nearly sorted
+        for (int i = 1; i < moves.size(); i++) {
+            int move = moves.get(i);
+            int score = scores[i];
+            int j = i - 1;
+            for (; j >= 0 && scores[j] < score; j--) {
+                moves.set(j + 1, moves.get(j));
+                scores[j + 1] = scores[j];
+            }
+            moves.set(j + 1, move);
+            scores[j + 1] = score;
+        }
+    }
+
+    /** SCORES */
+
+    /** @return MVV-LVA: higher for more valuable victims, and for cheaper attackers among those */
+    int captureScore(int move) {
+        return values[Move.captured(move).ordinal()]*1024 - values[Move.moved(move).ordinal()];
+    }
+
+    int historyScore(Team side, int move) {
+        return history[side.ordinal()][Move.from(move)][Move.to(move)];
+    }
+
+    boolean isKiller(int move, int ply) {
+        return killers[ply][0] == move || killers[ply][1] == move;
+    }
+
+    int killer(int ply, int i) {
+        return killers[ply][i];
+    }
+}
@@ -0,0 +1,131 @@
+package player.strategies;
+
+import game.Board;
+import game.Move;
+import game.MoveList;
+import game.Team;
+
+/**
+ * Hands out one position's moves in the order described in `MoveOrderer`, generating each group
+ * only when the one before it has run out. When the hash move or a capture causes a cutoff, the
+ * quiet moves are never generated at all. Every move it hands out is legal.
+ *
+ * Get one from `MoveOrderer.start`, then call `next` until it returns `Move.NONE`.
+ */
+public final class MovePicker {
+
+    private static final int HASH = 0;
+    private static final int CAPTURES = 1;
+    private static final int KILLERS = 2;
+    private static final int QUIETS = 3;
+    private static final int DONE = 4;
+
+    private final MoveOrderer orderer;
+    private final int ply;
+    private final MoveList moves = new MoveList();
+    private int[] scores = new int[64];
+
+    private Board board;
+    private Team side;
+    private int hashMove;
+    private boolean capturesOnly;
+    private int stage;
+    /** the next index of `moves` to hand out, or of the killers while in that stage */
+    private int index;
+
+    MovePicker(MoveOrderer orderer, int ply) {
+        this.orderer = orderer;
+        this.ply = ply;
+    }
+
+    void reset(Board board, Team side, int hashMove, boolean capturesOnly) {
+        this.board = board;
+        this.side = side;
+        this.capturesOnly = capturesOnly;
+        // the hash move may come from a different position that happens to share its slot
+        this.hashMove = hashMove != Move.NONE && board.isLegal(side, hashMove) ? hashMove : Move.NONE;
+        stage = HASH;
+    }
+
+    /** @return the next move to try, or `Move.NONE` when there are none left */
+    @SuppressWarnings("fallthrough") // each stage runs on into the next once it's used up
+    public int next() {
+        switch (stage) {
+            case HASH:
+                stage = CAPTURES;
+                board.getLegalCapturesFor(side, moves);
+                scoreCaptures();
+                index = 0;
+                if (hashMove != Move.NONE) return hashMove;
+                // fall through
+            case CAPTURES:
+                while (index < moves.size()) {
+                    int move = pickBest();
+                    if (move != hashMove) return move;
+                }
+                if (capturesOnly) {
+                    stage = DONE;
+                    return Move.NONE;
+                }
+                stage = KILLERS;
+                index = 0;
+                // fall through
+            case KILLERS:
+                while (index < 2) {
+                    int killer = orderer.killer(ply, index++);
+                    if (killer != Move.NONE && killer != hashMove
+                        && !Move.isCapture(killer) && board.isLegal(side, killer))
+                        return killer;
+                }
+                stage = QUIETS;
+                board.getLegalQuietMovesFor(side, moves);
+                scoreQuiets();
+                index = 0;
+                // fall through
+            case QUIETS:
+                while (index < moves.size()) {
+                    int move = pickBest();
+                    if (move != hashMove && !orderer.isKiller(move, ply)) return move;
+                }
+                stage = DONE;
+                // fall through
+            default:
+                return Move.NONE;
+        }
+    }
+
+    private void scoreCaptures() {
+        ensureScoreCapacity();
+        for (int i = 0; i < moves.size(); i++)
+            scores[i] = orderer.captureScore(moves.get(i));
+    }
+
+    private void scoreQuiets() {
+        ensureScoreCapacity();
+        for (int i = 0; i < moves.size(); i++)
+            scores[i] = orderer.historyScore(side, moves.get(i));
+    }
+
+    private void ensureScoreCapacity() {
+        if (scores.length < moves.size()) scores = new int[moves.size()*2];
+    }
+
+    /**
+     * Selection sort, one step at a time: swaps the best remaining move to `index` and returns it.
+     * Cheaper than sorting up front, since a cutoff usually comes after only a few moves.
+     */
+    private int pickBest() {
+        int best = index;
+        for (int i = index + 1; i < moves.size(); i++)
+            if (scores[i] > scores[best])
+                best = i;
+        int move = moves.get(best);
+        int score = scores[best];
+        moves.set(best, moves.get(index));
+        scores[best] = scores[index];
+        moves.set(index, move);
+        scores[index] = score;
+        index++;
+        return move;
+    }
+}
@@ -0,0 +1,93 @@
+package player.strategies;
+
+import game.Bitboards;
+import game.Team;
+
+/**
+ * Scores the pawn structure: doubled, isolated and passed pawns. It depends on nothing but where
+ * the pawns are, so a search can cache it by `Board.pawnKey()` (see `PawnTable`).
+ *
+ * Scores are in centipawns from white's side, with a middlegame and an endgame part (passed pawns
+ * matter much more once the pieces are gone), packed into one long; read them with `middlegame`
+ * and `endgame`.
+ */
+public final class PawnStructure {
+
+    /** for each extra pawn on a file */
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    /** for each pawn with no friendly pawn on either neighboring file */
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -20;
+    /** for a pawn with no enemy pawn ahead of it on its own or a neighboring file, by rank (from its own side) */
+    private static final int[] PASSED_MIDDLEGAME = {0, 0, 5, 10, 20, 35, 60, 100, 0};
+    private static final int[] PASSED_ENDGAME = {0, 0, 10, 20, 40, 70, 120, 200, 0};
+
+    private static final long[] FILES = new long[8];
+    private static final long[] NEIGHBOR_FILES = new long[8];
+    /** indexed by team, square: the squares ahead of it on its own and the neighboring files */
+    private static final long[][] PASSED_SPANS = new long[2][64];
+
+    static {
+        for (int col = 0; col < 8; col++)
+            for (int row = 0; row < 8; row++)
+                FILES[col] |= Bitboards.bit(Bitboards.square(row, col));
+        for (int col = 0; col < 8; col++)
+            NEIGHBOR_FILES[col] = (col > 0 ? FILES[col - 1] : 0) | (col < 7 ? FILES[col + 1] : 0);
+        for (int square = 0; square < 64; square++) {
+            long span = FILES[Bitboards.col(square)] | NEIGHBOR_FILES[Bitboards.col(square)];
+            int row = Bitboards.row(square);
+            for (int other = 0; other < 64; other++) {
+                // white moves toward row 0, black toward row 7
+                if (Bitboards.row(other) < row) PASSED_SPANS[Team.WHITE.ordinal()][square] |= span & Bitboards.bit(other);
+                if (Bitboards.row(other) > row) PASSED_SPANS[Team.BLACK.ordinal()][square] |= span & Bitboards.bit(other);
+            }
+        }
+    }
+
+    private PawnStructure() {
+    }
+
+    /** @return the packed score of the structure made by these pawns, from white's side */
+    public static long evaluate(long whitePawns, long blackPawns) {
+        long white = evaluate(Team.WHITE, whitePawns, blackPawns);
+        long black = evaluate(Team.BLACK, blackPawns, whitePawns);
+        return pack(middlegame(white) - middlegame(black), endgame(white) - endgame(black));
+    }
+
+    private static long evaluate(Team team, long own, long enemy) {
+        int middlegame = 0;
+        int endgame = 0;
+        for (int col = 0; col < 8; col++) {
+            int onFile = Long.bitCount(own & FILES[col]);
+            if (onFile > 1) {
+                middlegame += (onFile - 1)*DOUBLED_MIDDLEGAME;
+                endgame += (onFile - 1)*DOUBLED_ENDGAME;
+            }
+            if (onFile > 0 && (own & NEIGHBOR_FILES[col]) == 0) {
+                middlegame += onFile*ISOLATED_MIDDLEGAME;
+                endgame += onFile*ISOLATED_ENDGAME;
+            }
+        }
+        for (long m = own; m != 0; m &= m - 1) {
+            int square = Bitboards.first(m);
+            if ((PASSED_SPANS[team.ordinal()][square] & enemy) != 0) continue;
+            int rank = team == Team.WHITE ? 8 - Bitboards.row(square) : Bitboards.row(square) + 1;
+            middlegame += PASSED_MIDDLEGAME[rank];
+            endgame += PASSED_ENDGAME[rank];
+        }
+        return pack(middlegame, endgame);
+    }
+
+    static long pack(int middlegame, int endgame) {
+        return (long) middlegame << 32 | endgame & 0xFFFFFFFFL;
+    }
+
+    public static int middlegame(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    public static int endgame(long packed) {
+        return (int) packed;
+    }
+}
@@ -0,0 +1,75 @@
+package player.strategies;
+
+import game.Board;
+import game.PieceType;
+import game.Team;
+
+/**
+ * A small cache of `PawnStructure` scores, keyed by `Board.pawnKey()`. The pawns rarely change
+ * between one leaf of a search and the next, so nearly every lookup is a hit, and the structure only
+ * has to be worked out again after a pawn moves or is captured.
+ *
+ * Unlike `TranspositionTable` it isn't meant to be shared: use one per search thread.
+ */
+public class PawnTable {
+
+    public static final int DEFAULT_SLOTS = 1 << 14;
+
+    private final long[] keys;
+    private final long[] scores;
+    private final boolean[] filled;
+    private final int indexMask;
+
+    private long hits;
+    private long misses;
+
+    public PawnTable() {
+        this(DEFAULT_SLOTS);
+    }
+
+    /** @param slots rounded down to a power of two */
+    public PawnTable(int slots) {
+        if (slots < 1) throw new IllegalArgumentException("table needs at least 1 slot, not " + slots);
+        slots = Integer.highestOneBit(slots);
+        keys = new long[slots];
+        scores = new long[slots];
+        filled = new boolean[slots];
+        indexMask = slots - 1;
+    }
+
+    /** @return the packed `PawnStructure` score of `board`'s pawns, from white's side */
+    public long evaluate(Board board) {
+        final long key = board.pawnKey();
+        final int index = (int) key & indexMask;
+        if (filled[index] && keys[index] == key) {
+            hits++;
+            return scores[index];
+        }
+        misses++;
+        long score = PawnStructure.evaluate(board.piecesOf(Team.WHITE, PieceType.PAWN), board.piecesOf(Team.BLACK, PieceType.PAWN));
+        keys[index] = key;
+        scores[index] = score;
+        filled[index] = true;
+        return score;
+    }
+
+    /** STATISTICS **/
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    @Override public String toString() {
+        long probes = hits + misses;
+        return String.format("pawns[%d slots: %d hits, %d misses (%.1f%% hit rate)]",
+            capacity(), hits, misses, probes == 0 ? 0.0 : 100.0*hits/probes);
+    }
+}
@@ -0,0 +1,82 @@
+package player.strategies;
+
+/**
+ * How long a search may run: any combination of a depth, a wall-clock time and a node count. The
+ * search stops at whichever limit it reaches first.
+ */
+public class SearchLimits {
+
+    /** no search can go deeper than this many plies */
+    public static final int MAX_DEPTH = 64;
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final int depth;
+    private final long millis;
+    private final long nodes;
+
+    private SearchLimits(int depth, long millis, long nodes) {
+        if (depth < 1 || depth > MAX_DEPTH)
+            throw new IllegalArgumentException("depth must be from 1 to " + MAX_DEPTH + ", not " + depth);
+        if (millis < 1) throw new IllegalArgumentException("time limit must be positive, not " + millis);
+        if (nodes < 1) throw new IllegalArgumentException("node limit must be positive, not " + nodes);
+        this.depth = depth;
+        this.millis = millis;
+        this.nodes = nodes;
+    }
+
+    /** FACTORIES **/
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, UNLIMITED, UNLIMITED);
+    }
+
+    public static SearchLimits millis(long millis) {
+        return new SearchLimits(MAX_DEPTH, millis, UNLIMITED);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, UNLIMITED, nodes);
+    }
+
+    /** only stops at `MAX_DEPTH` (or when told to stop) */
+    public static SearchLimits infinite() {
+        return new SearchLimits(MAX_DEPTH, UNLIMITED, UNLIMITED);
+    }
+
+    public SearchLimits withDepth(int depth) {
+        return new SearchLimits(depth, millis, nodes);
+    }
+
+    public SearchLimits withMillis(long millis) {
+        return new SearchLimits(depth, millis, nodes);
+    }
+
+    public SearchLimits withNodes(long nodes) {
+        return new SearchLimits(depth, millis, nodes);
+    }
+
+    /** GETTERS **/
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean hasTimeLimit() {
+        return millis != UNLIMITED;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override public String toString() {
+        return "SearchLimits{depth=" + depth
+            + (hasTimeLimit() ? ", millis=" + millis : "")
+            + (nodes != UNLIMITED ? ", nodes=" + nodes : "")
+            + "}";
+    }
+}
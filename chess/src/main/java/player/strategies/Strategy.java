@@ -3,6 +3,8 @@ package player.strategies;
 import game.Board;
 import game.cmd.BoardCommand;
 import game.Piece;
+import game.PieceSquare;
+import game.PieceType;
 import game.Team;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +17,14 @@ public interface Strategy {
     Logger STRATEGY_LOGGER = LoggerFactory.getLogger(Strategy.class);
     BoardCommand chooseMove();
 
+    /**
+     * @return how many positions the last `chooseMove` looked at (however the strategy counts
+     * them), e.g. to compare strategies' speed; 0 if it doesn't count
+     */
+    default long getNodes() {
+        return 0;
+    }
+
     interface PieceEvaluator {
 
         static TextbookEvaluator textbook() {
@@ -23,18 +33,17 @@ public interface Strategy {
 
         int valueOf(Piece p);
 
+        /** @return the value of any piece of this type, e.g. for scoring moves without the pieces */
+        int valueOf(PieceType type);
+
         class TextbookEvaluator implements PieceEvaluator {
             @Override public int valueOf(Piece p) {
-                // wishing Scala were here.
-                if (p instanceof Piece.Rook) return 5;
-                if (p instanceof Piece.Knight) return 3;
-                if (p instanceof Piece.Bishop) return 3;
-                if (p instanceof Piece.King) return 100;
-                if (p instanceof Piece.Queen) return 9;
-                if (p instanceof Piece.Pawn) return 1;
                 if (p instanceof Piece.ZERO_VALUE) return 0;
-                STRATEGY_LOGGER.error("can't evaluate piece {}", p);
-                return -1;
+                return valueOf(p.type);
+            }
+
+            @Override public int valueOf(PieceType type) {
+                return type.getValue();
             }
         }
     }
@@ -71,17 +80,81 @@ public interface Strategy {
             return pieceEvaluator.valueOf(piece);
         }
 
-        static class EvaluateByPieces extends BoardEvaluator {
+        @Override public String toString() {
+            return getClass().getSimpleName();
+        }
+
+        public static class EvaluateByPieces extends BoardEvaluator {
+
+            public EvaluateByPieces(Team team) {
+                super(team);
+            }
+
+            /** uses the textbook values, which the board keeps a running total of */
+            @Override public double evaluate(Board board) {
+                return board.material(team) - board.material(team.other());
+            }
+        }
+
+        /** Material plus middlegame piece-square bonuses (see `PieceSquare`), in pawns. */
+        public static class EvaluateByPiecesAndSquares extends BoardEvaluator {
 
-            EvaluateByPieces(Team team) {
+            public EvaluateByPiecesAndSquares(Team team) {
                 super(team);
             }
 
             @Override public double evaluate(Board board) {
-                double sum = 0;
-                for (Piece p : board.getLivePieces())
-                    sum += p.team == team ? evaluatePiece(p) : -evaluatePiece(p);
-                return sum;
+                int centipawns = board.placement(team) - board.placement(team.other());
+                return board.material(team) - board.material(team.other()) + centipawns/100.0;
+            }
+        }
+
+        /**
+         * Material plus piece-square bonuses, blending the middlegame and endgame tables by how much
+         * material is left ("tapered" evaluation): all middlegame at the start, all endgame once only
+         * kings and pawns remain. So e.g. the king is kept safe early and marched to the center late,
+         * without the score jumping when the last piece comes off.
+         *
+         * Every term is a running total kept by the board, so this is a handful of field reads. The
+         * tables are the board's own (see `Board.usePieceSquareTables`), so set those to evaluate
+         * with tables loaded from a file.
+         *
+         * Given a `PawnTable`, it also scores the pawn structure (see `PawnStructure`), tapered the
+         * same way; that is one table lookup while the pawns stay put.
+         */
+        public static class EvaluateByTaperedTables extends BoardEvaluator {
+            private final PawnTable pawnTable;
+
+            public EvaluateByTaperedTables(Team team) {
+                this(team, null);
+            }
+
+            /** @param pawnTable to score the pawn structure with, or null to leave it out */
+            public EvaluateByTaperedTables(Team team, PawnTable pawnTable) {
+                super(team);
+                this.pawnTable = pawnTable;
+            }
+
+            public PawnTable getPawnTable() {
+                return pawnTable;
+            }
+
+            @Override public double evaluate(Board board) {
+                int phase = Math.min(board.phase(), PieceSquare.MAX_PHASE);
+                int middlegame = board.placement(team) - board.placement(team.other());
+                int endgame = board.endgamePlacement(team) - board.endgamePlacement(team.other());
+                if (pawnTable != null) {
+                    long pawns = pawnTable.evaluate(board);
+                    int sign = team == Team.WHITE ? 1 : -1;
+                    middlegame += sign*PawnStructure.middlegame(pawns);
+                    endgame += sign*PawnStructure.endgame(pawns);
+                }
+                double centipawns = (middlegame*phase + endgame*(PieceSquare.MAX_PHASE - phase))/(double) PieceSquare.MAX_PHASE;
+                return board.material(team) - board.material(team.other()) + centipawns/100;
+            }
+
+            @Override public String toString() {
+                return pawnTable == null ? super.toString() : super.toString() + " with " + pawnTable;
             }
         }
     }
@@ -0,0 +1,152 @@
+package player.strategies;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size cache of search results, keyed by `Board.zobristKey()`.
+ *
+ * Each slot is two longs: the packed entry, and the position key XOR'd with that entry. A probe
+ * only accepts the slot if XOR'ing them back gives the key it asked for. This means a slot whose
+ * two halves were written by different threads at the same time is simply seen as a miss, so the
+ * table can be shared between search threads without any locking. (The hit/miss statistics are
+ * plain counters, so they undercount a little when it is.)
+ *
+ * Packed entry layout:
+ *
+ * <pre>
+ * bits  0-20  best move (see `Move`), or `Move.NONE`
+ * bits 21-22  bound type: `EXACT`, `LOWER_BOUND` or `UPPER_BOUND`
+ * bits 23-30  depth the score was searched to
+ * bit  31     always set, so that a filled slot is never 0
+ * bits 32-63  score, as float bits
+ * </pre>
+ *
+ * When two positions want the same slot, the one searched to a greater depth wins
+ * ("depth-preferred" replacement), since it took more work to produce.
+ */
+public class TranspositionTable {
+
+    public static final int DEFAULT_MEGABYTES = 16;
+
+    /** `probe` returns this when the position isn't in the table */
+    public static final long MISS = 0;
+
+    /** the score is exactly the position's value */
+    public static final int EXACT = 0;
+    /** the search failed high: the true value is at least the score */
+    public static final int LOWER_BOUND = 1;
+    /** the search failed low: the true value is at most the score */
+    public static final int UPPER_BOUND = 2;
+
+    private static final int BYTES_PER_ENTRY = 16;
+    private static final long FILLED = 1L << 31;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int indexMask;
+
+    private long hits;
+    private long misses;
+    private long stores;
+    private long overwrites;
+
+    public TranspositionTable() {
+        this(DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * @param megabytes roughly how much memory to use; rounded down to a power-of-two slot count
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) throw new IllegalArgumentException("table needs at least 1 MB, not " + megabytes);
+        long slots = Long.highestOneBit((long) megabytes*1024*1024/BYTES_PER_ENTRY);
+        slots = Math.min(slots, 1 << 30);
+        keys = new long[(int) slots];
+        entries = new long[(int) slots];
+        indexMask = (int) slots - 1;
+    }
+
+    /**
+     * @return the packed entry for `key` (read it with the static accessors below), or `MISS`
+     */
+    public long probe(long key) {
+        int index = (int) key & indexMask;
+        long entry = entries[index];
+        if (entry != MISS && (keys[index] ^ entry) == key) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        return MISS;
+    }
+
+    public void store(long key, int depth, double score, int bound, int bestMove) {
+        int index = (int) key & indexMask;
+        long existing = entries[index];
+        boolean samePosition = (keys[index] ^ existing) == key;
+        if (existing != MISS && !samePosition && depth(existing) > depth) return;
+        if (existing != MISS && !samePosition) overwrites++;
+
+        long entry = (bestMove & 0x1FFFFFL)
+            | (long) bound << 21
+            | (long) Math.min(depth, 255) << 23
+            | FILLED
+            | (long) Float.floatToIntBits((float) score) << 32;
+        entries[index] = entry;
+        keys[index] = key ^ entry;
+        stores++;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(entries, 0);
+        hits = misses = stores = overwrites = 0;
+    }
+
+    /** ENTRY ACCESSORS **/
+
+    public static int move(long entry) {
+        return (int) (entry & 0x1FFFFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> 21 & 3);
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 23 & 0xFF);
+    }
+
+    public static double score(long entry) {
+        return Float.intBitsToFloat((int) (entry >>> 32));
+    }
+
+    /** STATISTICS **/
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    public long stores() {
+        return stores;
+    }
+
+    /** @return how many times an entry for one position replaced an entry for a different one */
+    public long overwrites() {
+        return overwrites;
+    }
+
+    @Override public String toString() {
+        long probes = hits + misses;
+        return String.format("TT[%d slots: %d hits, %d misses (%.1f%% hit rate), %d stores, %d overwrites]",
+            capacity(), hits, misses, probes == 0 ? 0.0 : 100.0*hits/probes, stores, overwrites);
+    }
+}
@@ -0,0 +1,50 @@
+package game;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The lookup tables must agree with walking the board square by square.
+ */
+public class AttacksTest {
+
+    @Test public void magicsMatchRayWalking() {
+        Random random = new Random(7);
+        for (int square = 0; square < 64; square++) {
+            for (int i = 0; i < 500; i++) {
+                long occupied = random.nextLong() & random.nextLong();
+                assertEquals(Attacks.slowRook(square, occupied), Attacks.rook(square, occupied));
+                assertEquals(Attacks.slowBishop(square, occupied), Attacks.bishop(square, occupied));
+            }
+        }
+    }
+
+    @Test public void stepperTableSizes() {
+        assertEquals(2, Long.bitCount(Attacks.knight(Bitboards.square(0, 0))));
+        assertEquals(8, Long.bitCount(Attacks.knight(Bitboards.square(4, 4))));
+        assertEquals(3, Long.bitCount(Attacks.king(Bitboards.square(7, 7))));
+        assertEquals(8, Long.bitCount(Attacks.king(Bitboards.square(3, 3))));
+        assertEquals(1, Long.bitCount(Attacks.pawn(Team.WHITE, Bitboards.square(6, 0))));
+    }
+
+    @Test public void openingMoveSets() {
+        Board board = Board.completeSet();
+        Set<BoardLoc> knightMoves = new HashSet<>();
+        knightMoves.add(BoardLoc.parse("A3"));
+        knightMoves.add(BoardLoc.parse("C3"));
+        assertEquals(knightMoves, board.getPieceAt(BoardLoc.parse("B1")).get().possibleMoves());
+
+        Set<BoardLoc> pawnMoves = new HashSet<>();
+        pawnMoves.add(BoardLoc.parse("E3"));
+        pawnMoves.add(BoardLoc.parse("E4"));
+        assertEquals(pawnMoves, board.getPieceAt(BoardLoc.parse("E2")).get().possibleMoves());
+
+        assertEquals(0, board.getPieceAt(BoardLoc.parse("D1")).get().moveMask());
+        assertEquals(20, board.getMovesFor(Team.WHITE).size());
+    }
+}
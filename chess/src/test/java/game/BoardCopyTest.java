@@ -0,0 +1,138 @@
+package game;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * A copy (or a board made from a snapshot) must be in exactly the same position as its original,
+ * and must share no mutable state with it.
+ */
+public class BoardCopyTest {
+
+    private static void assertSamePosition(Board expected, Board actual) {
+        assertEquals(expected.zobristKey(), actual.zobristKey());
+        assertEquals(expected.sideToMove(), actual.sideToMove());
+        assertEquals(expected.enPassantSquare(), actual.enPassantSquare());
+        assertEquals(expected.castlingRights(), actual.castlingRights());
+        for (Team team : Team.values())
+            for (PieceType type : PieceType.values())
+                assertEquals(expected.piecesOf(team, type), actual.piecesOf(team, type));
+    }
+
+    @Test public void copiesMatchThroughRandomGames() {
+        Random random = new Random(11);
+        MoveList moves = new MoveList();
+        MoveList copyMoves = new MoveList();
+        for (int game = 0; game < 20; game++) {
+            Board board = Board.completeSet();
+            for (int ply = 0; ply < 100; ply++) {
+                Board copy = board.copy();
+                assertSamePosition(board, copy);
+
+                board.getMovesFor(board.sideToMove(), moves);
+                copy.getMovesFor(copy.sideToMove(), copyMoves);
+                assertEquals(moves.size(), copyMoves.size());
+                for (int i = 0; i < moves.size(); i++)
+                    assertEquals(moves.get(i), copyMoves.get(i));
+                if (moves.isEmpty()) break;
+
+                // playing on the copy leaves the original alone
+                long key = board.zobristKey();
+                copy.execute(copyMoves.get(random.nextInt(copyMoves.size())));
+                assertEquals(key, board.zobristKey());
+
+                int move = moves.get(random.nextInt(moves.size()));
+                board.execute(move);
+                if (Move.captured(move) == PieceType.KING) break;
+            }
+        }
+    }
+
+    @Test public void snapshotsRoundTripThroughRandomGames() throws IOException {
+        Random random = new Random(12);
+        MoveList moves = new MoveList();
+        MoveList restoredMoves = new MoveList();
+        for (int game = 0; game < 20; game++) {
+            Board board = Board.completeSet();
+            for (int ply = 0; ply < 100; ply++) {
+                BoardSnapshot snapshot = board.snapshot();
+                assertEquals(board.zobristKey(), snapshot.zobristKey());
+                assertEquals(board.halfmoveClock(), snapshot.halfmoveClock());
+
+                Board restored = snapshot.toBoard();
+                assertSamePosition(board, restored);
+                assertEquals(board.zobristKeyFromScratch(), restored.zobristKey());
+                assertEquals(board.halfmoveClock(), restored.halfmoveClock());
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                snapshot.writeTo(new DataOutputStream(bytes));
+                assertEquals(BoardSnapshot.BYTES, bytes.size());
+                BoardSnapshot read = BoardSnapshot.readFrom(
+                    new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+                assertEquals(snapshot, read);
+
+                board.getMovesFor(board.sideToMove(), moves);
+                restored.getMovesFor(restored.sideToMove(), restoredMoves);
+                assertEquals(moves.size(), restoredMoves.size());
+                for (int i = 0; i < moves.size(); i++)
+                    assertEquals(moves.get(i), restoredMoves.get(i));
+                if (moves.isEmpty()) break;
+
+                int move = moves.get(random.nextInt(moves.size()));
+                board.execute(move);
+                if (Move.captured(move) == PieceType.KING) break;
+                // the snapshot doesn't change when its board does
+                assertNotEquals(board.zobristKey(), snapshot.zobristKey());
+            }
+        }
+    }
+
+    @Test public void fiftyMoveRuleSurvivesFenAndSnapshots() {
+        Board board = Fen.toBoard("8/8/8/3k4/8/8/8/R3K3 w - - 99 80");
+        assertEquals(99, board.halfmoveClock());
+        assertEquals("8/8/8/3k4/8/8/8/R3K3 w - - 99 1", Fen.of(board));
+        for (Board start : new Board[]{board, board.snapshot().toBoard(), board.copy()}) {
+            assertEquals(GameStatus.ONGOING, start.status());
+            start.execute("A1 A2");
+            assertEquals(GameStatus.FIFTY_MOVES, start.status());
+        }
+    }
+
+    @Test public void undoRestoresTheHalfmoveClock() {
+        Board board = Fen.toBoard("4k3/4p3/8/8/8/8/8/R3K2R w KQ - 7 30");
+        board.execute("A1 A2");
+        assertEquals(8, board.halfmoveClock());
+        board.execute("E7 E5");
+        assertEquals(0, board.halfmoveClock());
+        board.execute("E1 G1"); // castling, whose rook move mustn't count twice
+        assertEquals(1, board.halfmoveClock());
+        board.undoMove();
+        assertEquals(0, board.halfmoveClock());
+        board.undoMove();
+        assertEquals(8, board.halfmoveClock());
+        board.undoMove();
+        assertEquals(7, board.halfmoveClock());
+    }
+
+    @Test public void copyHasItsOwnPieces() {
+        Board board = Board.completeSet();
+        Board copy = board.copy();
+        Piece original = board.getPieceAt(BoardLoc.parse("e2")).get();
+        Piece copied = copy.getPieceAt(BoardLoc.parse("e2")).get();
+        assertNotSame(original, copied);
+        assertEquals(original, copied);
+
+        copy.execute("E2 E4");
+        assertEquals(BoardLoc.parse("e2"), original.getLoc());
+    }
+}
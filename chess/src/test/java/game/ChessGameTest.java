@@ -1,13 +1,18 @@
 package game;
 
+import game.cmd.AbstractCommand;
 import game.cmd.BoardCommand;
 import org.junit.Before;
 import org.junit.Test;
+import player.HumanPlayer;
+import player.Player;
 
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Scanner;
 import java.util.Set;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -109,6 +114,29 @@ public class ChessGameTest {
         assertFalse(board.hasPieceAt("A4"));
     }
 
+    @Test public void enPassantUndo() {
+        ChessGame testSetup = ChessGame.emptyBoard();
+        Set<Piece> pieces = new HashSet<>();
+        Board board = testSetup.board;
+        Piece pawn1 = new Piece.Pawn(board, BoardLoc.parse("B4"), Team.BLACK);
+        Piece pawn2 = new Piece.Pawn(board, BoardLoc.parse("A2"), Team.WHITE);
+        pieces.addAll(Arrays.asList(pawn1, pawn2));
+        testSetup.forceResetPiecesTo(pieces);
+        board.execute("A2 A4");
+
+        int enPassant = board.encode(new BoardCommand(BoardLoc.parse("B4"), BoardLoc.parse("A3")));
+        assertTrue(Move.is(enPassant, Move.EN_PASSANT));
+        assertEquals(PieceType.PAWN, Move.captured(enPassant));
+
+        board.execute(enPassant);
+        assertFalse(board.hasPieceAt("A4"));
+        board.undoMove(enPassant);
+        // the captured pawn must come back where it was, not where the capturer landed
+        assertTrue(board.hasPieceAt("A4"));
+        assertTrue(board.hasPieceAt("B4"));
+        assertFalse(board.hasPieceAt("A3"));
+    }
+
     @Test public void castleWhiteLeft() {
         ChessGame testSetup = ChessGame.emptyBoard();
         Set<Piece> pieces = new HashSet<>();
@@ -152,4 +180,26 @@ public class ChessGameTest {
         assertTrue(board.hasPieceAt("E1"));
         assertTrue(board.hasPieceAt("H1"));
     }
+
+    /** a command the board turns down leaves the same player to move, and the game carries on from there */
+    @Test public void rejectedCommandKeepsTheTurn() {
+        Board board = Fen.toBoard("rnbqkbnr/pppp1ppp/8/4p3/8/5P2/PPPPP1PP/RNBQKBNR w KQkq - 0 2");
+        // black's pawn, then a real move
+        Player white = new HumanPlayer(Team.WHITE, new Scanner("e5 e4\ng2 g4\n"));
+        final int[] blackMoves = {0};
+        Player black = new Player() {
+            @Override public AbstractCommand move() {
+                blackMoves[0]++;
+                return AbstractCommand.parse("d8 h4");
+            }
+
+            @Override public Team getTeam() {
+                return Team.BLACK;
+            }
+        };
+        ChessGame game = new ChessGame(board, white, black);
+        assertEquals(GameStatus.CHECKMATE, game.play(5));
+        assertEquals(1, blackMoves[0]);
+        assertEquals("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 1", Fen.of(board));
+    }
 }
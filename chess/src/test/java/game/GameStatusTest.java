@@ -0,0 +1,69 @@
+package game;
+
+import org.junit.Test;
+import player.AIPlayer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GameStatusTest {
+
+    @Test public void mateAndStalemate() {
+        assertEquals(GameStatus.CHECKMATE,
+            Fen.toBoard("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3").status());
+        assertEquals(GameStatus.STALEMATE, Fen.toBoard("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1").status());
+        assertEquals(GameStatus.ONGOING, Board.completeSet().status());
+    }
+
+    @Test public void threefoldRepetition() {
+        Board board = Board.completeSet();
+        String[] shuffle = {"g1 f3", "g8 f6", "f3 g1", "f6 g8"};
+        for (int round = 0; round < 2; round++) {
+            for (String move : shuffle) {
+                assertEquals(GameStatus.ONGOING, board.status());
+                board.execute(move);
+            }
+            assertEquals(round + 1, board.repetitions());
+        }
+        assertEquals(GameStatus.REPETITION, board.status());
+        assertEquals(8, board.halfmoveClock());
+
+        board.undoMove();
+        assertEquals(GameStatus.ONGOING, board.status());
+    }
+
+    @Test public void pawnMovesAndCapturesResetTheClock() {
+        Board board = Board.completeSet();
+        board.execute("g1 f3");
+        board.execute("g8 f6");
+        assertEquals(2, board.halfmoveClock());
+        board.execute("e2 e4");
+        assertEquals(0, board.halfmoveClock());
+        board.execute("f6 e4");
+        board.execute("f3 g5");
+        assertEquals(1, board.halfmoveClock());
+        assertEquals(0, board.repetitions());
+    }
+
+    @Test public void insufficientMaterial() {
+        assertTrue(Fen.toBoard("4k3/8/8/8/8/8/8/4K3 w - - 0 1").insufficientMaterial());
+        assertTrue(Fen.toBoard("4k3/8/8/8/8/8/8/2B1K3 w - - 0 1").insufficientMaterial());
+        assertTrue(Fen.toBoard("4k3/8/8/8/8/8/8/4KN2 w - - 0 1").insufficientMaterial());
+        // bishops all on the same color
+        assertTrue(Fen.toBoard("4kb2/8/8/8/8/8/8/2B1K3 w - - 0 1").insufficientMaterial());
+        assertFalse(Fen.toBoard("2b1k3/8/8/8/8/8/8/2B1K3 w - - 0 1").insufficientMaterial());
+        assertFalse(Fen.toBoard("4k3/8/8/8/8/8/8/1NN1K3 w - - 0 1").insufficientMaterial());
+        assertFalse(Fen.toBoard("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1").insufficientMaterial());
+        assertEquals(GameStatus.INSUFFICIENT_MATERIAL, Fen.toBoard("4k3/8/8/8/8/8/8/2B1K3 w - - 0 1").status());
+    }
+
+    @Test public void headlessGameRunsToAnEnd() {
+        Board board = Board.completeSet();
+        ChessGame game = new ChessGame(board,
+            AIPlayer.newGreedyTextbookAI(Team.WHITE, board),
+            AIPlayer.newGreedyTextbookAI(Team.BLACK, board));
+        GameStatus status = game.play(200);
+        assertEquals(status, game.status());
+    }
+}
@@ -0,0 +1,126 @@
+package game;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The legal move generator must produce exactly the pseudo-legal moves that don't leave the mover
+ * in check, without playing them to find out.
+ */
+public class LegalMovesTest {
+
+    private static int[] legalMoves(Board board, Team team) {
+        MoveList moves = new MoveList();
+        board.getLegalMovesFor(team, moves);
+        return sorted(moves);
+    }
+
+    /** the slow way: play every pseudo-legal move and see whether it leaves us in check */
+    private static int[] filteredMoves(Board board, Team team) {
+        MoveList moves = new MoveList();
+        MoveList legal = new MoveList();
+        board.getMovesFor(team, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            board.execute(moves.get(i));
+            if (!board.inCheck(team)) legal.add(moves.get(i));
+            board.undoMove(moves.get(i));
+        }
+        return sorted(legal);
+    }
+
+    private static int[] sorted(MoveList moves) {
+        int[] ret = new int[moves.size()];
+        for (int i = 0; i < ret.length; i++) ret[i] = moves.get(i);
+        Arrays.sort(ret);
+        return ret;
+    }
+
+    @Test public void pinnedPieceStaysOnItsLine() {
+        Board board = Fen.toBoard("4k3/4r3/8/8/8/8/4R3/4K3 w - - 0 1");
+        int rookMoves = 0;
+        for (int move : legalMoves(board, Team.WHITE)) {
+            if (Move.moved(move) != PieceType.ROOK) continue;
+            rookMoves++;
+            assertEquals(4, Bitboards.col(Move.to(move)));
+        }
+        assertEquals(5, rookMoves); // e3 to e7, taking the pinner
+    }
+
+    @Test public void singleCheckMustBeBlockedOrTaken() {
+        Board board = Fen.toBoard("k3r3/8/8/8/R7/8/8/4K3 w - - 0 1");
+        int blocks = 0;
+        for (int move : legalMoves(board, Team.WHITE)) {
+            if (Move.moved(move) == PieceType.KING) continue;
+            blocks++;
+            assertEquals("A4 - E4", Move.toString(move));
+        }
+        assertEquals(1, blocks);
+    }
+
+    @Test public void doubleCheckLeavesOnlyKingMoves() {
+        Board board = Fen.toBoard("7k/8/8/8/8/5n2/8/r3K2R w - - 0 1");
+        int[] moves = legalMoves(board, Team.WHITE);
+        assertTrue(moves.length > 0);
+        for (int move : moves)
+            assertEquals(PieceType.KING, Move.moved(move));
+    }
+
+    @Test public void enPassantCantUncoverCheck() {
+        Board board = Fen.toBoard("8/8/8/KPp4r/8/8/8/7k w - c6 0 1");
+        MoveList pseudo = new MoveList();
+        board.getMovesFor(Team.WHITE, pseudo);
+        boolean pseudoHasEnPassant = false;
+        for (int i = 0; i < pseudo.size(); i++)
+            pseudoHasEnPassant |= Move.is(pseudo.get(i), Move.EN_PASSANT);
+        assertTrue(pseudoHasEnPassant);
+        for (int move : legalMoves(board, Team.WHITE))
+            assertFalse(Move.is(move, Move.EN_PASSANT));
+    }
+
+    @Test public void checkmateAndStalemate() {
+        Board foolsMate = Fen.toBoard("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3");
+        assertTrue(foolsMate.isCheckmate(Team.WHITE));
+        assertFalse(foolsMate.isStalemate(Team.WHITE));
+
+        Board stalemate = Fen.toBoard("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertTrue(stalemate.isStalemate(Team.BLACK));
+        assertFalse(stalemate.isCheckmate(Team.BLACK));
+        assertTrue(stalemate.hasLegalMoves(Team.WHITE));
+    }
+
+    @Test public void agreesWithFilteringThroughRandomGames() {
+        Random random = new Random(13);
+        MoveList captures = new MoveList();
+        MoveList quiets = new MoveList();
+        MoveList pseudo = new MoveList();
+        for (Perft.Reference ref : Perft.REFERENCES) {
+            for (int game = 0; game < 10; game++) {
+                Board board = Fen.toBoard(ref.fen);
+                for (int ply = 0; ply < 80; ply++) {
+                    Team side = board.sideToMove();
+                    int[] legal = legalMoves(board, side);
+                    assertArrayEquals(ref.name + " after " + ply + " plies", filteredMoves(board, side), legal);
+                    assertEquals(legal.length > 0, board.hasLegalMoves(side));
+
+                    board.getLegalCapturesFor(side, captures);
+                    board.getLegalQuietMovesFor(side, quiets);
+                    assertEquals(legal.length, captures.size() + quiets.size());
+
+                    board.getMovesFor(side, pseudo);
+                    for (int i = 0; i < pseudo.size(); i++)
+                        assertEquals(Arrays.binarySearch(legal, pseudo.get(i)) >= 0, board.isLegal(side, pseudo.get(i)));
+
+                    if (legal.length == 0) break;
+                    board.execute(legal[random.nextInt(legal.length)]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package game;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Move generation must agree with the published perft counts, as deep as our rules allow.
+ */
+public class PerftTest {
+
+    /** deeper than this takes too long for a unit test; run `Perft` itself for those */
+    private static final long MAX_NODES = 500_000;
+
+    @Test public void referencePositions() {
+        for (Perft.Reference ref : Perft.REFERENCES) {
+            for (int depth = 1; depth <= ref.checkedDepth && ref.expected(depth) <= MAX_NODES; depth++) {
+                Board board = Fen.toBoard(ref.fen);
+                long key = board.zobristKey();
+                assertEquals(ref.name + " depth " + depth, ref.expected(depth), new Perft(board, depth).count(depth));
+                assertEquals(ref.name + " depth " + depth + " (legal)", ref.expected(depth), new Perft(board, depth).countLegal(depth));
+                assertEquals(key, board.zobristKey());
+            }
+        }
+    }
+
+    @Test public void divideAddsUpToCount() {
+        Board board = Fen.toBoard(Perft.REFERENCES.get(1).fen);
+        Perft perft = new Perft(board, 3);
+        long sum = 0;
+        Map<String, Long> divide = perft.divide(3);
+        for (long nodes : divide.values()) sum += nodes;
+        assertEquals(perft.count(3), sum);
+        assertEquals(perft.count(1), divide.size());
+    }
+
+    @Test public void fenRoundTrips() {
+        for (Perft.Reference ref : Perft.REFERENCES) {
+            // everything but the fullmove number
+            String withoutFullmove = ref.fen.substring(0, ref.fen.lastIndexOf(' '));
+            String written = Fen.of(Fen.toBoard(ref.fen));
+            assertEquals(withoutFullmove + " 1", written);
+        }
+        assertEquals(Board.completeSet().zobristKey(), Fen.toBoard(Fen.START).zobristKey());
+    }
+
+    @Test public void impossiblePositionsAreRejected() {
+        String[] bad = {
+            "4k3/8/8/8/8/8/8/4K3 w K - 0 1",            // no rook to castle with
+            "4k3/8/8/8/8/8/8/K7 w Q - 0 1",             // no king at home
+            "r3k3/8/8/8/8/8/8/4K3 w k - 0 1",           // the rook is on the other side
+            "4k3/8/8/8/8/8/8/4K3 w - e9 0 1",           // off the board
+            "4k3/8/8/8/8/8/8/4K3 w - e3 0 1",           // white can't capture onto rank 3
+            "8/8/8/8/8/8/8/8 w - - 0 1",                // no kings at all
+            "4k3/8/8/8/8/8/8/3KK3 w - - 0 1",           // two white kings
+        };
+        for (String fen : bad) {
+            try {
+                Fen.toBoard(fen);
+                fail("accepted " + fen);
+            }
+            catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package game;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PieceSquareTest {
+
+    /** every table zero, except a white knight on `square` gets `bonus` in the middlegame */
+    private static String knightOnly(int square, int bonus) {
+        StringBuilder file = new StringBuilder("# test tables\n");
+        for (String phase : new String[]{"middlegame", "endgame"}) {
+            for (PieceType type : PieceType.values()) {
+                file.append(type).append(' ').append(phase).append('\n');
+                for (int i = 0; i < 64; i++) {
+                    boolean bonusHere = type == PieceType.KNIGHT && phase.equals("middlegame") && i == square;
+                    file.append(bonusHere ? bonus : 0).append(i % 8 == 7 ? "\n" : " ");
+                }
+            }
+        }
+        return file.toString();
+    }
+
+    @Test public void defaultTablesAreMirrored() {
+        PieceSquare tables = PieceSquare.DEFAULT;
+        for (PieceType type : PieceType.values()) {
+            for (int square = 0; square < 64; square++) {
+                int mirrored = PieceSquare.mirror(square);
+                assertEquals(tables.middlegame(Team.WHITE, type, square), tables.middlegame(Team.BLACK, type, mirrored));
+                assertEquals(tables.endgame(Team.WHITE, type, square), tables.endgame(Team.BLACK, type, mirrored));
+            }
+        }
+        // a knight is better in the center than in the corner
+        int d4 = Bitboards.square(BoardLoc.parse("d4"));
+        int a1 = Bitboards.square(BoardLoc.parse("a1"));
+        assertTrue(tables.middlegame(Team.WHITE, PieceType.KNIGHT, d4) > tables.middlegame(Team.WHITE, PieceType.KNIGHT, a1));
+    }
+
+    @Test public void boardsSwitchToLoadedTables() throws IOException {
+        int g1 = Bitboards.square(BoardLoc.parse("g1"));
+        PieceSquare tables = PieceSquare.read(new StringReader(knightOnly(g1, 40)), "test");
+        Board board = Board.completeSet();
+        board.usePieceSquareTables(tables);
+        assertEquals(40, board.placement(Team.WHITE));
+        assertEquals(0, board.endgamePlacement(Team.WHITE));
+        assertEquals(40, board.copy().placement(Team.WHITE));
+        board.execute("g1 f3");
+        assertEquals(0, board.placement(Team.WHITE));
+        board.undoMove();
+        assertEquals(40, board.placement(Team.WHITE));
+    }
+
+    @Test public void rejectsMalformedFiles() throws IOException {
+        String good = knightOnly(0, 1);
+        String[] bad = {
+            good.replace("KING endgame", "KING lategame"),
+            good.replace("ROOK middlegame", "CASTLE middlegame"),
+            good.replaceFirst("\n0 0 0 0 0 0 0 0\n", "\n0 0 0 0 0 0 0 x\n"),
+            good.substring(0, good.lastIndexOf("0")),
+            good.substring(0, good.indexOf("KING endgame")),
+        };
+        for (String file : bad) {
+            try {
+                PieceSquare.read(new StringReader(file), "test");
+                fail("accepted a malformed table file");
+            }
+            catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package game;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The masks (and running totals) in `Pieces` must always agree with where the `Piece` objects think
+ * they are.
+ */
+public class PiecesTest {
+
+    private static void assertMasksMatchPieces(Board board) {
+        long occupied = 0;
+        for (Piece p : board.getLivePieces()) {
+            int square = Bitboards.square(p.getLoc());
+            assertTrue(Bitboards.contains(board.piecesOf(p.team, p.type), square));
+            assertTrue(Bitboards.contains(board.occupied(p.team), square));
+            assertSame(p, board.getPieceAt(p.getLoc()).get());
+            occupied |= Bitboards.bit(square);
+        }
+        assertEquals(occupied, board.occupied());
+        assertEquals(occupied, board.occupied(Team.WHITE) | board.occupied(Team.BLACK));
+    }
+
+    @Test public void completeSetMasks() {
+        Board board = Board.completeSet();
+        assertMasksMatchPieces(board);
+        assertEquals(32, Long.bitCount(board.occupied()));
+        assertEquals(8, Long.bitCount(board.piecesOf(Team.WHITE, PieceType.PAWN)));
+        assertEquals(16, board.livePiecesFor(Team.BLACK).size());
+    }
+
+    @Test public void captureAndUndo() {
+        Board board = Board.completeSet();
+        board.execute("E2 E4");
+        board.execute("D7 D5");
+        board.execute("E4 D5");
+        assertMasksMatchPieces(board);
+        assertEquals(15, board.livePiecesFor(Team.BLACK).size());
+        assertEquals(Team.WHITE, board.getPieceAt(BoardLoc.parse("D5")).get().team);
+
+        board.undoMove();
+        assertMasksMatchPieces(board);
+        assertEquals(16, board.livePiecesFor(Team.BLACK).size());
+        assertEquals(Team.BLACK, board.getPieceAt(BoardLoc.parse("D5")).get().team);
+        assertTrue(board.hasPieceAt("E4"));
+    }
+
+    private static void assertTotalsMatchPieces(Board board) {
+        for (Team team : Team.values()) {
+            int material = 0;
+            int middlegame = 0;
+            int endgame = 0;
+            for (Piece p : board.livePiecesFor(team)) {
+                int square = Bitboards.square(p.getLoc());
+                material += p.type.getValue();
+                middlegame += board.pieceSquareTables().middlegame(team, p.type, square);
+                endgame += board.pieceSquareTables().endgame(team, p.type, square);
+            }
+            assertEquals(material, board.material(team));
+            assertEquals(middlegame, board.placement(team));
+            assertEquals(endgame, board.endgamePlacement(team));
+        }
+        int phase = 0;
+        long pawnKey = 0;
+        for (Piece p : board.getLivePieces()) {
+            phase += PieceSquare.phaseWeight(p.type);
+            if (p.type == PieceType.PAWN) pawnKey ^= Zobrist.piece(p.team, p.type, Bitboards.square(p.getLoc()));
+        }
+        assertEquals(phase, board.phase());
+        assertEquals(pawnKey, board.pawnKey());
+    }
+
+    @Test public void runningTotalsThroughRandomGames() {
+        Random random = new Random(17);
+        MoveList moves = new MoveList();
+        Board board = Board.completeSet();
+        assertEquals(8 + 2*3 + 2*3 + 2*5 + 9 + 100, board.material(Team.WHITE));
+        assertEquals(board.placement(Team.WHITE), board.placement(Team.BLACK));
+        assertEquals(PieceSquare.MAX_PHASE, board.phase());
+        for (int game = 0; game < 10; game++) {
+            int plies = 0;
+            for (; plies < 120; plies++) {
+                board.getLegalMovesFor(board.sideToMove(), moves);
+                if (moves.size() == 0) break;
+                board.execute(moves.get(random.nextInt(moves.size())));
+                assertTotalsMatchPieces(board);
+            }
+            for (; plies > 0; plies--) {
+                board.undoMove();
+                assertTotalsMatchPieces(board);
+            }
+        }
+        assertTotalsMatchPieces(board.copy());
+    }
+
+    @Test public void offBoardIsEmpty() {
+        Board board = Board.completeSet();
+        assertFalse(board.hasPieceAt(-1, 4));
+        assertFalse(board.getPieceAt(BoardLoc.at(8, 0)).isPresent());
+    }
+}
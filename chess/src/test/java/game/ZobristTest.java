@@ -0,0 +1,68 @@
+package game;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * The incrementally maintained key must always equal the key computed from scratch, and must come
+ * back exactly when moves are undone.
+ */
+public class ZobristTest {
+
+    @Test public void incrementalMatchesScratchThroughRandomGames() {
+        Random random = new Random(3);
+        MoveList moves = new MoveList();
+        for (int game = 0; game < 20; game++) {
+            Board board = Board.completeSet();
+            long[] keys = new long[120];
+            int plies = 0;
+            while (plies < keys.length) {
+                assertEquals(board.zobristKeyFromScratch(), board.zobristKey());
+                board.getMovesFor(board.sideToMove(), moves);
+                if (moves.isEmpty()) break;
+                keys[plies++] = board.zobristKey();
+                board.execute(moves.get(random.nextInt(moves.size())));
+                if (!board.getKing(Team.WHITE).isAlive() || !board.getKing(Team.BLACK).isAlive()) break;
+            }
+            while (plies > 0) {
+                board.undoMove();
+                assertEquals(keys[--plies], board.zobristKey());
+                assertEquals(board.zobristKeyFromScratch(), board.zobristKey());
+            }
+        }
+    }
+
+    @Test public void transpositionsShareAKey() {
+        Board board = Board.completeSet();
+        long start = board.zobristKey();
+        board.execute("G1 F3");
+        board.execute("G8 F6");
+        board.execute("F3 G1");
+        board.execute("F6 G8");
+        assertEquals(start, board.zobristKey());
+
+        // same placement, but now it's black's turn
+        board.execute("G1 F3");
+        board.execute("G8 F6");
+        board.execute("F3 G1");
+        assertNotEquals(start, board.zobristKey());
+    }
+
+    @Test public void castlingRightsAreHashed() {
+        Board board = Board.completeSet();
+        board.execute("G1 F3");
+        board.execute("G8 F6");
+        long before = board.zobristKey();
+        board.execute("H1 G1");
+        board.execute("F6 G8");
+        board.execute("G1 H1");
+        board.execute("G8 F6");
+        // same placement and side to move, but white can no longer castle right
+        assertNotEquals(before, board.zobristKey());
+        assertEquals(0, board.castlingRights() & Piece.King.CASTLE_RIGHT << 2);
+    }
+}
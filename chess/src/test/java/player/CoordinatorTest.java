@@ -0,0 +1,79 @@
+package player;
+
+import game.Fen;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CoordinatorTest {
+
+    @Test public void jobsAndResultsSurviveTheWire() {
+        Job game = Job.game(7, Fen.START, "greedy", "depth:1", 4);
+        Job parsed = Job.parse(game.toLine());
+        assertEquals(game.toLine(), parsed.toLine());
+
+        Job.Result result = game.run();
+        assertFalse(result.toString(), result.failed());
+        assertEquals(result.toLine(), Job.Result.parse(result.toLine(), id -> id == 7 ? game : null).toLine());
+
+        Job analysis = Job.analysis(8, "4k3/8/8/8/8/8/8/R3K3 w - - 0 1", "depth:2");
+        assertEquals(analysis.toLine(), Job.parse(analysis.toLine()).toLine());
+        assertEquals(4, analysis.run().outcome.length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void badJob() {
+        Job.parse("JOB\t1\tGAME\tnot a fen\tgreedy\tgreedy\t10");
+    }
+
+    @Test public void crashedWorkersJobsAreDoneElsewhere() throws IOException, InterruptedException {
+        try (Coordinator coordinator = new Coordinator(0, InetAddress.getLoopbackAddress())) {
+            final int port = coordinator.getPort();
+            // takes a job and dies with it
+            Socket crasher = new Socket(InetAddress.getLoopbackAddress(), port);
+            OutputStream out = crasher.getOutputStream();
+            out.write((Worker.HELLO + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            List<Job> jobs = new ArrayList<>();
+            for (int i = 1; i <= 6; i++)
+                jobs.add(i%3 == 0 ? Job.analysis(i, Fen.START, "depth:1") : Job.game(i, Fen.START, "greedy", "depth:1", 5));
+
+            Thread killer = new Thread(() -> {
+                try {
+                    new BufferedReader(new InputStreamReader(crasher.getInputStream(), StandardCharsets.UTF_8)).readLine();
+                    crasher.close();
+                    Worker.run("127.0.0.1", port);
+                }
+                catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            killer.setDaemon(true);
+            killer.start();
+
+            List<Job.Result> seen = new ArrayList<>();
+            List<Job.Result> results = coordinator.run(jobs, seen::add);
+            assertEquals(results, seen);
+            boolean[] done = new boolean[7];
+            for (Job.Result result : results) {
+                assertFalse(result.toString(), result.failed());
+                assertFalse(done[result.job.id]);
+                done[result.job.id] = true;
+                assertTrue(result.toString(), result.plies > 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package player;
+
+import game.Board;
+import game.Team;
+import game.cmd.BoardCommand;
+import org.junit.Test;
+import player.strategies.GreedyAI;
+import player.strategies.Strategy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OpeningBookTest {
+
+    private static OpeningBook bookOf(Reader lines) throws IOException {
+        Path file = Files.createTempFile("book", ".bin");
+        file.toFile().deleteOnExit();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            OpeningBook.build(lines, out);
+        }
+        return OpeningBook.open(file);
+    }
+
+    @Test public void picksInProportionToWeight() throws IOException {
+        OpeningBook book = bookOf(new StringReader("e2e4 e7e5\ne2e4 c7c5\ne2e4\nd2d4 # a comment\n"));
+        assertEquals(4, book.size());
+
+        Board board = Board.completeSet();
+        Random random = new Random(3);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 4000; i++)
+            counts.merge(book.pick(board, random).toString(), 1, Integer::sum);
+        assertEquals(2, counts.size());
+        int e4 = counts.get("E2 - E4");
+        assertTrue(e4 + " of 4000", e4 > 2800 && e4 < 3200);
+
+        board.execute("e2 e4");
+        counts.clear();
+        for (int i = 0; i < 100; i++)
+            counts.merge(book.pick(board, random).toString(), 1, Integer::sum);
+        assertEquals(2, counts.size());
+
+        board.execute("e7 e5");
+        assertNull(book.pick(board, random));
+    }
+
+    @Test public void shippedLinesAreAllLegal() throws IOException {
+        OpeningBook book = bookOf(OpeningBook.defaultLines());
+        assertTrue(book.size() > 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void illegalLineIsRejected() throws IOException {
+        bookOf(new StringReader("e2e4 e2e4\n"));
+    }
+
+    @Test public void playerLeavesTheBookForItsStrategy() throws IOException {
+        Board board = Board.completeSet();
+        Strategy strategy = new GreedyAI(Team.WHITE, board, Strategy.PieceEvaluator.textbook());
+        AIPlayer player = new AIPlayer(Team.WHITE, board, strategy);
+        player.setOpeningBook(bookOf(new StringReader("g2g3 d7d5\n")), new Random(1));
+
+        assertEquals("G2 - G3", player.move().toString());
+        board.execute("g2 g3");
+        board.execute("e7 e5");
+        BoardCommand outOfBook = (BoardCommand) player.move();
+        assertNotNull(outOfBook);
+        assertTrue(board.locHasTeam(outOfBook.from, Team.WHITE));
+    }
+}
@@ -0,0 +1,66 @@
+package player;
+
+import game.Board;
+import game.ChessGame;
+import game.MoveList;
+import game.Team;
+import game.cmd.BoardCommand;
+import org.junit.Test;
+import player.strategies.AlphaBetaAI;
+import player.strategies.LazySmpAI;
+import player.strategies.SearchLimits;
+import player.strategies.TranspositionTable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PonderTest {
+
+    @Test public void pondersOnTheExpectedReply() {
+        Board board = Board.completeSet();
+        AIPlayer white = new AIPlayer(Team.WHITE, board, new AlphaBetaAI(board, Team.WHITE, SearchLimits.depth(3)));
+        AIPlayer black = new AIPlayer(Team.BLACK, board,
+            new LazySmpAI(board, Team.BLACK, SearchLimits.depth(3), 2));
+        white.setPondering(true);
+        black.setPondering(true);
+        new ChessGame(board, white, black).play(15);
+        for (AIPlayer player : new AIPlayer[]{white, black}) {
+            // each move but the first answers a pondered reply, if there was one
+            assertTrue(player.getPonderHits() + player.getPonderMisses() <= 15);
+            assertTrue(player.getPonderHits() > 0);
+        }
+    }
+
+    @Test public void missedPonderStillMovesLegally() {
+        Board board = Board.completeSet();
+        TranspositionTable table = new TranspositionTable();
+        AIPlayer black = new AIPlayer(Team.BLACK, board,
+            new AlphaBetaAI(board, Team.BLACK, SearchLimits.depth(3), table));
+        black.setPondering(true);
+        board.execute("e2 e4");
+        board.execute((BoardCommand) black.move());
+
+        // black ponders on the reply its table expects, so play any other
+        long entry = table.probe(board.zobristKey());
+        assertNotEquals(TranspositionTable.MISS, entry);
+        MoveList moves = new MoveList();
+        board.getLegalMovesFor(Team.WHITE, moves);
+        int unexpected = moves.get(0) != TranspositionTable.move(entry) ? moves.get(0) : moves.get(1);
+        board.execute(unexpected);
+        BoardCommand move = (BoardCommand) black.move();
+        assertTrue(board.isLegal(Team.BLACK, board.encode(move)));
+        assertEquals(1, black.getPonderMisses());
+        assertEquals(0, black.getPonderHits());
+
+        black.setPondering(false);
+        assertFalse(black.isPondering());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void greedyCantPonder() {
+        Board board = Board.completeSet();
+        AIPlayer.newGreedyTextbookAI(Team.WHITE, board).setPondering(true);
+    }
+}
@@ -0,0 +1,91 @@
+package player;
+
+import game.Team;
+import game.cmd.AbstractCommand;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SprtTest {
+
+    @Test public void eloAndScoreAreInverses() {
+        assertEquals(.5, Sprt.expectedScore(0), 1e-12);
+        assertEquals(0.64, Sprt.expectedScore(100), .01);
+        for (double elo : new double[]{-300, -10, 0, 35, 400})
+            assertEquals(elo, Sprt.eloOf(Sprt.expectedScore(elo)), 1e-9);
+    }
+
+    @Test public void lopsidedResultsAcceptH1() {
+        Sprt sprt = new Sprt(0, 10, .05, .05);
+        int games = 0;
+        while (sprt.verdict() == Sprt.Verdict.CONTINUE) {
+            // 60% for A: about 70 Elo
+            sprt.record(games%5 < 3 ? 1 : 0);
+            games++;
+            assertTrue(games < 10_000);
+        }
+        assertEquals(Sprt.Verdict.H1, sprt.verdict());
+        assertEquals(70, sprt.elo(), 5);
+        assertTrue(sprt.eloError() > 0 && sprt.eloError() < 70);
+    }
+
+    @Test public void evenResultsAcceptH0() {
+        Sprt sprt = new Sprt(0, 10, .05, .05);
+        int games = 0;
+        while (sprt.verdict() == Sprt.Verdict.CONTINUE) {
+            sprt.record(games%4 == 0 ? 1 : games%4 == 1 ? 0 : .5);
+            games++;
+            assertTrue(games < 100_000);
+        }
+        assertEquals(Sprt.Verdict.H0, sprt.verdict());
+        assertEquals(0, sprt.elo(), 1);
+    }
+
+    @Test public void matchStopsAtMaxGames() throws IOException, InterruptedException {
+        SprtMatch match = new SprtMatch(Tournament.Engine.parse("greedy"), Tournament.Engine.parse("depth:1"),
+            new Sprt(0, 10, .05, .05), SprtMatch.openings(4));
+        match.setThreads(2);
+        match.setMoveLimit(15);
+        match.setMaxGames(5);
+        final int[] seen = {0};
+        match.run(result -> assertEquals(++seen[0], match.getSprt().games()));
+        // whole pairs only
+        assertEquals(6, match.getSprt().games());
+        assertTrue(match.getUsageA().moves > 0 && match.getUsageB().nodes > 0);
+    }
+
+    @Test public void failedGamesAreLeftOut() throws IOException, InterruptedException {
+        Tournament.Engine broken = new Tournament.Engine("broken", (team, board) -> new Player() {
+            @Override public AbstractCommand move() {
+                throw new IllegalStateException("broken");
+            }
+
+            @Override public Team getTeam() {
+                return team;
+            }
+        });
+        SprtMatch match = new SprtMatch(Tournament.Engine.parse("greedy"), broken,
+            new Sprt(0, 10, .05, .05), SprtMatch.openings(4));
+        match.setThreads(1);
+        match.setMaxGames(4);
+        match.run(result -> assertTrue(result.failed()));
+        assertEquals(0, match.getSprt().games());
+        assertEquals(4, match.getFailures());
+        assertEquals(0, match.getUsageA().moves);
+
+        match = new SprtMatch(Tournament.Engine.parse("greedy"), broken,
+            new Sprt(0, 10, .05, .05), SprtMatch.openings(4));
+        match.setThreads(1);
+        match.setMaxFailures(2);
+        try {
+            match.run(result -> { });
+            fail("kept going after 3 failures");
+        }
+        catch (IllegalStateException expected) {
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package player;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TournamentTest {
+
+    @Test public void everyPairPlaysBothColors() throws IOException, InterruptedException {
+        Tournament tournament = new Tournament(Arrays.asList(
+            Tournament.Engine.parse("greedy"),
+            Tournament.Engine.parse("depth:1"),
+            Tournament.Engine.parse("nodes:200")));
+        tournament.setGames(2);
+        tournament.setThreads(3);
+        tournament.setMoveLimit(10);
+        // black moves first out of the opening
+        tournament.setOpeningPlies(3);
+
+        List<Tournament.GameResult> seen = new ArrayList<>();
+        List<Tournament.GameResult> results = tournament.run(seen::add);
+        assertEquals(6, results.size());
+        assertEquals(results, seen);
+
+        boolean[] numbers = new boolean[7];
+        for (Tournament.GameResult result : results) {
+            numbers[result.number] = true;
+            assertEquals(3, result.opening.split(" ").length);
+            assertTrue(result.toString(), result.plies > 0 && result.plies <= 20);
+            assertEquals(result.plies, result.whiteUsage.moves + result.blackUsage.moves);
+            assertTrue(result.toString(), !result.reason.startsWith("ERROR"));
+            assertEquals(1, result.pointsFor(result.white) + result.pointsFor(result.black), 0);
+            assertEquals(Tournament.GameResult.csvHeader().split(",").length, result.toCsv().split(",").length);
+            assertTrue(result.toJson().startsWith("{\"game\": " + result.number + ", "));
+        }
+        for (int i = 1; i <= 6; i++) assertTrue(numbers[i]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownEngine() {
+        Tournament.Engine.parse("depth:three");
+    }
+}
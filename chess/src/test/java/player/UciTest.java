@@ -0,0 +1,80 @@
+package player;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UciTest {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final Uci uci = new Uci(new PrintStream(bytes, true));
+
+    private String output() {
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private String lastLine() {
+        String[] lines = output().split("\n");
+        return lines[lines.length - 1];
+    }
+
+    @Test public void handshake() {
+        uci.handle("uci");
+        uci.handle("isready");
+        assertTrue(output().contains("option name Hash type spin"));
+        assertTrue(output().contains("option name Threads type spin"));
+        assertTrue(output().endsWith("uciok\nreadyok\n"));
+    }
+
+    @Test public void positionWithMoves() {
+        assertEquals("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 1",
+            game.Fen.of(Uci.position(Arrays.asList("position startpos moves e2e4 e7e5 g1f3 b8c6".split(" ")))));
+        uci.handle("position startpos moves e2e5");
+        assertTrue(lastLine().startsWith("info string error: illegal move e2e5"));
+    }
+
+    @Test public void findsMateAtFixedDepth() {
+        uci.handle("setoption name Threads value 2");
+        uci.handle("position fen 6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        uci.handle("go depth 3");
+        uci.awaitSearch();
+        assertTrue(output(), output().contains(" score mate 1 "));
+        assertEquals("bestmove a1a8", lastLine().split(" ponder")[0]);
+    }
+
+    @Test public void infiniteSearchWaitsForStop() throws InterruptedException {
+        uci.handle("position startpos");
+        uci.handle("go infinite");
+        Thread.sleep(200);
+        assertFalse(output().contains("bestmove"));
+        uci.handle("stop");
+        uci.awaitSearch();
+        assertTrue(lastLine(), lastLine().startsWith("bestmove "));
+    }
+
+    @Test public void ponderhitStartsTheClock() throws InterruptedException {
+        uci.handle("position startpos moves e2e4");
+        uci.handle("go ponder wtime 1000 btime 1000");
+        Thread.sleep(100);
+        assertFalse(output().contains("bestmove"));
+        final long start = System.nanoTime();
+        uci.handle("ponderhit");
+        uci.awaitSearch();
+        // 1000 ms over 30 moves
+        assertTrue((System.nanoTime() - start)/1_000_000 < 1000);
+        assertTrue(lastLine(), lastLine().startsWith("bestmove "));
+    }
+
+    @Test public void timeControl() {
+        assertEquals(1000/30 + 75, Uci.timeFor(1000, 100, 30));
+        assertEquals(950, Uci.timeFor(1000, 0, 1));
+        assertEquals(1, Uci.timeFor(10, 0, 1));
+    }
+}
@@ -0,0 +1,90 @@
+package player.strategies;
+
+import game.Board;
+import game.BoardLoc;
+import game.Fen;
+import game.Team;
+import game.cmd.BoardCommand;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AlphaBetaAITest {
+
+    private static final String BACK_RANK_MATE = "" +
+        "    A    B    C    D    E    F    G    H   \n" +
+        "  +---------------------------------------+\n" +
+        "8 |    |    |    |    |    |    |    | Kb |\n" +
+        "7 |    |    |    |    |    |    | Pb | Pb |\n" +
+        "6 |    |    |    |    |    |    |    |    |\n" +
+        "5 |    |    |    |    |    |    |    |    |\n" +
+        "4 |    |    |    |    |    |    |    |    |\n" +
+        "3 |    |    |    |    |    |    |    |    |\n" +
+        "2 |    |    |    |    |    |    |    |    |\n" +
+        "1 | Rw |    |    |    |    |    | Kw |    |\n" +
+        "  +---------------------------------------+";
+
+    @Test public void findsMateInOne() {
+        Board board = Board.fromPrintout(BACK_RANK_MATE);
+        AlphaBetaAI ai = new AlphaBetaAI(board, Team.WHITE, SearchLimits.depth(4));
+        BoardCommand move = ai.chooseMove();
+        assertEquals(BoardLoc.parse("a1"), move.from);
+        assertEquals(BoardLoc.parse("a8"), move.to);
+        assertTrue(ai.getLastScore() > AlphaBetaAI.MATE - SearchLimits.MAX_DEPTH);
+        // quiescence search sees that the check has no answer, so the first iteration finds the mate,
+        // and it shouldn't keep deepening after that
+        assertEquals(1, ai.getCompletedDepth());
+    }
+
+    @Test public void quiescenceSeesTheRecapture() {
+        // at depth 1, QxD5 looks like it wins a pawn, unless the search goes on to see cxD5
+        Board board = Fen.toBoard("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1");
+        AlphaBetaAI ai = new AlphaBetaAI(board, Team.WHITE, SearchLimits.depth(1));
+        ai.setEvaluator(new Strategy.BoardEvaluator.EvaluateByPieces(Team.WHITE));
+        ai.setQuiescence(false);
+        assertEquals(BoardLoc.parse("d5"), ai.chooseMove().to);
+        ai.setQuiescence(true);
+        assertFalse(BoardLoc.parse("d5").equals(ai.chooseMove().to));
+        assertEquals(9 - 2, ai.getLastScore(), 0); // nothing won or lost
+    }
+
+    @Test public void leavesTheBoardAsItFoundIt() {
+        Board board = Board.completeSet();
+        long key = board.zobristKey();
+        new AlphaBetaAI(board, Team.WHITE, SearchLimits.depth(3)).chooseMove();
+        assertEquals(key, board.zobristKey());
+        assertFalse(board.canUndoMove());
+    }
+
+    @Test public void stopsWithinNodeBudget() {
+        Board board = Board.completeSet();
+        AlphaBetaAI ai = new AlphaBetaAI(board, Team.WHITE, SearchLimits.nodes(5_000));
+        BoardCommand move = ai.chooseMove();
+        assertTrue(ai.getNodes() <= 5_000);
+        assertTrue(ai.getCompletedDepth() >= 1);
+        assertTrue(board.getMovesFor(Team.WHITE).stream()
+            .anyMatch(m -> m.from.equals(move.from) && m.to.equals(move.to)));
+    }
+
+    @Test public void stopsWithinTimeBudget() {
+        Board board = Board.completeSet();
+        AlphaBetaAI ai = new AlphaBetaAI(board, Team.WHITE, SearchLimits.millis(100));
+        long start = System.currentTimeMillis();
+        ai.chooseMove();
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("took " + elapsed + " ms", elapsed < 1_000);
+        assertTrue(ai.getCompletedDepth() >= 1);
+    }
+
+    @Test public void stopBeforeTheSearchOnlyStopsThatSearch() {
+        Board board = Board.completeSet();
+        AlphaBetaAI ai = new AlphaBetaAI(board, Team.WHITE, SearchLimits.depth(3));
+        ai.stop();
+        ai.chooseMove();
+        assertEquals(0, ai.getCompletedDepth());
+        ai.chooseMove();
+        assertEquals(3, ai.getCompletedDepth());
+    }
+}
@@ -0,0 +1,180 @@
+package player.strategies;
+
+import game.Board;
+import game.Fen;
+import game.GameStatus;
+import game.MoveList;
+import game.Team;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class BitbaseTest {
+
+    private static Bitbases bitbases;
+
+    @BeforeClass public static void generate() {
+        BitbaseGenerator generator = new BitbaseGenerator(ForkJoinPool.commonPool());
+        generator.generate("KRvK");
+        generator.generate("KvKQ");
+        generator.generate("KPvK");
+        bitbases = new Bitbases(generator.getBuilt().values());
+    }
+
+    @Test public void signatures() {
+        assertEquals("KRvK", Bitbase.canonical("KvKR"));
+        assertEquals("KBvKN", Bitbase.canonical("KNvKB"));
+        assertEquals("KPvKP", Bitbase.canonical("KPvKP"));
+        assertTrue(Bitbase.isDrawn("KvKN"));
+    }
+
+    @Test public void knownPositions() {
+        // mated
+        assertEquals(Bitbase.LOSS, bitbases.probe(Fen.toBoard("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1")));
+        // the same with the colors the other way around
+        assertEquals(Bitbase.LOSS, bitbases.probe(Fen.toBoard("8/8/8/8/8/6k1/6q1/7K w - - 0 1")));
+        // the rook is hanging
+        assertEquals(Bitbase.DRAW, bitbases.probe(Fen.toBoard("8/8/8/8/8/8/1k6/R6K b - - 0 1")));
+        assertEquals(Bitbase.WIN, bitbases.probe(Fen.toBoard("8/8/8/8/8/8/1k6/R6K w - - 0 1")));
+        // pawns can't promote, so they can't win on their own
+        assertEquals(Bitbase.DRAW, bitbases.probe(Fen.toBoard("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1")));
+
+        assertEquals(Bitbases.NONE, bitbases.probe(Board.completeSet()));
+        assertEquals(Bitbases.NONE, bitbases.probe(Fen.toBoard("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1")));
+    }
+
+    /**
+     * each value, and distance to mate, must follow from its children's, found with the board's own
+     * move generator
+     */
+    @Test public void agreesWithTheChildren() {
+        Random random = new Random(7);
+        MoveList moves = new MoveList();
+        String[] pieces = {"R", "q", "P"};
+        int checked = 0;
+        while (checked < 3000) {
+            Board board = randomPosition(random, pieces[checked%pieces.length]);
+            if (board == null) continue;
+            int value = bitbases.probe(board);
+            if (value == Bitbases.NONE) continue;
+            checked++;
+
+            Team side = board.sideToMove();
+            board.getLegalMovesFor(side, moves);
+            boolean win = false;
+            boolean allLost = true;
+            int quickestLoss = Integer.MAX_VALUE;
+            int slowestWin = -1;
+            for (int i = 0; i < moves.size(); i++) {
+                board.execute(moves.get(i));
+                int entry = Long.bitCount(board.occupied()) == 2 ? Bitbase.DRAW_ENTRY : probeIgnoringEnPassant(board);
+                board.undoMove(moves.get(i));
+                int child = Bitbase.valueOf(entry);
+                win |= child == Bitbase.LOSS;
+                allLost &= child == Bitbase.WIN;
+                if (child == Bitbase.LOSS) quickestLoss = Math.min(quickestLoss, Bitbase.pliesOf(entry));
+                if (child == Bitbase.WIN) slowestWin = Math.max(slowestWin, Bitbase.pliesOf(entry));
+            }
+            int expected = win ? Bitbase.WIN
+                : moves.size() == 0 ? (board.inCheck(side) ? Bitbase.LOSS : Bitbase.DRAW)
+                : allLost ? Bitbase.LOSS
+                : Bitbase.DRAW;
+            assertEquals(board.toString(), expected, value);
+            int plies = bitbases.probePlies(board);
+            if (value == Bitbase.WIN) assertEquals(board.toString(), quickestLoss + 1, plies);
+            else if (value == Bitbase.LOSS) assertEquals(board.toString(), slowestWin + 1, plies);
+            else assertEquals(board.toString(), Bitbases.NO_MATE, plies);
+        }
+    }
+
+    /** @return `board`'s entry; en passant needs a pawn on both sides, which none of these tables have */
+    private static int probeIgnoringEnPassant(Board board) {
+        long material = Bitbase.materialKey(board);
+        for (String signature : new String[]{"KRvK", "KQvK", "KPvK"}) {
+            Bitbase table = bitbases.get(signature);
+            if (table.whiteKey == material) return table.entry(table.indexOf(board, false));
+            if (table.swappedKey == material) return table.entry(table.indexOf(board, true));
+        }
+        throw new AssertionError("no table for " + board);
+    }
+
+    /** @return a legal position with the two kings and `piece` (a FEN letter), or null */
+    private static Board randomPosition(Random random, String piece) {
+        char[] squares = new char[64];
+        Arrays.fill(squares, '1');
+        int[] placed = new int[3];
+        String letters = "Kk" + piece;
+        for (int i = 0; i < 3; i++) {
+            int square;
+            do square = random.nextInt(64);
+            while (squares[square] != '1');
+            squares[square] = letters.charAt(i);
+            placed[i] = square;
+        }
+        if (piece.equals("P") && (placed[2] < 8 || placed[2] >= 56)) return null;
+        StringBuilder fen = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            if (row > 0) fen.append('/');
+            fen.append(squares, row*8, 8);
+        }
+        fen.append(random.nextBoolean() ? " w" : " b").append(" - - 0 1");
+        Board board = Fen.toBoard(fen.toString().replaceAll("11111111", "8").replaceAll("1111111", "7")
+            .replaceAll("111111", "6").replaceAll("11111", "5").replaceAll("1111", "4")
+            .replaceAll("111", "3").replaceAll("11", "2"));
+        return board.inCheck(board.sideToMove().other()) ? null : board;
+    }
+
+    @Test public void roundTripsThroughFiles() throws IOException {
+        Path directory = Files.createTempDirectory("bitbases");
+        bitbases.get("KRvK").writeTo(directory.resolve("KRvK" + Bitbase.EXTENSION));
+        Bitbases mapped = Bitbases.open(directory);
+        assertEquals(1, mapped.size());
+        assertNotNull(mapped.get("KvKR"));
+        Board board = Fen.toBoard("8/8/8/8/8/8/1k6/R6K w - - 0 1");
+        assertEquals(bitbases.probe(board), mapped.probe(board));
+        Files.delete(directory.resolve("KRvK" + Bitbase.EXTENSION));
+        Files.delete(directory);
+    }
+
+    @Test public void distances() {
+        assertEquals(0, bitbases.probePlies(Fen.toBoard("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1")));
+        assertEquals(1, bitbases.probePlies(Fen.toBoard("7k/8/6K1/8/8/8/8/R7 w - - 0 1")));
+        assertEquals(Bitbases.NO_MATE, bitbases.probePlies(Fen.toBoard("8/8/8/8/8/8/1k6/R6K b - - 0 1")));
+        assertEquals(Bitbases.NONE, bitbases.probePlies(Board.completeSet()));
+    }
+
+    /** the tables are no use if the search can't turn a known win into a mate */
+    @Test public void winsAreMated() {
+        Board board = Fen.toBoard("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+        AlphaBetaAI white = new AlphaBetaAI(board, Team.WHITE, SearchLimits.depth(4));
+        white.setBitbases(bitbases);
+        AlphaBetaAI black = new AlphaBetaAI(board, Team.BLACK, SearchLimits.depth(4));
+        black.setBitbases(bitbases);
+        int plies = bitbases.probePlies(board);
+        for (int ply = 0; ply < plies; ply++)
+            board.execute((ply % 2 == 0 ? white : black).chooseMove());
+        assertEquals(GameStatus.CHECKMATE, board.status());
+        assertEquals(Team.BLACK, board.sideToMove());
+    }
+
+    @Test public void searchStopsAtTheTable() {
+        Board board = Fen.toBoard("8/8/8/3k4/8/8/8/R3K3 w - - 0 1");
+        AlphaBetaAI plain = new AlphaBetaAI(board, Team.WHITE, SearchLimits.depth(4));
+        plain.chooseMove();
+        AlphaBetaAI probing = new AlphaBetaAI(board, Team.WHITE, SearchLimits.depth(4));
+        probing.setBitbases(bitbases);
+        probing.chooseMove();
+        assertTrue(probing.getLastScore() > AlphaBetaAI.KNOWN_WIN/2);
+        assertTrue(probing.getNodes() + " vs " + plain.getNodes(), probing.getNodes() < plain.getNodes()/2);
+    }
+}
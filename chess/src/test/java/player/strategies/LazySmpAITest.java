@@ -0,0 +1,62 @@
+package player.strategies;
+
+import game.Board;
+import game.BoardLoc;
+import game.Team;
+import game.cmd.BoardCommand;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LazySmpAITest {
+
+    @Test public void helpersDontTouchTheRealBoard() {
+        Board board = Board.completeSet();
+        long key = board.zobristKey();
+        LazySmpAI ai = new LazySmpAI(board, Team.WHITE, SearchLimits.depth(4), 3);
+        try {
+            BoardCommand move = ai.chooseMove();
+            assertTrue(board.getMovesFor(Team.WHITE).stream()
+                .anyMatch(m -> m.from.equals(move.from) && m.to.equals(move.to)));
+            assertTrue(ai.getCompletedDepth() >= 4);
+            assertEquals(key, board.zobristKey());
+            assertFalse(board.canUndoMove());
+        }
+        finally {
+            ai.shutdown();
+        }
+    }
+
+    @Test public void agreesWithOneThreadOnAForcedMate() {
+        Board board = Board.fromPrintout("" +
+            "    A    B    C    D    E    F    G    H   \n" +
+            "  +---------------------------------------+\n" +
+            "8 |    |    |    |    |    |    |    | Kb |\n" +
+            "7 |    |    |    |    |    |    | Pb | Pb |\n" +
+            "6 |    |    |    |    |    |    |    |    |\n" +
+            "5 |    |    |    |    |    |    |    |    |\n" +
+            "4 |    |    |    |    |    |    |    |    |\n" +
+            "3 |    |    |    |    |    |    |    |    |\n" +
+            "2 |    |    |    |    |    |    |    |    |\n" +
+            "1 | Rw |    |    |    |    |    | Kw |    |\n" +
+            "  +---------------------------------------+");
+        AlphaBetaAI single = new AlphaBetaAI(board, Team.WHITE, SearchLimits.depth(3));
+        BoardCommand expected = single.chooseMove();
+        assertEquals(BoardLoc.parse("a1"), expected.from);
+        assertEquals(BoardLoc.parse("a8"), expected.to);
+        assertEquals(1, AlphaBetaAI.matePlies(single.getLastScore()));
+
+        LazySmpAI ai = new LazySmpAI(board, Team.WHITE, SearchLimits.depth(3), 4);
+        try {
+            BoardCommand move = ai.chooseMove();
+            assertEquals(expected.from, move.from);
+            assertEquals(expected.to, move.to);
+            assertEquals(1, AlphaBetaAI.matePlies(ai.getLastScore()));
+        }
+        finally {
+            ai.shutdown();
+        }
+    }
+}
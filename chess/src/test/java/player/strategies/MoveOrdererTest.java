@@ -0,0 +1,82 @@
+package player.strategies;
+
+import game.Board;
+import game.Move;
+import game.MoveList;
+import game.PieceType;
+import game.Team;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MoveOrdererTest {
+
+    private static final String CAPTURES = "" +
+        "    A    B    C    D    E    F    G    H   \n" +
+        "  +---------------------------------------+\n" +
+        "8 |    |    |    |    |    |    |    | Kb |\n" +
+        "7 |    |    | Pb |    |    |    |    |    |\n" +
+        "6 |    |    |    |    |    | Qb |    |    |\n" +
+        "5 |    | Pb |    | Nw |    |    |    |    |\n" +
+        "4 |    |    |    |    |    |    |    |    |\n" +
+        "3 |    |    |    |    |    |    |    |    |\n" +
+        "2 |    |    |    |    | Qw |    |    |    |\n" +
+        "1 |    |    |    |    |    |    |    | Kw |\n" +
+        "  +---------------------------------------+";
+
+    private static List<Integer> drain(MovePicker picker) {
+        List<Integer> moves = new ArrayList<>();
+        for (int move = picker.next(); move != Move.NONE; move = picker.next())
+            moves.add(move);
+        return moves;
+    }
+
+    @Test public void capturesComeFirstMostValuableVictimFirst() {
+        Board board = Board.fromPrintout(CAPTURES);
+        MoveOrderer orderer = new MoveOrderer(Strategy.PieceEvaluator.textbook());
+        List<Integer> moves = drain(orderer.start(board, Team.WHITE, 0, Move.NONE));
+        // the queen is the best victim; of the two pawns, the one the knight can take comes first
+        assertEquals("D5 - F6", Move.toString(moves.get(0)));
+        assertEquals("D5 - C7", Move.toString(moves.get(1)));
+        assertEquals("E2 - B5", Move.toString(moves.get(2)));
+        assertFalse(Move.isCapture(moves.get(3)));
+    }
+
+    @Test public void handsOutEveryMoveExactlyOnce() {
+        Random random = new Random(7);
+        Board board = Board.completeSet();
+        MoveOrderer orderer = new MoveOrderer(Strategy.PieceEvaluator.textbook());
+        MoveList all = new MoveList();
+        Team side = Team.WHITE;
+        for (int ply = 0; ply < 60; ply++) {
+            board.getLegalMovesFor(side, all);
+            if (all.isEmpty()) break;
+            int hashMove = all.get(random.nextInt(all.size()));
+            orderer.recordCutoff(side, all.get(random.nextInt(all.size())), 3, 2);
+
+            List<Integer> picked = drain(orderer.start(board, side, 3, hashMove));
+            assertEquals(hashMove, (int) picked.get(0));
+            assertEquals(all.size(), picked.size());
+            assertEquals(all.size(), new HashSet<>(picked).size());
+            for (int move : picked) assertTrue(all.contains(move));
+
+            boolean seenQuiet = false;
+            for (int move : picked.subList(1, picked.size())) {
+                if (!Move.isCapture(move)) seenQuiet = true;
+                else assertFalse("capture after a quiet move", seenQuiet);
+            }
+
+            int move = all.get(random.nextInt(all.size()));
+            board.execute(move);
+            if (Move.captured(move) == PieceType.KING) break;
+            side = side.other();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package player.strategies;
+
+import game.Board;
+import game.Fen;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PawnStructureTest {
+
+    private static long score(String fen) {
+        return new PawnTable().evaluate(Fen.toBoard(fen));
+    }
+
+    @Test public void symmetricStructureScoresZero() {
+        assertEquals(0, score(Fen.START));
+    }
+
+    @Test public void penalizesDoubledAndIsolatedPawns() {
+        // white: doubled, isolated C pawns; black: a healthy B-C pair
+        long packed = score("4k3/8/8/1pp5/8/2P5/2P5/4K3 w - - 0 1");
+        assertTrue(PawnStructure.middlegame(packed) < 0);
+        assertTrue(PawnStructure.endgame(packed) < PawnStructure.middlegame(packed));
+    }
+
+    @Test public void passedPawnsCountMoreTheFurtherTheyGo() {
+        long onFifth = score("4k3/8/8/4P3/8/8/8/4K3 w - - 0 1");
+        long onSeventh = score("4k3/4P3/8/8/8/8/8/4K3 w - - 0 1");
+        assertTrue(PawnStructure.endgame(onSeventh) > PawnStructure.endgame(onFifth));
+        // a black pawn in front on a neighboring file means it isn't passed any more
+        long blocked = score("4k3/3p4/8/4P3/8/8/8/4K3 w - - 0 1");
+        assertTrue(PawnStructure.endgame(blocked) < PawnStructure.endgame(onFifth));
+    }
+
+    @Test public void cachesByPawnKey() {
+        Board board = Board.completeSet();
+        PawnTable table = new PawnTable();
+        table.evaluate(board);
+        long pawnKey = board.pawnKey();
+        board.execute("g1 f3");
+        assertEquals(pawnKey, board.pawnKey());
+        table.evaluate(board);
+        assertEquals(1, table.hits());
+        board.execute("e7 e5");
+        assertNotEquals(pawnKey, board.pawnKey());
+        table.evaluate(board);
+        assertEquals(2, table.misses());
+    }
+}
@@ -0,0 +1,47 @@
+package player.strategies;
+
+import game.Bitboards;
+import game.Move;
+import game.PieceType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TranspositionTableTest {
+
+    @Test public void storeThenProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.of(Bitboards.square(6, 4), Bitboards.square(4, 4), PieceType.PAWN, null, Move.DOUBLE_PUSH);
+        table.store(0xABCDEF12345L, 3, -2.5, TranspositionTable.LOWER_BOUND, move);
+
+        long entry = table.probe(0xABCDEF12345L);
+        assertEquals(move, TranspositionTable.move(entry));
+        assertEquals(3, TranspositionTable.depth(entry));
+        assertEquals(-2.5, TranspositionTable.score(entry), 0);
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+
+        assertEquals(TranspositionTable.MISS, table.probe(0x12345L));
+        assertEquals(1, table.hits());
+        assertEquals(1, table.misses());
+    }
+
+    @Test public void deeperEntriesArePreferred() {
+        TranspositionTable table = new TranspositionTable(1);
+        long first = 7;
+        long collides = first + table.capacity(); // same slot, different position
+        table.store(first, 4, 1, TranspositionTable.EXACT, Move.NONE);
+
+        table.store(collides, 2, 1, TranspositionTable.EXACT, Move.NONE);
+        assertEquals(TranspositionTable.MISS, table.probe(collides));
+        assertEquals(4, TranspositionTable.depth(table.probe(first)));
+
+        table.store(collides, 5, 1, TranspositionTable.EXACT, Move.NONE);
+        assertEquals(5, TranspositionTable.depth(table.probe(collides)));
+        assertEquals(TranspositionTable.MISS, table.probe(first));
+        assertEquals(1, table.overwrites());
+
+        // the same position can always be refreshed, even to a shallower depth
+        table.store(collides, 1, 0, TranspositionTable.EXACT, Move.NONE);
+        assertEquals(1, TranspositionTable.depth(table.probe(collides)));
+    }
+}